@@ -0,0 +1,29 @@
+package com.project.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+/**
+ * Runs the Flyway migrations after Hibernate has created or updated the tables of the entities,
+ * so migrations can alter those tables and add indexes and constraints Hibernate does not know.
+ */
+@Configuration
+public class FlywayConfig {
+
+  // Keeps Spring Boot from migrating before the entity manager factory is created
+  @Bean
+  public FlywayMigrationStrategy flywayMigrationStrategy() {
+    return flyway -> {
+    };
+  }
+
+  @Bean
+  @DependsOn("entityManagerFactory")
+  public InitializingBean flywayMigrationAfterHibernate(Flyway flyway) {
+    return flyway::migrate;
+  }
+}
@@ -0,0 +1,105 @@
+package com.project.config;
+
+import com.project.service.PageCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Serves the catalog, search, filter and browse pages of anonymous visitors from the
+ * {@link PageCache}. These pages only depend on the URL and the catalog, so a hit skips the
+ * controllers, the database and the template rendering: the compressed bytes are written as
+ * they are to clients accepting gzip.
+ *
+ * Runs after the Spring Security filters, so the visitor is known. Logged-in users always get a
+ * freshly rendered page, as it shows their name and balance.
+ */
+@Component
+public class PageCacheFilter extends OncePerRequestFilter {
+
+  private static final List<String> CACHED_PATHS = List.of("/home", "/home/searchResults",
+      "/home/filterByPriceRange", "/home/filterByPrice", "/home/filterByTitle");
+  private static final List<String> CACHED_PREFIXES = List.of("/category/", "/author/");
+
+  private final PageCache pageCache;
+
+  public PageCacheFilter(PageCache pageCache) {
+    this.pageCache = pageCache;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    if (!pageCache.isEnabled() || !"GET".equals(request.getMethod())) {
+      return true;
+    }
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return !CACHED_PATHS.contains(path)
+        && CACHED_PREFIXES.stream().noneMatch(path::startsWith);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain chain) throws ServletException, IOException {
+    if (!isAnonymous()) {
+      chain.doFilter(request, response);
+      return;
+    }
+    String url = request.getQueryString() == null
+        ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+    long version = pageCache.currentVersion();
+    PageCache.Page page = pageCache.get(version, url);
+    if (page != null) {
+      write(request, response, page);
+      return;
+    }
+
+    response.setHeader("X-Page-Cache", "MISS");
+    ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+    chain.doFilter(request, wrapper);
+    String contentType = wrapper.getContentType();
+    // Pages that set a cookie, e.g. a new session, are specific to this visitor
+    if (wrapper.getStatus() == HttpServletResponse.SC_OK && contentType != null
+        && contentType.startsWith("text/html")
+        && wrapper.getHeaders(HttpHeaders.SET_COOKIE).isEmpty()) {
+      pageCache.put(version, url, contentType, wrapper.getContentAsByteArray());
+    }
+    wrapper.copyBodyToResponse();
+  }
+
+  private static boolean isAnonymous() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication == null || authentication instanceof AnonymousAuthenticationToken
+        || !authentication.isAuthenticated();
+  }
+
+  private static void write(HttpServletRequest request, HttpServletResponse response,
+      PageCache.Page page) throws IOException {
+    response.setContentType(page.contentType());
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    response.setHeader("X-Page-Cache", "HIT");
+    String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+      response.setContentLength(page.gzip().length);
+      response.getOutputStream().write(page.gzip());
+      return;
+    }
+    // Rare: clients without gzip support get the page decompressed on the fly
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(page.gzip()))) {
+      in.transferTo(response.getOutputStream());
+    }
+  }
+}
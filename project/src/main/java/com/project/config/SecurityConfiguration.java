@@ -109,6 +109,8 @@ public class SecurityConfiguration {
                 .requestMatchers("/home/payment").authenticated()
                 .requestMatchers("/home/basket/pay").authenticated()
                 .requestMatchers("/books/**").permitAll()
+                .requestMatchers("/api/suggest").permitAll()
+                .requestMatchers("/category/**", "/author/**").permitAll()
         )
 
         .formLogin(formLogin ->
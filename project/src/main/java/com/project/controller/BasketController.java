@@ -3,10 +3,8 @@ package com.project.controller;
 import com.project.entity.Basket;
 import com.project.entity.BasketDetails;
 import com.project.service.BasketService;
-import java.util.Base64;
+import com.project.service.CurrentUser;
 import java.util.List;
-import java.util.Objects;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,33 +19,22 @@ public class BasketController {
 
 
   private final BasketService basketService;
+  private final CurrentUser currentUser;
 
-  public BasketController(BasketService basketService) {
+  public BasketController(BasketService basketService, CurrentUser currentUser) {
     this.basketService = basketService;
+    this.currentUser = currentUser;
   }
 
 
   @GetMapping("/home/basket")
   public String getBasket(Model model) {
 
-    if (!Objects.equals(SecurityContextHolder.getContext().getAuthentication().getName(),
-        "anonymousUser")) {
-      if (basketService.getBasketFromLoggedInUser().getBasketDetails().size() != 0) {
-
-        System.out.println(basketService.getBasketFromLoggedInUser().getBasketDetails().size());
-
-        Basket basket = basketService.getBasketFromLoggedInUser();
+    if (currentUser.isLoggedIn()) {
+      Basket basket = basketService.getBasketFromLoggedInUser();
+      if (basket != null && !basket.getBasketDetails().isEmpty()) {
         List<BasketDetails> basketDetails = basket.getBasketDetails();
 
-
-        for (BasketDetails detail : basketDetails) {
-          byte[] imageData = detail.getBook().getImage();
-          if (imageData != null) {
-            String imageDataBase64 = Base64.getEncoder().encodeToString(imageData);
-            detail.getBook().setImageDataBase64(imageDataBase64);
-          }
-        }
-
         model.addAttribute("basketDetails", basketDetails);
         model.addAttribute("basket", basket);
         model.addAttribute("balance",basket.getAccountEntity().getBalance());
@@ -68,32 +55,13 @@ public class BasketController {
   public String updateBasket(@PathVariable Long bookId, @RequestParam int quantity, Model model) {
     basketService.updateBasketDetails(bookId, quantity);
 
-    List<BasketDetails> updatedDetails = basketService.getBasketFromLoggedInUser()
-        .getBasketDetails();
-    model.addAttribute("details", updatedDetails);
-
-
     return "redirect:/home/basket";
   }
 
   @PostMapping("/home/removeFromBasket/{bookId}")
   public String removeFromBasket(@PathVariable Long bookId) {
 
-    List<BasketDetails> details = basketService.getBasketFromLoggedInUser()
-        .getBasketDetails();
-    BasketDetails detail = null;
-    for (BasketDetails basketDetails : details) {
-      if (Objects.equals(basketDetails.getBook().getId(), bookId)) {
-        detail = basketDetails;
-        break;
-      }
-    }
-    if (detail == null) {
-      System.out.println("No matching BasketDetails found for bookId: " + bookId);
-    } else {
-      basketService.removeBasketDetail(detail);
-    }
-    System.out.println("removed from db");
+    basketService.removeFromBasket(bookId);
     return "redirect:/home/basket";
   }
 
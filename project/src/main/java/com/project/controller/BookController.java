@@ -6,6 +6,11 @@ import com.project.entity.OrderDetailsEntity;
 import com.project.entity.OrderEntity;
 import com.project.entity.User;
 import com.project.repository.BookRepository;
+import com.project.service.BookImageService;
+import com.project.service.BookService;
+import com.project.service.ImageBackfillService;
+import com.project.service.ImageStorageMigrationService;
+import com.project.service.TaxonomyService;
 import com.project.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import java.awt.print.Book;
@@ -13,7 +18,6 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,21 +48,26 @@ public class BookController {
   @Autowired
   private UserService userService;
 
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookImageService bookImageService;
+
+  @Autowired
+  private ImageBackfillService imageBackfillService;
+
+  @Autowired
+  private ImageStorageMigrationService imageStorageMigrationService;
+
+  @Autowired
+  private TaxonomyService taxonomyService;
+
   @GetMapping("/home")
   public String getBooks(Model model, Pageable pageable) {
 
     Pageable pageRequest = PageRequest.of(pageable.getPageNumber(), 10);
     Page<BookEntity> books = bookRepository.findAll(pageRequest);
-    model.addAttribute("books", books);
-
-    // Retrieve and set the image data for each book
-    for (BookEntity book : books) {
-      byte[] imageData = book.getImage();
-      if (imageData != null) {
-        String imageDataBase64 = Base64.getEncoder().encodeToString(imageData);
-        book.setImageDataBase64(imageDataBase64);
-      }
-    }
 
     model.addAttribute("books", books.getContent());
     model.addAttribute("currentPage", books.getNumber());
@@ -81,22 +90,22 @@ public class BookController {
 
     BookEntity book = new BookEntity();
     book.setTitle(title);
-    book.setAuthor(author);
-    book.setCategory(category);
+    book.setAuthors(taxonomyService.resolveAuthors(author));
+    book.setCategories(taxonomyService.resolveCategories(category));
     book.setIsbn(isbn);
     book.setPrice(BigDecimal.valueOf(price));
     book.setDescription(description);
 
     try {
       if (!imageFile.isEmpty()) {
-        book.setImage(imageFile.getBytes());
+        bookImageService.attachImage(book, imageFile.getBytes());
       }
     } catch (IOException e) {
       e.printStackTrace();
       redirectAttributes.addFlashAttribute("error", "Image upload failed!");
       return "redirect:/admin/home";
     }
-    bookRepository.save(book);
+    bookService.saveBookToDatabase(book);
     return "redirect:/admin/home";
   }
 
@@ -114,15 +123,15 @@ public class BookController {
 
     BookEntity book = new BookEntity();
     book.setTitle(title);
-    book.setAuthor(author);
-    book.setCategory(category);
+    book.setAuthors(taxonomyService.resolveAuthors(author));
+    book.setCategories(taxonomyService.resolveCategories(category));
     book.setIsbn(isbn);
     book.setPrice(BigDecimal.valueOf(price));
     book.setDescription(description);
 
     try {
       if (!imageFile.isEmpty()) {
-        book.setImage(imageFile.getBytes());
+        bookImageService.attachImage(book, imageFile.getBytes());
       }
     } catch (IOException e) {
       e.printStackTrace();
@@ -130,7 +139,7 @@ public class BookController {
       return "redirect:/books";
     }
 
-    bookRepository.save(book);
+    bookService.saveBookToDatabase(book);
     return "redirect:/books";
   }
 
@@ -166,7 +175,7 @@ public class BookController {
       String authorList = request2.getParameter(authorKey);
       List<String> authors = new ArrayList<>(Arrays.asList(authorList.split(",")));
       System.out.println("Updated authors: " + authors);
-      book.setAuthor(authors);
+      book.setAuthors(taxonomyService.resolveAuthors(authors));
     } else {
       System.out.println("No authors found for book ID: " + id);
     }
@@ -183,7 +192,7 @@ public class BookController {
       String categoryList = request.getParameter(key);
       List<String> categories = new ArrayList<>(Arrays.asList(categoryList.split(",")));
       System.out.println("Updated categories: " + categories);
-      book.setCategory(categories);
+      book.setCategories(taxonomyService.resolveCategories(categories));
     } else {
       System.out.println("No categories found for book ID: " + id);
     }
@@ -194,7 +203,7 @@ public class BookController {
 
     try {
       if (!imageFile.isEmpty()) {
-        book.setImage(imageFile.getBytes());
+        bookImageService.attachImage(book, imageFile.getBytes());
       }
     } catch (IOException e) {
       e.printStackTrace();
@@ -202,7 +211,7 @@ public class BookController {
       return "redirect:/admin/home";
     }
 
-    bookRepository.save(book);
+    bookService.saveBookToDatabase(book);
     return "redirect:/admin/home";
   }
 
@@ -216,18 +225,34 @@ public class BookController {
       redirectAttributes.addFlashAttribute("error", "Book not found!");
       return "redirect:/admin/home";
     }
-    bookRepository.delete(book);
+    bookService.deleteBook(book);
     return "redirect:/admin/home";
   }
 
 
 
 
+  @PostMapping("/images/backfill")
+  public String backfillImageDerivatives() {
+    if (!imageBackfillService.startBackfill()) {
+      return "redirect:/admin/dashboard?imageBackfillRunning";
+    }
+    return "redirect:/admin/dashboard?imageBackfillStarted";
+  }
+
+  @PostMapping("/images/migrate")
+  public String migrateImagesToFileSystem() {
+    if (!imageStorageMigrationService.startMigration()) {
+      return "redirect:/admin/dashboard?imageMigrationUnavailable";
+    }
+    return "redirect:/admin/dashboard?imageMigrationStarted";
+  }
+
+
   @GetMapping("/image/{id}")
   @ResponseBody
   public byte[] getImage(@PathVariable("id") Long id) {
-    BookEntity book = bookRepository.findById(id).orElse(null);
-    return (book != null) ? book.getImage() : null;
+    return bookImageService.getImage(id);
   }
 
 }
@@ -0,0 +1,119 @@
+package com.project.controller;
+
+import com.project.dto.BookListing;
+import com.project.dto.CatalogQuery;
+import com.project.dto.KeysetPage;
+import com.project.entity.AuthorEntity;
+import com.project.entity.CategoryEntity;
+import com.project.service.CurrentUser;
+import com.project.service.FilterService;
+import com.project.service.TaxonomyService;
+import com.project.util.CatalogSort;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+@Controller
+public class BrowseController {
+
+  private final FilterService filterService;
+  private final TaxonomyService taxonomyService;
+  private final CurrentUser currentUser;
+
+  /**
+   * Constructor to initialize the dependencies for the BrowseController.
+   *
+   * @param filterService Service to read pages of the catalog.
+   * @param taxonomyService Service to look up categories and authors.
+   * @param currentUser The logged-in user of the request.
+   */
+  public BrowseController(FilterService filterService, TaxonomyService taxonomyService,
+      CurrentUser currentUser) {
+    this.filterService = filterService;
+    this.taxonomyService = taxonomyService;
+    this.currentUser = currentUser;
+  }
+
+  /**
+   * Lists the books of a category, one page at a time.
+   *
+   * @param slug The URL name of the category, e.g. "science-fiction".
+   * @param sort The sorting parameter (optional), e.g. "price" or "titleDesc".
+   * @param cursor Position after the previous page with keyset pagination (optional).
+   * @param pageable The requested page with offset pagination.
+   * @param model The Model object to pass attributes to the view.
+   * @return The name of the Thymeleaf template to render the books.
+   */
+  @GetMapping("/category/{slug}")
+  public String browseCategory(@PathVariable("slug") String slug,
+      @RequestParam(value = "sort", required = false) String sort,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      Pageable pageable, Model model) {
+    CategoryEntity category = taxonomyService.findCategory(slug)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    long total = taxonomyService.countBooks(category);
+    CatalogQuery query = new CatalogQuery(null, category.getName(), null, null, null,
+        CatalogSort.fromParam(sort));
+
+    model.addAttribute("browseTitle", category.getName());
+    model.addAttribute("category", category.getName());
+    model.addAttribute("sort", sort);
+    return showBooks(model, query, total, pageable.getPageNumber(), cursor);
+  }
+
+  /**
+   * Lists the books of an author, one page at a time.
+   *
+   * @param slug The URL name of the author, e.g. "jane-austen".
+   * @param sort The sorting parameter (optional), e.g. "price" or "titleDesc".
+   * @param cursor Position after the previous page with keyset pagination (optional).
+   * @param pageable The requested page with offset pagination.
+   * @param model The Model object to pass attributes to the view.
+   * @return The name of the Thymeleaf template to render the books.
+   */
+  @GetMapping("/author/{slug}")
+  public String browseAuthor(@PathVariable("slug") String slug,
+      @RequestParam(value = "sort", required = false) String sort,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      Pageable pageable, Model model) {
+    AuthorEntity author = taxonomyService.findAuthor(slug)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    long total = taxonomyService.countBooks(author);
+    CatalogQuery query = new CatalogQuery(null, null, author.getName(), null, null,
+        CatalogSort.fromParam(sort));
+
+    model.addAttribute("browseTitle", author.getName());
+    model.addAttribute("author", author.getName());
+    model.addAttribute("sort", sort);
+    return showBooks(model, query, total, pageable.getPageNumber(), cursor);
+  }
+
+  // The books are read like a filtered catalog page, the total comes from the cached counts
+  private String showBooks(Model model, CatalogQuery query, long total, int page,
+      String cursor) {
+    currentUser.addTo(model);
+
+    if (filterService.isKeysetPagination()) {
+      KeysetPage<BookListing> books = filterService.findBooksAfter(query, cursor, 10);
+      model.addAttribute("books", books.content());
+      model.addAttribute("keyset", true);
+      model.addAttribute("nextCursor", books.nextCursor());
+    } else {
+      Page<BookListing> books = filterService.findBooks(query, PageRequest.of(page, 10), total);
+      model.addAttribute("books", books.getContent());
+      model.addAttribute("currentPage", books.getNumber());
+      model.addAttribute("totalPages", books.getTotalPages());
+    }
+    model.addAttribute("totalItems", total);
+    model.addAttribute("facets", filterService.catalogFacets(query));
+
+    return currentUser.isAdmin() ? "books" : "home_test";
+  }
+}
@@ -0,0 +1,46 @@
+package com.project.controller;
+
+import com.project.service.CatalogExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Controller
+@RequestMapping("/admin/export")
+public class CatalogExportController {
+
+  private final CatalogExportService catalogExportService;
+
+  /**
+   * Constructor to initialize the dependencies for the CatalogExportController.
+   *
+   * @param catalogExportService Service to export the catalog.
+   */
+  public CatalogExportController(CatalogExportService catalogExportService) {
+    this.catalogExportService = catalogExportService;
+  }
+
+  /**
+   * Downloads all books. The response is written while the books are read from the database.
+   *
+   * @param format "csv" (default) or "ndjson".
+   * @return The catalog as attachment.
+   */
+  @GetMapping
+  public ResponseEntity<StreamingResponseBody> exportBooks(
+      @RequestParam(value = "format", defaultValue = "csv") String format) {
+    boolean ndjson = "ndjson".equalsIgnoreCase(format);
+    StreamingResponseBody body = ndjson
+        ? catalogExportService::exportNdjson : catalogExportService::exportCsv;
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(ndjson ? "application/x-ndjson" : "text/csv"))
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"catalog." + (ndjson ? "ndjson" : "csv") + "\"")
+        .body(body);
+  }
+}
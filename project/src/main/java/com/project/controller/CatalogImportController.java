@@ -0,0 +1,68 @@
+package com.project.controller;
+
+import com.project.service.CatalogImportService;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+
+@Controller
+@RequestMapping("/admin/import")
+public class CatalogImportController {
+
+  private final CatalogImportService catalogImportService;
+
+  /**
+   * Constructor to initialize the dependencies for the CatalogImportController.
+   *
+   * @param catalogImportService Service to import books in bulk.
+   */
+  public CatalogImportController(CatalogImportService catalogImportService) {
+    this.catalogImportService = catalogImportService;
+  }
+
+  /**
+   * Starts importing the uploaded CSV or NDJSON file. The progress is available under
+   * /admin/metrics/import.
+   *
+   * @param file The file with the books.
+   * @return A redirect to the dashboard.
+   */
+  @PostMapping
+  public String importBooks(@RequestParam("file") MultipartFile file) throws IOException {
+    try {
+      if (!catalogImportService.startImport(file)) {
+        return "redirect:/admin/dashboard?catalogImportRunning";
+      }
+    } catch (IllegalArgumentException e) {
+      return "redirect:/admin/dashboard?catalogImportInvalid";
+    }
+    return "redirect:/admin/dashboard?catalogImportStarted";
+  }
+
+  /**
+   * Downloads the rejected records of the last import with the reason for each.
+   *
+   * @return The CSV report, or 404 if there is none.
+   */
+  @GetMapping("/rejects")
+  public ResponseEntity<Resource> getRejectReport() {
+    Path report = catalogImportService.getRejectReport();
+    if (report == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType("text/csv"))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rejected.csv\"")
+        .body(new FileSystemResource(report));
+  }
+}
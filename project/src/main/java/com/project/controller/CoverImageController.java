@@ -0,0 +1,189 @@
+package com.project.controller;
+
+import com.project.dto.BookImageInfo;
+import com.project.dto.CoverImage;
+import com.project.dto.StoredImage;
+import com.project.service.BookImageService;
+import com.project.util.ImageVariant;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@Controller
+public class CoverImageController {
+
+  // Request attributes of Tomcat's sendfile support
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final BookImageService bookImageService;
+
+  /**
+   * Constructor to initialize the dependencies for the CoverImageController.
+   *
+   * @param bookImageService Service to read book cover images.
+   */
+  public CoverImageController(BookImageService bookImageService) {
+    this.bookImageService = bookImageService;
+  }
+
+  /**
+   * Serves the original cover image of a book to everyone, including anonymous visitors.
+   *
+   * The response carries a strong ETag (the SHA-256 of the image) and Last-Modified header,
+   * so repeated requests are answered with 304 Not Modified without loading the image. When
+   * the URL contains the current hash as version parameter, the image is cached for a year.
+   * Images kept on disk are handed to the container's sendfile support where available, or
+   * copied with FileChannel.transferTo, so their bytes never pass through the heap.
+   *
+   * @param id The ID of the book.
+   * @param version The image hash the page was rendered with (optional).
+   * @param request The current request, used for conditional request handling.
+   * @param response The response the image is written to.
+   */
+  @GetMapping("/books/{id}/image")
+  public void getCoverImage(@PathVariable("id") Long id,
+      @RequestParam(value = "v", required = false) String version,
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+    serveCover(id, null, version, request, response);
+  }
+
+  /**
+   * Serves a resized copy of the cover ("list", "basket" or "detail"). Falls back to the
+   * original image if the derivative has not been generated yet.
+   *
+   * @param id The ID of the book.
+   * @param variantPath The requested size.
+   * @param version The hash of the original image the page was rendered with (optional).
+   * @param request The current request, used for conditional request handling.
+   * @param response The response the image is written to.
+   */
+  @GetMapping("/books/{id}/image/{variant}")
+  public void getCoverImageVariant(@PathVariable("id") Long id,
+      @PathVariable("variant") String variantPath,
+      @RequestParam(value = "v", required = false) String version,
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+    ImageVariant variant = ImageVariant.fromPath(variantPath);
+    if (variant == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    serveCover(id, variant, version, request, response);
+  }
+
+  private void serveCover(Long id, ImageVariant variant, String requestedVersion,
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+    CoverImage cached = bookImageService.getCachedImage(id, variant);
+    // A page rendered after the cover changed asks for a version the cache may not hold yet
+    if (cached != null
+        && (requestedVersion == null || requestedVersion.equals(cached.version()))) {
+      respond(cached.hash(), cached.updatedAt(), cached.version(), requestedVersion,
+          request, response, () -> cached);
+      return;
+    }
+
+    BookImageInfo original = bookImageService.getImageInfo(id).orElse(null);
+    if (original == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    BookImageInfo info = original;
+    ImageVariant source = null;
+    if (variant != null) {
+      BookImageInfo derivative = bookImageService.getImageInfo(id, variant).orElse(null);
+      if (derivative != null) {
+        info = derivative;
+        source = variant;
+      }
+    }
+
+    // The version parameter refers to the original, derivatives change together with it
+    BookImageInfo requested = info;
+    ImageVariant loadVariant = source;
+    respond(info.getImageHash(), info.getImageUpdatedAt(), original.getImageHash(),
+        requestedVersion, request, response,
+        () -> bookImageService.loadImage(id, loadVariant, requested, original.getImageHash()));
+  }
+
+  private void respond(String hash, Instant updatedAt, String currentVersion,
+      String requestedVersion, HttpServletRequest request, HttpServletResponse response,
+      Supplier<CoverImage> imageLoader) throws IOException {
+
+    long lastModified = updatedAt != null ? updatedAt.toEpochMilli() : -1;
+    CacheControl cacheControl = currentVersion != null && currentVersion.equals(requestedVersion)
+        ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+        : CacheControl.noCache().cachePublic();
+
+    if (hash != null
+        && new ServletWebRequest(request, response).checkNotModified(etag(hash), lastModified)) {
+      response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+      return;
+    }
+
+    CoverImage image = imageLoader.get();
+    if (image == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+
+    StoredImage stored = image.image();
+    response.setContentType(BookImageService.detectMediaType(stored.readHead(12)).toString());
+    response.setContentLengthLong(stored.getLength());
+    response.setHeader(HttpHeaders.ETAG, etag(image.hash()));
+    response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+    if (lastModified > 0) {
+      response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+    }
+
+    if (stored.isBuffer()) {
+      // Off-heap cache entries are written in small chunks instead of being copied to the heap
+      OutputStream out = response.getOutputStream();
+      WritableByteChannel target = Channels.newChannel(out);
+      ByteBuffer buffer = stored.getBuffer();
+      while (buffer.hasRemaining()) {
+        target.write(buffer);
+      }
+      out.flush();
+    } else if (!stored.isFile()) {
+      response.getOutputStream().write(stored.getData());
+    } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      // Tomcat writes the file straight from the page cache to the socket after this request
+      request.setAttribute(SENDFILE_FILENAME, stored.getFile().toString());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, stored.getLength());
+    } else {
+      try (FileChannel file = FileChannel.open(stored.getFile())) {
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = 0;
+        while (position < stored.getLength()) {
+          position += file.transferTo(position, stored.getLength() - position, target);
+        }
+        out.flush();
+      }
+    }
+  }
+
+  private static String etag(String hash) {
+    return "\"" + hash + "\"";
+  }
+}
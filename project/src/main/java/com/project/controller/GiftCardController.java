@@ -11,7 +11,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -44,9 +43,6 @@ public class GiftCardController {
   @PreAuthorize("isAuthenticated()")
   @GetMapping("/redeemGiftCard")
   public String showAddMoneyPage(Model model) {
-    String username = SecurityContextHolder.getContext().getAuthentication().getName();
-    User user = userService.findByUsername(username);
-
     return "redeem"; // This is the Thymeleaf template for adding money
   }
 
@@ -0,0 +1,132 @@
+package com.project.controller;
+
+import com.project.service.BasketExpiryService;
+import com.project.service.BasketWriteBehindStore;
+import com.project.service.CatalogImportService;
+import com.project.service.CoverImageCache;
+import com.project.service.PageCache;
+import com.project.service.SearchResultCache;
+import com.project.service.UserPrincipalCache;
+import java.util.Map;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+@RequestMapping("/admin/metrics")
+public class MetricsController {
+
+  private final CoverImageCache coverImageCache;
+  private final SearchResultCache searchResultCache;
+  private final CatalogImportService catalogImportService;
+  private final PageCache pageCache;
+  private final UserPrincipalCache userPrincipalCache;
+  private final BasketExpiryService basketExpiryService;
+  private final BasketWriteBehindStore basketWriteBehindStore;
+
+  /**
+   * Constructor to initialize the dependencies for the MetricsController.
+   *
+   * @param coverImageCache Cache for book cover images.
+   * @param searchResultCache Cache for search and filter results.
+   * @param catalogImportService Service to import books in bulk.
+   * @param pageCache Cache for pages rendered for anonymous visitors.
+   * @param userPrincipalCache Cache of the identities of recently active users.
+   * @param basketExpiryService Service removing basket lines after the expiration time.
+   * @param basketWriteBehindStore Store keeping basket changes in memory until flushed.
+   */
+  public MetricsController(CoverImageCache coverImageCache,
+      SearchResultCache searchResultCache, CatalogImportService catalogImportService,
+      PageCache pageCache, UserPrincipalCache userPrincipalCache,
+      BasketExpiryService basketExpiryService, BasketWriteBehindStore basketWriteBehindStore) {
+    this.coverImageCache = coverImageCache;
+    this.searchResultCache = searchResultCache;
+    this.catalogImportService = catalogImportService;
+    this.pageCache = pageCache;
+    this.userPrincipalCache = userPrincipalCache;
+    this.basketExpiryService = basketExpiryService;
+    this.basketWriteBehindStore = basketWriteBehindStore;
+  }
+
+  /**
+   * Returns hit rate and memory usage of the cover image cache as JSON.
+   *
+   * @return The cache statistics.
+   */
+  @GetMapping("/image-cache")
+  @ResponseBody
+  public Map<String, Object> getImageCacheStats() {
+    return coverImageCache.getStats();
+  }
+
+  /**
+   * Returns hit rate, coalesced requests and the current catalog version of the search result
+   * cache as JSON.
+   *
+   * @return The cache statistics.
+   */
+  @GetMapping("/search-cache")
+  @ResponseBody
+  public Map<String, Object> getSearchCacheStats() {
+    return searchResultCache.getStats();
+  }
+
+  /**
+   * Returns hit rate and memory usage of the rendered page cache for anonymous visitors as JSON.
+   *
+   * @return The cache statistics.
+   */
+  @GetMapping("/page-cache")
+  @ResponseBody
+  public Map<String, Object> getPageCacheStats() {
+    return pageCache.getStats();
+  }
+
+  /**
+   * Returns hit rate and size of the cache of logged-in users' identities and roles as JSON.
+   *
+   * @return The cache statistics.
+   */
+  @GetMapping("/user-cache")
+  @ResponseBody
+  public Map<String, Object> getUserCacheStats() {
+    return userPrincipalCache.getStats();
+  }
+
+  /**
+   * Returns the expiry mode with the baskets waiting to expire, or the expired lines and
+   * duration of the sweeps, as JSON.
+   *
+   * @return The expiry statistics.
+   */
+  @GetMapping("/basket-expiry")
+  @ResponseBody
+  public Map<String, Object> getBasketExpiryStats() {
+    return basketExpiryService.getStats();
+  }
+
+  /**
+   * Returns the basket store mode, the baskets with pending changes, and the changes and
+   * flushed lines so far as JSON.
+   *
+   * @return The store statistics.
+   */
+  @GetMapping("/basket-store")
+  @ResponseBody
+  public Map<String, Object> getBasketStoreStats() {
+    return basketWriteBehindStore.getStats();
+  }
+
+  /**
+   * Returns the progress, throughput and number of rejected records of the running or last
+   * catalog import as JSON.
+   *
+   * @return The import status.
+   */
+  @GetMapping("/import")
+  @ResponseBody
+  public Map<String, Object> getImportStatus() {
+    return catalogImportService.getStatus();
+  }
+}
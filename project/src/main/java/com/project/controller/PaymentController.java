@@ -6,6 +6,7 @@ import com.project.entity.OrderEntity;
 import com.project.entity.User;
 import com.project.repository.OrderDetailsRepository;
 import com.project.service.BasketService;
+import com.project.service.CurrentUser;
 import com.project.service.OrderService;
 import com.project.service.UserService;
 import java.math.BigDecimal;
@@ -22,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 public class PaymentController {
 
     private final UserService userService;
+    private final CurrentUser currentUser;
     private final BasketService basketService;
     private final OrderService orderService;
     private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
@@ -32,13 +34,15 @@ public class PaymentController {
      * Constructor to inject dependencies into the PaymentController.
      *
      * @param userService   Service to handle user-related actions
+     * @param currentUser   The logged-in user of the request
      * @param basketService Service to handle basket-related actions
      * @param orderService  Service to handle order-related actions
      */
-    public PaymentController(UserService userService, BasketService basketService,
-        OrderService orderService,
+    public PaymentController(UserService userService, CurrentUser currentUser,
+        BasketService basketService, OrderService orderService,
         OrderDetailsRepository orderDetailsRepository) {
         this.userService = userService;
+        this.currentUser = currentUser;
         this.basketService = basketService;
         this.orderService = orderService;
         this.orderDetailsRepository = orderDetailsRepository;
@@ -54,8 +58,7 @@ public class PaymentController {
     @GetMapping("/home/basket/checkout")
     public String showPaymentPage(Model model) {
         // Fetch authenticated user
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userService.findByUsername(username);
+        User user = currentUser.getUser();
         if (user == null) {
             model.addAttribute("message", "User not found.");
             return "error"; // Redirect to an error page
@@ -99,8 +102,7 @@ public class PaymentController {
     @GetMapping("/home/basket/checkout/confirm")
     public String showPaymentConfirmPage(Model model) {
         // Fetch authenticated user
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userService.findByUsername(username);
+        User user = currentUser.getUser();
         if (user == null) {
             model.addAttribute("message", "User not found.");
             return "error"; // Redirect to an error page
@@ -138,7 +140,7 @@ public class PaymentController {
     public String payForOrder(Model model) {
         // Get authenticated user's details
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userService.findByUsername(username);
+        User user = currentUser.getUser();
         if (user == null) {
             throw new UsernameNotFoundException("User with username '" + username + "' not found.");
         }
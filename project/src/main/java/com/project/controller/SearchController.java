@@ -1,16 +1,14 @@
 package com.project.controller;
-import com.project.entity.BookEntity;
-import com.project.entity.User;
+import com.project.dto.BookListing;
+import com.project.dto.CatalogQuery;
+import com.project.dto.KeysetPage;
+import com.project.service.CurrentUser;
 import com.project.service.FilterService;
-import com.project.service.UserService;
-import com.project.util.Role;
+import com.project.util.CatalogSort;
 import java.math.BigDecimal;
-import java.util.Base64;
-import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,17 +20,17 @@ public class SearchController {
 
   private final FilterService filterService;
 
-  private final UserService userService;
+  private final CurrentUser currentUser;
 
   /**
    * Constructor to initialize the dependencies for the SearchController.
    *
    * @param filterService Service to handle filtering of books.
-   * @param userService Service to manage user-related operations.
+   * @param currentUser The logged-in user of the request.
    */
-  public SearchController(FilterService filterService, UserService userService) {
+  public SearchController(FilterService filterService, CurrentUser currentUser) {
     this.filterService = filterService;
-    this.userService = userService;
+    this.currentUser = currentUser;
   }
 
   /**
@@ -48,6 +46,9 @@ public class SearchController {
    * @param minPrice The minimum price filter (optional).
    * @param maxPrice The maximum price filter (optional).
    * @param sort The sorting parameter (optional).
+   * @param category The category filter (optional).
+   * @param author The author filter (optional).
+   * @param cursor Position after the previous page with keyset pagination (optional).
    * @param pageable The Pageable object containing page and size information.
    * @return The name of the Thymeleaf template to render the search results page.
    */
@@ -59,43 +60,19 @@ public class SearchController {
       @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
       @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
       @RequestParam(value = "sort", required = false) String sort,
+      @RequestParam(value = "category", required = false) String category,
+      @RequestParam(value = "author", required = false) String author,
+      @RequestParam(value = "cursor", required = false) String cursor,
       Pageable pageable) {
 
-    String username = SecurityContextHolder.getContext().getAuthentication().getName();
-    Set<Role> role = null;
-    User user = null;
-    if (userService.findByUsername(username) != null) {
-      user = userService.findByUsername(username);
-      role = user.getRoles();
-      System.out.println("role: "+ role);
-      model.addAttribute("user", user);
-      if (role.contains(Role.ADMIN)) {
-        model.addAttribute("role", "admin");
-      } else {
-        model.addAttribute("role", "user");
-        model.addAttribute("balance", user.getAccount().getBalance());
-      }
-    } else {
-      model.addAttribute("user","null");
-      model.addAttribute("role", "null");
-    }
-
-    Pageable pageRequest = PageRequest.of(pageable.getPageNumber(), 10);
-    Page<BookEntity> books = filterService.searchBooks(query, PageRequest.of(page, size));
-    model.addAttribute("books", books);
+    currentUser.addTo(model);
 
-    // Retrieve and set the image data for each book
-    for (BookEntity book : books.getContent()) {
-      byte[] imageData = book.getImage();
-      if (imageData != null) {
-        String imageDataBase64 = Base64.getEncoder().encodeToString(imageData);
-        book.setImageDataBase64(imageDataBase64);
-      }
-    }
-    model.addAttribute("books", books.getContent());
-    model.addAttribute("currentPage", books.getNumber());
-    model.addAttribute("totalPages", books.getTotalPages());
-    model.addAttribute("totalItems", (int) books.getTotalElements());
+    CatalogQuery catalogQuery = new CatalogQuery(query, category, author,
+        minPrice != null ? minPrice.doubleValue() : null,
+        maxPrice != null ? maxPrice.doubleValue() : null, CatalogSort.fromParam(sort));
+    addSearchResults(model, catalogQuery, page, size, cursor);
+    model.addAttribute("category", category);
+    model.addAttribute("author", author);
     model.addAttribute("query", query);
     model.addAttribute("minPrice", minPrice);
     model.addAttribute("maxPrice", maxPrice);
@@ -118,6 +95,9 @@ public class SearchController {
    * @param minPrice The minimum price filter (optional).
    * @param maxPrice The maximum price filter (optional).
    * @param sort The sorting parameter (optional).
+   * @param category The category filter (optional).
+   * @param author The author filter (optional).
+   * @param cursor Position after the previous page with keyset pagination (optional).
    * @param pageable The Pageable object containing page and size information.
    * @return The name of the Thymeleaf template to render the search results page for admins.
    */
@@ -129,43 +109,20 @@ public class SearchController {
       @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
       @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
       @RequestParam(value = "sort", required = false) String sort,
+      @RequestParam(value = "category", required = false) String category,
+      @RequestParam(value = "author", required = false) String author,
+      @RequestParam(value = "cursor", required = false) String cursor,
       Pageable pageable) {
 
-    String username = SecurityContextHolder.getContext().getAuthentication().getName();
-    Set<Role> role = null;
-    User user = null;
-    if (userService.findByUsername(username) != null) {
-      user = userService.findByUsername(username);
-      role = user.getRoles();
-      model.addAttribute("user", user);
-      if (role.contains(Role.ADMIN)) {
-        model.addAttribute("role", "admin");
-      } else {
-        model.addAttribute("role", "user");
-        model.addAttribute("balance", user.getAccount().getBalance());
-      }
-    } else {
-      model.addAttribute("user","null");
-      model.addAttribute("role", "null");
-    }
-
-    Pageable pageRequest = PageRequest.of(pageable.getPageNumber(), 10);
-    Page<BookEntity> books = filterService.searchBooks(query, PageRequest.of(page, size));
-    //List<BookEntity> books = bookRepository.findAll();
-    model.addAttribute("books", books);
+    currentUser.addTo(model);
 
-    // Retrieve and set the image data for each book
-    for (BookEntity book : books.getContent()) {
-      byte[] imageData = book.getImage();
-      if (imageData != null) {
-        String imageDataBase64 = Base64.getEncoder().encodeToString(imageData);
-        book.setImageDataBase64(imageDataBase64);
-      }
-    }
-    model.addAttribute("books", books.getContent());
-    model.addAttribute("currentPage", books.getNumber());
-    model.addAttribute("totalPages", books.getTotalPages());
-    model.addAttribute("totalItems", (int) books.getTotalElements());
+    CatalogQuery catalogQuery = new CatalogQuery(query, category, author,
+        minPrice != null ? minPrice.doubleValue() : null,
+        maxPrice != null ? maxPrice.doubleValue() : null, CatalogSort.fromParam(sort));
+    addSearchResults(model, catalogQuery, page, size, cursor);
+    model.addAttribute("category", category);
+    model.addAttribute("author", author);
+    model.addAttribute("query", query);
     model.addAttribute("minPrice", minPrice);
     model.addAttribute("maxPrice", maxPrice);
     model.addAttribute("sort", sort);
@@ -173,7 +130,41 @@ public class SearchController {
     return "books";
   }
 
-
-
-
+  /**
+   * Adds the requested page of search results and their facets to the model.
+   *
+   * A plain text search is ranked by the configured search mode. Once it is narrowed down by
+   * category, author or price, or sorted, all criteria are combined into one catalog query.
+   * Catalog queries page with keyset pagination if configured, where the total is only an
+   * estimate.
+   */
+  private void addSearchResults(Model model, CatalogQuery catalogQuery, int page, int size,
+      String cursor) {
+    boolean refined = catalogQuery.category() != null || catalogQuery.author() != null
+        || catalogQuery.hasPriceRange() || catalogQuery.sort() != CatalogSort.ID;
+    if (!refined && !filterService.isKeysetSearch()) {
+      String query = catalogQuery.text() != null ? catalogQuery.text() : "";
+      Page<BookListing> books = filterService.searchBooks(query, PageRequest.of(page, size));
+      model.addAttribute("books", books.getContent());
+      model.addAttribute("currentPage", books.getNumber());
+      model.addAttribute("totalPages", books.getTotalPages());
+      model.addAttribute("totalItems", (int) books.getTotalElements());
+      model.addAttribute("facets", filterService.searchFacets(query));
+      return;
+    }
+    if (filterService.isKeysetPagination()) {
+      KeysetPage<BookListing> books = filterService.findBooksAfter(catalogQuery, cursor, size);
+      model.addAttribute("books", books.content());
+      model.addAttribute("keyset", true);
+      model.addAttribute("nextCursor", books.nextCursor());
+      model.addAttribute("totalItems", books.content().isEmpty() ? 0 : books.totalEstimate());
+    } else {
+      Page<BookListing> books = filterService.findBooks(catalogQuery, PageRequest.of(page, size));
+      model.addAttribute("books", books.getContent());
+      model.addAttribute("currentPage", books.getNumber());
+      model.addAttribute("totalPages", books.getTotalPages());
+      model.addAttribute("totalItems", (int) books.getTotalElements());
+    }
+    model.addAttribute("facets", filterService.catalogFacets(catalogQuery));
+  }
 }
@@ -0,0 +1,40 @@
+package com.project.controller;
+
+import com.project.dto.Suggestion;
+import com.project.service.SuggestionIndex;
+import java.util.List;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+public class SuggestController {
+
+  private final SuggestionIndex suggestionIndex;
+
+  /**
+   * Constructor to initialize the dependencies for the SuggestController.
+   *
+   * @param suggestionIndex In-memory index of titles, authors and categories.
+   */
+  public SuggestController(SuggestionIndex suggestionIndex) {
+    this.suggestionIndex = suggestionIndex;
+  }
+
+  /**
+   * Returns the most popular titles, authors and categories starting with the typed text, for
+   * the autocomplete of the search box. Answered from memory without a database query.
+   *
+   * @param query The text typed so far.
+   * @param limit The maximum number of completions, clamped to 1 to 10.
+   * @return The completions as JSON, most popular first.
+   */
+  @GetMapping("/api/suggest")
+  @ResponseBody
+  public List<Suggestion> suggest(@RequestParam(value = "q", defaultValue = "") String query,
+      @RequestParam(value = "limit", defaultValue = "8") int limit) {
+    int clamped = Math.max(1, Math.min(limit, SuggestionIndex.MAX_SUGGESTIONS));
+    return suggestionIndex.suggest(query, clamped);
+  }
+}
@@ -0,0 +1,14 @@
+package com.project.dto;
+
+import java.time.Instant;
+
+/**
+ * Projection with the metadata of a book cover, used to answer conditional image requests
+ * without loading the image itself.
+ */
+public interface BookImageInfo {
+
+  String getImageHash();
+
+  Instant getImageUpdatedAt();
+}
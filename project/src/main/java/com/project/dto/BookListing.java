@@ -0,0 +1,38 @@
+package com.project.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read model of a book on the catalog pages. The property names match {@code BookEntity}, so
+ * the templates render both the same way.
+ */
+@Getter
+@AllArgsConstructor
+public class BookListing {
+
+  private final Long id;
+  private final String title;
+  private final BigDecimal price;
+  private final String isbn;
+  private final String description;
+  private final String imageHash;
+  private final List<String> author;
+  private final List<String> category;
+
+  public String getImageUrl() {
+    if (imageHash == null) {
+      return "/books/" + id + "/image";
+    }
+    return "/books/" + id + "/image?v=" + imageHash;
+  }
+
+  public String getImageUrl(String variant) {
+    if (imageHash == null) {
+      return "/books/" + id + "/image/" + variant;
+    }
+    return "/books/" + id + "/image/" + variant + "?v=" + imageHash;
+  }
+}
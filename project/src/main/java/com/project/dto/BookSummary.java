@@ -0,0 +1,22 @@
+package com.project.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection with the scalar columns of a book that listing pages show. It leaves out the cover
+ * image and the author and category collections.
+ */
+public interface BookSummary {
+
+  Long getId();
+
+  String getTitle();
+
+  BigDecimal getPrice();
+
+  String getIsbn();
+
+  String getDescription();
+
+  String getImageHash();
+}
@@ -0,0 +1,55 @@
+package com.project.dto;
+
+import com.project.util.CatalogSort;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Position after the last book of a keyset page: the order, the sort key of that book and its
+ * ID. Sent to the browser as an opaque URL-safe string.
+ *
+ * @param sort The order the page was read in.
+ * @param key The sort key (price or title) of the last book, null if it has none.
+ * @param id The ID of the last book.
+ */
+public record CatalogCursor(CatalogSort sort, String key, long id) {
+
+  // Prices are encoded with BigDecimal.toPlainString, anything else was not created by encode()
+  private static final Pattern PRICE_KEY = Pattern.compile("-?\\d{1,20}(\\.\\d{1,20})?");
+
+  public String encode() {
+    // The key goes last, so it may contain the separator
+    String value = sort.name() + "\n" + id + "\n" + (key == null ? "" : "v" + key);
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses a cursor created by {@link #encode()}.
+   *
+   * @return The cursor, or null if the value is empty or not a valid cursor, e.g. a price key that
+   *     is not a number.
+   */
+  public static CatalogCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = value.split("\n", 3);
+      if (parts.length != 3) {
+        return null;
+      }
+      CatalogSort sort = CatalogSort.valueOf(parts[0]);
+      String key = parts[2].isEmpty() ? null : parts[2].substring(1);
+      if (key != null && "price".equals(sort.getProperty())
+          && !PRICE_KEY.matcher(key).matches()) {
+        return null;
+      }
+      return new CatalogCursor(sort, key, Long.parseLong(parts[1]));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.project.dto;
+
+import com.project.util.CatalogSort;
+
+/**
+ * Criteria of a catalog listing. Every criterion is optional and they are combined with AND.
+ *
+ * @param text Search text matched against title, description, ISBN, authors and categories.
+ * @param category A category the books must have, ignoring case.
+ * @param author An author the books must have, ignoring case.
+ * @param minPrice The lowest price, inclusive.
+ * @param maxPrice The highest price, inclusive.
+ * @param sort The order of the books, ID order if null.
+ */
+public record CatalogQuery(String text, String category, String author, Double minPrice,
+    Double maxPrice, CatalogSort sort) {
+
+  public CatalogQuery {
+    text = blankToNull(text);
+    category = blankToNull(category);
+    author = blankToNull(author);
+    sort = sort != null ? sort : CatalogSort.ID;
+  }
+
+  /**
+   * All books in the given order.
+   */
+  public static CatalogQuery all(CatalogSort sort) {
+    return new CatalogQuery(null, null, null, null, null, sort);
+  }
+
+  public boolean hasPriceRange() {
+    return minPrice != null || maxPrice != null;
+  }
+
+  // True if only the price range restricts the books
+  public boolean isPriceRangeOnly() {
+    return text == null && category == null && author == null;
+  }
+
+  public boolean isUnfiltered() {
+    return isPriceRangeOnly() && !hasPriceRange();
+  }
+
+  private static String blankToNull(String value) {
+    return value == null || value.isBlank() ? null : value.trim();
+  }
+}
@@ -0,0 +1,14 @@
+package com.project.dto;
+
+import java.time.Instant;
+
+/**
+ * A cover image together with the metadata needed for HTTP caching.
+ *
+ * @param image The image bytes or the file holding them.
+ * @param hash The SHA-256 of these bytes as hex, used as ETag.
+ * @param updatedAt When the image was stored, used as Last-Modified (may be null).
+ * @param version The hash of the original cover, which page URLs carry as version parameter.
+ */
+public record CoverImage(StoredImage image, String hash, Instant updatedAt, String version) {
+}
@@ -0,0 +1,24 @@
+package com.project.dto;
+
+import java.util.List;
+
+/**
+ * Number of books per category, author and price band within a set of results.
+ *
+ * @param total The number of books in the results.
+ * @param categories The most frequent categories, largest first.
+ * @param authors The most frequent authors, largest first.
+ * @param priceBands All price bands that contain books, cheapest first.
+ */
+public record FacetCounts(int total, List<FacetValue> categories, List<FacetValue> authors,
+    List<PriceBand> priceBands) {
+
+  public record FacetValue(String value, int count) {
+  }
+
+  /**
+   * @param maxPrice The exclusive upper bound, or null for the open-ended top band.
+   */
+  public record PriceBand(String label, double minPrice, Double maxPrice, int count) {
+  }
+}
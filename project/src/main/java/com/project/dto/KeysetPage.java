@@ -0,0 +1,18 @@
+package com.project.dto;
+
+import java.util.List;
+
+/**
+ * A page of a listing that is continued from its last element instead of an offset.
+ *
+ * @param content The elements on this page.
+ * @param nextCursor Opaque position to request the following page with, null on the last page.
+ * @param totalEstimate Number of elements in the whole listing. It is exact or estimated from
+ *     table statistics depending on the configuration, and null if it is not known.
+ */
+public record KeysetPage<T>(List<T> content, String nextCursor, Long totalEstimate) {
+
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+}
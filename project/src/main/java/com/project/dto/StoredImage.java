@@ -0,0 +1,101 @@
+package com.project.dto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Image content as returned by an image storage or the cover cache: bytes read from the
+ * database, a file on disk, or an off-heap buffer of the cache. Files and buffers can be sent to
+ * the client without copying the whole image into the heap.
+ */
+public final class StoredImage {
+
+  private final byte[] data;
+  private final Path file;
+  private final ByteBuffer buffer;
+  private final long length;
+
+  private StoredImage(byte[] data, Path file, ByteBuffer buffer, long length) {
+    this.data = data;
+    this.file = file;
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  public static StoredImage ofBytes(byte[] data) {
+    return new StoredImage(data, null, null, data.length);
+  }
+
+  public static StoredImage ofFile(Path file, long length) {
+    return new StoredImage(null, file, null, length);
+  }
+
+  /**
+   * Wraps a buffer, e.g. a direct buffer of the cover cache, without copying it. The remaining
+   * bytes of the buffer are the image.
+   */
+  public static StoredImage ofBuffer(ByteBuffer buffer) {
+    ByteBuffer view = buffer.asReadOnlyBuffer();
+    return new StoredImage(null, null, view, view.remaining());
+  }
+
+  public boolean isFile() {
+    return file != null;
+  }
+
+  public boolean isBuffer() {
+    return buffer != null;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  /**
+   * Returns a read-only view of the buffer, positioned at the start of the image.
+   */
+  public ByteBuffer getBuffer() {
+    return buffer.duplicate();
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the complete image, reading it from disk if necessary.
+   */
+  public byte[] readAllBytes() throws IOException {
+    if (buffer != null) {
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.duplicate().get(bytes);
+      return bytes;
+    }
+    return file != null ? Files.readAllBytes(file) : data;
+  }
+
+  /**
+   * Returns the first bytes of the image, enough to detect its format.
+   */
+  public byte[] readHead(int count) throws IOException {
+    if (buffer != null) {
+      byte[] head = new byte[Math.min(count, buffer.remaining())];
+      buffer.duplicate().get(head);
+      return head;
+    }
+    if (file == null) {
+      return Arrays.copyOf(data, Math.min(count, data.length));
+    }
+    try (InputStream in = Files.newInputStream(file)) {
+      return in.readNBytes(count);
+    }
+  }
+}
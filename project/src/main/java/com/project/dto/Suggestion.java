@@ -0,0 +1,16 @@
+package com.project.dto;
+
+/**
+ * A completion offered by the search box.
+ *
+ * @param text The title, author name or category as it is written in the catalog.
+ * @param type Which kind of phrase the text is.
+ */
+public record Suggestion(String text, Type type) {
+
+  public enum Type {
+    TITLE,
+    AUTHOR,
+    CATEGORY
+  }
+}
@@ -0,0 +1,26 @@
+package com.project.dto;
+
+import com.project.util.Role;
+import java.util.Set;
+
+/**
+ * The identity of a user as needed to authenticate and to check roles, without the account,
+ * basket and orders.
+ *
+ * @param id The id of the user.
+ * @param username The login name.
+ * @param passwordHash The encoded password.
+ * @param roles The roles of the user.
+ * @param accountId The id of the account, or null if the user has none.
+ */
+public record UserPrincipal(Long id, String username, String passwordHash, Set<Role> roles,
+    Long accountId) {
+
+  public UserPrincipal {
+    roles = Set.copyOf(roles);
+  }
+
+  public boolean hasRole(Role role) {
+    return roles.contains(role);
+  }
+}
@@ -0,0 +1,29 @@
+package com.project.entity;
+
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An author of books. Names are unique ignoring case, the slug names the author in the URL of
+ * the browse page (see V5 migration for the constraints).
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  private Long id;
+
+  private String name;
+
+  private String slug;
+}
@@ -11,6 +11,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.Version;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -72,6 +73,14 @@ public class Basket {
 
   private BigDecimal totalAmount;
 
+  // Concurrent changes of the total fail on commit instead of overwriting each other
+  @Version
+  private Long version;
+
+  public Long getVersion() {
+    return version;
+  }
+
 
 //  @OneToOne
 //  @JoinColumn(name = "order_id")
@@ -11,6 +11,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -43,6 +44,9 @@ public class BasketDetails {
   @Column(name = "updated_at", nullable = false)
   private LocalDateTime updatedAt;
 
+  @Version
+  private Long version;
+
   @PrePersist
   @PreUpdate
   public void updateTimestamp() {
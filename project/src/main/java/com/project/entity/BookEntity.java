@@ -1,22 +1,28 @@
 package com.project.entity;
 
 import jakarta.persistence.Basic;
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
 import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Transient;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 
 @Entity
@@ -30,8 +36,12 @@ public class BookEntity {
   @Column(name ="book_id")
   private Long id;
 
-  @ElementCollection
-  private List<String> author = new ArrayList<>();
+  @ManyToMany
+  @JoinTable(name = "book_author", joinColumns = @JoinColumn(name = "book_id"),
+      inverseJoinColumns = @JoinColumn(name = "author_id"))
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private List<AuthorEntity> authors = new ArrayList<>();
 
   private String title;
 
@@ -39,11 +49,12 @@ public class BookEntity {
 
 // private String category;
 
-//  @OneToMany
-//  @JoinColumn(name= "book_id")
-@ElementCollection
-private List<String> category = new ArrayList<>();
- //private List<String> category;
+  @ManyToMany
+  @JoinTable(name = "book_category", joinColumns = @JoinColumn(name = "book_id"),
+      inverseJoinColumns = @JoinColumn(name = "category_id"))
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private List<CategoryEntity> categories = new ArrayList<>();
 
 
   private String description;
@@ -62,13 +73,58 @@ private List<String> category = new ArrayList<>();
     this.id = id;
   }
 
+  /**
+   * Returns the names of the authors, as shown on the book pages.
+   */
+  public List<String> getAuthor() {
+    return authors.stream().map(AuthorEntity::getName).toList();
+  }
+
+  /**
+   * Returns the names of the categories, as shown on the book pages.
+   */
+  public List<String> getCategory() {
+    return categories.stream().map(CategoryEntity::getName).toList();
+  }
+
   //private String image; // Store image path or URL if needed
 
   @Lob// Annotate as a large object
   @Column(name = "image", columnDefinition = "oid")
   private byte[] image; // Store the image as a byte array
 
+  @Column(name = "image_hash", length = 64)
+  private String imageHash; // SHA-256 of the image bytes, used as ETag and URL version
+
+  private Instant imageUpdatedAt;
+
+  // Resized copies of the image (list, basket and detail size)
+  @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true)
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private List<BookImageEntity> images = new ArrayList<>();
+
+  /**
+   * Returns the public, cacheable URL of the cover image. The content hash is appended as a
+   * version parameter so that browsers can cache the image until it is replaced.
+   */
+  @Transient
+  public String getImageUrl() {
+    if (imageHash == null) {
+      return "/books/" + id + "/image";
+    }
+    return "/books/" + id + "/image?v=" + imageHash;
+  }
 
-  private String imageDataBase64;
+  /**
+   * Returns the URL of a resized cover, e.g. "list", "basket" or "detail". The derivatives are
+   * generated from the original, so they share its version parameter.
+   */
+  public String getImageUrl(String variant) {
+    if (imageHash == null) {
+      return "/books/" + id + "/image/" + variant;
+    }
+    return "/books/" + id + "/image/" + variant + "?v=" + imageHash;
+  }
 
 }
@@ -0,0 +1,58 @@
+package com.project.entity;
+
+import com.project.util.ImageVariant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A resized, compressed copy of a book cover, stored next to the original image.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"book_id", "variant"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class BookImageEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "book_id", nullable = false)
+  private BookEntity book;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private ImageVariant variant;
+
+  private String contentType;
+
+  private int width;
+
+  private int height;
+
+  @Column(name = "image_hash", length = 64)
+  private String imageHash;
+
+  private Instant createdAt;
+
+  @Lob
+  @Column(name = "image", columnDefinition = "oid")
+  private byte[] image;
+}
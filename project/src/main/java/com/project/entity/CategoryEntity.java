@@ -5,11 +5,14 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.ManyToOne;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * A category books are listed under. Names are unique ignoring case, the slug names the
+ * category in the URL of its browse page (see V5 migration for the constraints).
+ */
 @Entity
 @Data
 @AllArgsConstructor
@@ -20,8 +23,7 @@ public class CategoryEntity {
   @GeneratedValue(strategy = GenerationType.AUTO)
   private Long id;
 
-  @ManyToOne
-  private BookEntity book;
-
   private String name;
+
+  private String slug;
 }
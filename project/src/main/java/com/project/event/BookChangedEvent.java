@@ -0,0 +1,17 @@
+package com.project.event;
+
+/**
+ * Published after a book has been added, edited or deleted, so that caches and in-memory
+ * indexes of the catalog can be updated.
+ *
+ * @param bookId The ID of the changed book.
+ * @param type What happened to the book.
+ */
+public record BookChangedEvent(Long bookId, Type type) {
+
+  public enum Type {
+    CREATED,
+    UPDATED,
+    DELETED
+  }
+}
@@ -0,0 +1,12 @@
+package com.project.event;
+
+import java.util.List;
+
+/**
+ * Published after a batch of books has been written by the bulk import. Listeners update their
+ * caches and indexes once per batch instead of once per book.
+ *
+ * @param bookIds The IDs of the new books.
+ */
+public record BooksImportedEvent(List<Long> bookIds) {
+}
@@ -0,0 +1,26 @@
+package com.project.repository;
+
+
+import com.project.entity.AuthorEntity;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AuthorRepository extends JpaRepository<AuthorEntity, Long> {
+
+  Optional<AuthorEntity> findBySlug(String slug);
+
+  boolean existsBySlug(String slug);
+
+  // Matches the unique index on lower(name)
+  @Query("SELECT a FROM AuthorEntity a WHERE lower(a.name) = lower(:name)")
+  Optional<AuthorEntity> findByNameIgnoreCase(@Param("name") String name);
+
+  // Number of books per author ID
+  @Query("SELECT a.id, COUNT(b) FROM BookEntity b JOIN b.authors a GROUP BY a.id")
+  List<Object[]> countBooksByAuthor();
+}
@@ -1,6 +1,7 @@
 package com.project.repository;
 
 import com.project.entity.BasketDetails;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -24,6 +25,25 @@ public interface BasketDetailsRepository extends JpaRepository<BasketDetails, Lo
       @Param("basketId") Long basketId);
 
 
+  @Query("SELECT MIN(bd.updatedAt) FROM BasketDetails bd WHERE bd.basket.id = :basketId")
+  LocalDateTime findOldestUpdateByBasketId(@Param("basketId") Long basketId);
+
+  @Query("SELECT COALESCE(SUM(bd.book.price * bd.quantity), 0) FROM BasketDetails bd "
+      + "WHERE bd.basket.id = :basketId")
+  BigDecimal sumTotalByBasketId(@Param("basketId") Long basketId);
+
+  // Oldest line per basket, to restore the expiry deadlines after a restart
+  @Query("SELECT bd.basket.id, MIN(bd.updatedAt) FROM BasketDetails bd GROUP BY bd.basket.id")
+  List<Object[]> findOldestUpdatePerBasket();
+
+  @Query("SELECT bd FROM BasketDetails bd WHERE bd.basket.id = :basketId AND bd.book.id = :bookId")
+  BasketDetails findByBasketIdAndBookId(@Param("basketId") Long basketId,
+      @Param("bookId") Long bookId);
+
+  @Modifying
+  @Query("DELETE FROM BasketDetails bd WHERE bd.id = :id AND bd.version = :version")
+  int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
   @Modifying
   @Transactional
   @Query("DELETE FROM BasketDetails bd WHERE bd.id = :id")
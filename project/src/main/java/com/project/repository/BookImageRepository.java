@@ -0,0 +1,46 @@
+package com.project.repository;
+
+import com.project.dto.BookImageInfo;
+import com.project.entity.BookImageEntity;
+import com.project.util.ImageVariant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface BookImageRepository extends JpaRepository<BookImageEntity, Long> {
+
+  Optional<BookImageEntity> findByBookIdAndVariant(Long bookId, ImageVariant variant);
+
+  // Derivative metadata without loading the image itself
+  @Query("SELECT i.imageHash AS imageHash, i.createdAt AS imageUpdatedAt FROM BookImageEntity i "
+      + "WHERE i.book.id = :bookId AND i.variant = :variant")
+  Optional<BookImageInfo> findImageInfoByBookIdAndVariant(@Param("bookId") Long bookId,
+      @Param("variant") ImageVariant variant);
+
+  // Only the derivative bytes, without loading the owning book
+  @Query("SELECT i.image FROM BookImageEntity i WHERE i.book.id = :bookId AND i.variant = :variant")
+  Optional<byte[]> findImageByBookIdAndVariant(@Param("bookId") Long bookId,
+      @Param("variant") ImageVariant variant);
+
+  long countByBookId(Long bookId);
+
+  // Derivatives whose bytes are still kept as large object in the database
+  @Query("SELECT i.id FROM BookImageEntity i WHERE i.image IS NOT NULL ORDER BY i.id")
+  List<Long> findIdsWithImageInDatabase();
+
+  @Query("SELECT i.image FROM BookImageEntity i WHERE i.id = :id")
+  Optional<byte[]> findImageById(@Param("id") Long id);
+
+  // Records the hash of a derivative moved to the image storage and frees the large object
+  @Transactional
+  @Modifying
+  @Query(value = "UPDATE book_image_entity SET image_hash = :hash, image = NULL "
+      + "WHERE id = :id AND lo_unlink(image) = 1", nativeQuery = true)
+  int moveImageOutOfDatabase(@Param("id") Long id, @Param("hash") String hash);
+}
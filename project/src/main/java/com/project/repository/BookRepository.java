@@ -1,22 +1,27 @@
 package com.project.repository;
 
+import com.project.dto.BookImageInfo;
+import com.project.dto.BookSummary;
 import com.project.entity.BookEntity;
-import com.project.entity.CategoryEntity;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface BookRepository extends JpaRepository<BookEntity, Long> {
-
-  // Search books by title or author
-  Page<BookEntity> findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCaseOrCategoryContainingIgnoreCaseOrDescriptionContainsIgnoreCaseOrIsbn(
-      String query, String author, String category, String description, String isbn, Pageable pageable);
+public interface BookRepository extends JpaRepository<BookEntity, Long>,
+    JpaSpecificationExecutor<BookEntity> {
 
   // Filter by price range with pagination
   Page<BookEntity> findByPriceBetween(Double minPrice, Double maxPrice, Pageable pageable);
@@ -36,16 +41,94 @@ public interface BookRepository extends JpaRepository<BookEntity, Long> {
 //  // A simple findAll method that works with Pageable (handles dynamic sorting)
 //  Page<BookEntity> findAll(Pageable pageable);
 
-//// Custom query to filter books based on category
-//@Query("SELECT b FROM BookEntity b JOIN b.category c WHERE c = :category")
-//   Page<BookEntity> findByCategoryContainingIgnoreCase(@Param("category") String category, Pageable pageable);
-
-  List<BookEntity> findAllByCategoryContainsIgnoreCase(String category, Pageable pageable);
+  // Cover image metadata without loading the image itself
+  @Query("SELECT b.imageHash AS imageHash, b.imageUpdatedAt AS imageUpdatedAt FROM BookEntity b WHERE b.id = :id")
+  Optional<BookImageInfo> findImageInfoById(@Param("id") Long id);
+
+  // Books with a cover that is missing at least one resized copy
+  @Query("SELECT b.id FROM BookEntity b WHERE (b.imageHash IS NOT NULL OR b.image IS NOT NULL) "
+      + "AND (SELECT COUNT(i) FROM BookImageEntity i WHERE i.book = b) < :variantCount "
+      + "ORDER BY b.id")
+  List<Long> findIdsWithMissingImageDerivatives(@Param("variantCount") long variantCount);
+
+  @Modifying
+  @Query("UPDATE BookEntity b SET b.imageHash = :hash, b.imageUpdatedAt = :updatedAt "
+      + "WHERE b.id = :id AND b.imageHash IS NULL")
+  void updateMissingImageHash(@Param("id") Long id, @Param("hash") String hash,
+      @Param("updatedAt") Instant updatedAt);
+
+  // Only the cover image bytes, without authors, categories and other columns
+  @Query("SELECT b.image FROM BookEntity b WHERE b.id = :id")
+  Optional<byte[]> findImageById(@Param("id") Long id);
+
+  // Books whose cover is still kept as large object in the database
+  @Query("SELECT b.id FROM BookEntity b WHERE b.image IS NOT NULL ORDER BY b.id")
+  List<Long> findIdsWithImageInDatabase();
+
+  // Records the hash of a cover moved to the image storage and frees the large object
+  @Transactional
+  @Modifying
+  @Query(value = "UPDATE book_entity SET image_hash = :hash, "
+      + "image_updated_at = COALESCE(image_updated_at, now()), image = NULL "
+      + "WHERE book_id = :id AND lo_unlink(image) = 1", nativeQuery = true)
+  int moveImageOutOfDatabase(@Param("id") Long id, @Param("hash") String hash);
+
+  // Listing pages: scalar columns only, authors and categories come from findListingAttributes
+  String LISTING_SELECT = "SELECT b.id AS id, b.title AS title, b.price AS price, "
+      + "b.isbn AS isbn, b.description AS description, b.imageHash AS imageHash FROM BookEntity b";
+
+  @Query(value = LISTING_SELECT,
+      countQuery = "SELECT COUNT(b) FROM BookEntity b")
+  Page<BookSummary> findListingPage(Pageable pageable);
+
+  // Same matching as the derived search query, without joining the collections into every row.
+  // The ISBN is compared without hyphens and spaces, :isbn is the query after IsbnUtils.normalize.
+  String LISTING_SEARCH = "lower(b.title) LIKE lower(concat('%', :query, '%')) "
+      + "OR lower(b.description) LIKE lower(concat('%', :query, '%')) "
+      + "OR regexp_replace(upper(b.isbn), '[[:space:]-]', '', 'g') = :isbn "
+      + "OR EXISTS (SELECT 1 FROM b.authors a WHERE lower(a.name) LIKE lower(concat('%', :query, '%'))) "
+      + "OR EXISTS (SELECT 1 FROM b.categories c WHERE lower(c.name) LIKE lower(concat('%', :query, '%')))";
+
+  @Query(value = LISTING_SELECT + " WHERE " + LISTING_SEARCH,
+      countQuery = "SELECT COUNT(b) FROM BookEntity b WHERE " + LISTING_SEARCH)
+  Page<BookSummary> searchListingPage(@Param("query") String query, @Param("isbn") String isbn,
+      Pageable pageable);
+
+  // IDs of all matching books, for counting facets
+  @Query("SELECT b.id FROM BookEntity b WHERE " + LISTING_SEARCH)
+  List<Long> searchIds(@Param("query") String query, @Param("isbn") String isbn);
+
+  // ISBN without hyphens and spaces, as indexed by the V11 migration; compared with the search
+  // text normalized by IsbnUtils.normalize
+  String NORMALIZED_ISBN = "upper(regexp_replace(b.isbn, '[[:space:]-]', '', 'g'))";
+
+  // Full-text search over the weighted search_vector column (see V2 migration), best match first.
+  // An exact ISBN still matches, as in the LIKE search. Both conditions have an index, so
+  // PostgreSQL can combine them with a BitmapOr instead of scanning the table.
+  String FULL_TEXT_SEARCH = "FROM book_entity b, websearch_to_tsquery('english', :query) q "
+      + "WHERE b.search_vector @@ q OR " + NORMALIZED_ISBN + " = :isbn";
+
+  @Query(value = "SELECT b.book_id AS \"id\", b.title AS \"title\", b.price AS \"price\", "
+      + "b.isbn AS \"isbn\", b.description AS \"description\", b.image_hash AS \"imageHash\" "
+      + FULL_TEXT_SEARCH + " ORDER BY ts_rank(b.search_vector, q) DESC, b.book_id",
+      countQuery = "SELECT COUNT(*) " + FULL_TEXT_SEARCH,
+      nativeQuery = true)
+  Page<BookSummary> searchListingPageFullText(@Param("query") String query,
+      @Param("isbn") String isbn, Pageable pageable);
+
+  @Query(value = "SELECT b.book_id " + FULL_TEXT_SEARCH, nativeQuery = true)
+  List<Long> searchIdsFullText(@Param("query") String query, @Param("isbn") String isbn);
+
+  @Query(LISTING_SELECT + " WHERE b.id IN :ids")
+  List<BookSummary> findListingByIds(@Param("ids") Collection<Long> ids);
+
+  // Walks the whole catalog in id order, for building in-memory indexes
+  @Query(LISTING_SELECT + " WHERE b.id > :afterId ORDER BY b.id")
+  List<BookSummary> findListingBatch(@Param("afterId") Long afterId, Limit limit);
+
+  // Authors ("A") and categories ("C") of a page of books in one statement
+  @Query("SELECT b.id, 'A', a.name FROM BookEntity b JOIN b.authors a WHERE b.id IN :ids "
+      + "UNION ALL "
+      + "SELECT b.id, 'C', c.name FROM BookEntity b JOIN b.categories c WHERE b.id IN :ids")
+  List<Object[]> findListingAttributes(@Param("ids") Collection<Long> ids);
 }
-
-
-
-
-
-
-
@@ -0,0 +1,83 @@
+package com.project.repository;
+
+import com.project.dto.CatalogQuery;
+import com.project.entity.BookEntity;
+import com.project.util.IsbnUtils;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import java.math.BigDecimal;
+import java.util.function.Function;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Building blocks of catalog queries. Each criterion of a {@link CatalogQuery} becomes one
+ * predicate, and all of them end up in the WHERE clause of a single statement. Authors and
+ * categories are matched by name with EXISTS subqueries, so a book never appears twice.
+ */
+public final class BookSpecifications {
+
+  private BookSpecifications() {
+  }
+
+  /**
+   * All criteria of the query combined with AND.
+   */
+  public static Specification<BookEntity> matching(CatalogQuery query) {
+    return Specification.allOf(
+        query.text() != null ? textMatches(query.text()) : null,
+        query.category() != null ? hasCategory(query.category()) : null,
+        query.author() != null ? hasAuthor(query.author()) : null,
+        query.minPrice() != null ? priceAtLeast(query.minPrice()) : null,
+        query.maxPrice() != null ? priceAtMost(query.maxPrice()) : null);
+  }
+
+  // Same matching as BookRepository.LISTING_SEARCH
+  public static Specification<BookEntity> textMatches(String text) {
+    String pattern = "%" + text.toLowerCase() + "%";
+    return (book, query, cb) -> cb.or(
+        cb.like(cb.lower(book.get("title")), pattern),
+        cb.like(cb.lower(book.get("description")), pattern),
+        cb.equal(normalizedIsbn(book, cb), IsbnUtils.normalize(text)),
+        cb.exists(anyOf(book, query, cb, "authors", name -> cb.like(cb.lower(name), pattern))),
+        cb.exists(anyOf(book, query, cb, "categories", name -> cb.like(cb.lower(name), pattern))));
+  }
+
+  // Same normalization as IsbnUtils.normalize and BookRepository.LISTING_SEARCH
+  private static Expression<String> normalizedIsbn(Root<BookEntity> book, CriteriaBuilder cb) {
+    return cb.function("regexp_replace", String.class, cb.upper(book.get("isbn")),
+        cb.literal("[[:space:]-]"), cb.literal(""), cb.literal("g"));
+  }
+
+  public static Specification<BookEntity> hasCategory(String category) {
+    return (book, query, cb) -> cb.exists(anyOf(book, query, cb, "categories",
+        name -> cb.equal(cb.lower(name), category.toLowerCase())));
+  }
+
+  public static Specification<BookEntity> hasAuthor(String author) {
+    return (book, query, cb) -> cb.exists(anyOf(book, query, cb, "authors",
+        name -> cb.equal(cb.lower(name), author.toLowerCase())));
+  }
+
+  public static Specification<BookEntity> priceAtLeast(Double minPrice) {
+    return (book, query, cb) -> cb.greaterThanOrEqualTo(book.get("price"),
+        BigDecimal.valueOf(minPrice));
+  }
+
+  public static Specification<BookEntity> priceAtMost(Double maxPrice) {
+    return (book, query, cb) -> cb.lessThanOrEqualTo(book.get("price"),
+        BigDecimal.valueOf(maxPrice));
+  }
+
+  // Correlated subquery over the authors or categories of the book, tested by name
+  private static Subquery<Integer> anyOf(Root<BookEntity> book, CriteriaQuery<?> query,
+      CriteriaBuilder cb, String association, Function<Expression<String>, Predicate> condition) {
+    Subquery<Integer> subquery = query.subquery(Integer.class);
+    Root<BookEntity> correlated = subquery.correlate(book);
+    Expression<String> name = correlated.join(association).get("name");
+    return subquery.select(cb.literal(1)).where(condition.apply(name));
+  }
+}
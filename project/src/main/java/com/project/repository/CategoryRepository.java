@@ -2,10 +2,25 @@ package com.project.repository;
 
 
 import com.project.entity.CategoryEntity;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface CategoryRepository extends JpaRepository<CategoryEntity, Integer> {
+public interface CategoryRepository extends JpaRepository<CategoryEntity, Long> {
 
+  Optional<CategoryEntity> findBySlug(String slug);
+
+  boolean existsBySlug(String slug);
+
+  // Matches the unique index on lower(name)
+  @Query("SELECT c FROM CategoryEntity c WHERE lower(c.name) = lower(:name)")
+  Optional<CategoryEntity> findByNameIgnoreCase(@Param("name") String name);
+
+  // Number of books per category ID
+  @Query("SELECT c.id, COUNT(b) FROM BookEntity b JOIN b.categories c GROUP BY c.id")
+  List<Object[]> countBooksByCategory();
 }
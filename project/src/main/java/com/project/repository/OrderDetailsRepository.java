@@ -7,6 +7,7 @@ import com.project.entity.OrderEntity;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,5 +19,9 @@ public interface OrderDetailsRepository extends JpaRepository<OrderDetailsEntity
   @Transactional
   List<OrderDetailsEntity> findByAccountEntity(AccountEntity account);
 
+  // Copies sold per book ID
+  @Query("SELECT od.book.id, SUM(od.quantity) FROM OrderDetailsEntity od GROUP BY od.book.id")
+  List<Object[]> sumQuantityByBook();
+
 
 }
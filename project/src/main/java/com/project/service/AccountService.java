@@ -13,16 +13,20 @@ public class AccountService {
 
   private final AccountRepository accountRepository;
   private final UserRepository userRepository;
+  private final UserPrincipalCache userPrincipalCache;
 
   /**
    * Constructor for AccountService class.
    *
    * @param accountRepository Repository to handle CRUD operations for Account entities.
    * @param userRepository Repository to handle CRUD operations for User entities.
+   * @param userPrincipalCache Cache of the identities of recently active users.
    */
-  public AccountService(AccountRepository accountRepository, UserRepository userRepository) {
+  public AccountService(AccountRepository accountRepository, UserRepository userRepository,
+      UserPrincipalCache userPrincipalCache) {
     this.accountRepository = accountRepository;
     this.userRepository = userRepository;
+    this.userPrincipalCache = userPrincipalCache;
   }
 
   /**
@@ -42,7 +46,19 @@ public class AccountService {
    * @return The updated AccountEntity after being saved.
    */
   public AccountEntity updateAccount(AccountEntity account) {
-    return accountRepository.save(account); // Save and return the updated account entity
+    AccountEntity saved = accountRepository.save(account); // Save the updated account entity
+    userPrincipalCache.invalidate(account.getUsername());
+    return saved;
+  }
+
+  /**
+   * Fetches an account by its id.
+   *
+   * @param id The id of the account.
+   * @return The AccountEntity, or null if there is none.
+   */
+  public AccountEntity getAccountById(Long id) {
+    return accountRepository.findById(id).orElse(null);
   }
 
   /**
@@ -1,16 +1,15 @@
 package com.project.service;
 
-import com.project.entity.AccountEntity;
 import com.project.entity.Basket;
-import com.project.entity.BasketDetails;
 import com.project.repository.BasketDetailsRepository;
 import com.project.repository.BasketRepository;
-import jakarta.persistence.EntityManager;
-import java.math.BigDecimal;
+import java.sql.Array;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,35 +22,64 @@ public class BasketDetailsCleanupService {
 
   @Autowired BasketRepository basketRepository;
 
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+
+  /**
+   * Removes the lines of a basket that were not updated within the expiration time, and
+   * recomputes the total of the remaining lines.
+   *
+   * @param basketId The basket.
+   * @param expirationTime How long a line is kept after its last update.
+   * @return When the oldest remaining line was last updated, or null if the basket is empty.
+   */
+  public LocalDateTime cleanupBasketDetails(Long basketId, Duration expirationTime) {
+    LocalDateTime expirationThreshold = LocalDateTime.now().minus(expirationTime);
+    basketDetailsRepository.deleteExpiredItems(expirationThreshold, basketId);
 
-  public boolean cleanupBasketDetails(Long basketId, Duration expirationTime) {
-
-    List<BasketDetails> basketDetails = basketDetailsRepository.findByBasketId(basketId);
-
-    System.out.println("BasketDetailsList: " + basketDetails);
-
-    if (basketDetails.isEmpty()) {
-      return true; // Stop scheduler if no items exist for this basket
+    Basket basket = basketRepository.findById(basketId).orElse(null);
+    if (basket != null) {
+      basket.setTotalAmount(basketDetailsRepository.sumTotalByBasketId(basketId));
     }
+    return basketDetailsRepository.findOldestUpdateByBasketId(basketId);
+  }
 
-    LocalDateTime expirationThreshold = LocalDateTime.now().minus(expirationTime);
-    List<BasketDetails> expiredItems = basketDetails.stream()
-        .filter(item -> item.getUpdatedAt().isBefore(expirationThreshold))
-        .toList();
-
-    System.out.println("expired items: " + expiredItems);
+  /**
+   * Deletes up to batchSize lines of any basket that were last updated before the threshold,
+   * oldest first, and recomputes the totals of the baskets they belonged to in one statement.
+   * Lines locked by a concurrent basket change are skipped until the next batch or sweep.
+   *
+   * @param expirationThreshold Lines updated before this time are deleted.
+   * @param batchSize The maximum number of lines to delete.
+   * @return The number of deleted lines.
+   */
+  public int sweepExpiredItems(LocalDateTime expirationThreshold, int batchSize) {
+    List<Long> basketIds = jdbcTemplate.queryForList(
+        "DELETE FROM basket_details WHERE id IN (SELECT id FROM basket_details "
+            + "WHERE updated_at < ? ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING basket_basket_id",
+        Long.class, expirationThreshold, batchSize);
+    recomputeTotals(basketIds.stream().filter(Objects::nonNull).distinct().toArray(Long[]::new));
+    return basketIds.size();
+  }
 
-    if (!expiredItems.isEmpty()) {
-      basketDetailsRepository.deleteExpiredItems(expirationThreshold, basketId);
-      Basket basket = basketRepository.findById(basketId).orElse(null);
-      basket.setTotalAmount(BigDecimal.valueOf(0));
-     //basketRepository.save(basket);
+  /**
+   * Sets the totals of baskets to the sum of their lines in one statement.
+   *
+   * @param basketIds The baskets, may be empty.
+   */
+  public void recomputeTotals(Long[] basketIds) {
+    if (basketIds.length == 0) {
+      return;
     }
-
-    // Check if all items are removed
-    return basketDetailsRepository.findByBasketId(basketId).isEmpty();
+    jdbcTemplate.update("UPDATE basket b SET total_amount = COALESCE((SELECT SUM(bk.price * "
+            + "bd.quantity) FROM basket_details bd JOIN book_entity bk ON bk.book_id = "
+            + "bd.book_book_id WHERE bd.basket_basket_id = b.basket_id), 0), "
+            + "version = b.version + 1 WHERE b.basket_id = ANY(?)",
+        ps -> {
+          Array array = ps.getConnection().createArrayOf("bigint", basketIds);
+          ps.setArray(1, array);
+        });
   }
 }
-
-
-
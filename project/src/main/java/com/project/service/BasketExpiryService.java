@@ -0,0 +1,211 @@
+package com.project.service;
+
+import com.project.repository.BasketDetailsRepository;
+import com.project.util.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Removes basket lines that were not touched for the expiration time, in one of two modes.
+ *
+ * "wheel": one thread drives a {@link HierarchicalTimingWheel} holding a deadline per basket
+ * with items, the deadline of its oldest line. Touching a basket only schedules it if it has no
+ * earlier deadline, which costs no database access, so a line added to an older one does not
+ * postpone the expiry of the older line. When a deadline passes, only the lines of that basket
+ * that are actually due are deleted, and the basket is scheduled again for its oldest remaining
+ * line. A deadline whose line was updated meanwhile deletes nothing and only reschedules, so a
+ * basket costs at most one cleanup per expiration time. The deadlines of baskets with items are
+ * restored from the database at startup.
+ *
+ * "sweep": the thread periodically deletes the expired lines of all baskets in bounded batches,
+ * found through the index on updated_at, and recomputes the affected totals per batch. Nothing
+ * is kept in memory, so lines written by other instances expire as well. Lines expire up to one
+ * sweep interval late.
+ */
+@Service
+public class BasketExpiryService {
+
+  private static final Logger logger = LoggerFactory.getLogger(BasketExpiryService.class);
+
+  private final BasketDetailsCleanupService cleanupService;
+  private final BasketDetailsRepository basketDetailsRepository;
+  private final Duration expiration;
+  private final boolean sweepMode;
+  private final long tickMillis;
+  private final int sweepBatchSize;
+  private final long sweepIntervalSeconds;
+  private final HierarchicalTimingWheel wheel;
+  private final AtomicLong expiredBaskets = new AtomicLong();
+  private final AtomicLong sweeps = new AtomicLong();
+  private final AtomicLong rowsExpired = new AtomicLong();
+  private final AtomicLong totalSweepMillis = new AtomicLong();
+  private volatile long lastSweepRows;
+  private volatile long lastSweepMillis;
+  private ScheduledExecutorService ticker;
+
+  public BasketExpiryService(BasketDetailsCleanupService cleanupService,
+      BasketDetailsRepository basketDetailsRepository,
+      @Value("${bookstore.basket.expiration-minutes:5}") long expirationMinutes,
+      @Value("${bookstore.basket.expiry-mode:wheel}") String mode,
+      @Value("${bookstore.basket.expiry-tick-millis:1000}") long tickMillis,
+      @Value("${bookstore.basket.sweep-batch-size:1000}") int sweepBatchSize,
+      @Value("${bookstore.basket.sweep-interval-seconds:30}") long sweepIntervalSeconds) {
+    this.cleanupService = cleanupService;
+    this.basketDetailsRepository = basketDetailsRepository;
+    this.expiration = Duration.ofMinutes(expirationMinutes);
+    this.sweepMode = "sweep".equalsIgnoreCase(mode);
+    this.tickMillis = tickMillis;
+    this.sweepBatchSize = sweepBatchSize;
+    this.sweepIntervalSeconds = sweepIntervalSeconds;
+    // 64 slots on 4 levels: one tick precision, deadlines up to 2^24 ticks ahead
+    this.wheel = new HierarchicalTimingWheel(tickMillis, 6, 4, System.currentTimeMillis());
+  }
+
+  @PostConstruct
+  public void start() {
+    ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "basket-expiry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (sweepMode) {
+      ticker.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds,
+          TimeUnit.SECONDS);
+      return;
+    }
+    for (Object[] row : basketDetailsRepository.findOldestUpdatePerBasket()) {
+      schedule((Long) row[0], (LocalDateTime) row[1]);
+    }
+    ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+  }
+
+  public Duration getExpiration() {
+    return expiration;
+  }
+
+  /**
+   * Schedules the expiry of a basket whose lines were just added or updated. An earlier deadline
+   * of the basket is kept, it belongs to an older line that must not expire late.
+   *
+   * @param basketId The basket.
+   */
+  public void touch(Long basketId) {
+    if (sweepMode) {
+      return; // The sweep only looks at updated_at
+    }
+    synchronized (wheel) {
+      wheel.scheduleNoLaterThan(basketId, System.currentTimeMillis() + expiration.toMillis());
+    }
+  }
+
+  /**
+   * Returns the mode, the number of baskets waiting in the wheel, and the expired lines and
+   * duration of the sweeps.
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("mode", sweepMode ? "sweep" : "wheel");
+    result.put("expirationMinutes", expiration.toMinutes());
+    if (sweepMode) {
+      result.put("sweeps", sweeps.get());
+      result.put("rowsExpired", rowsExpired.get());
+      result.put("lastSweepRows", lastSweepRows);
+      result.put("lastSweepMillis", lastSweepMillis);
+      result.put("totalSweepMillis", totalSweepMillis.get());
+    } else {
+      synchronized (wheel) {
+        result.put("scheduledBaskets", wheel.size());
+      }
+      result.put("expiredBaskets", expiredBaskets.get());
+    }
+    return result;
+  }
+
+  private void schedule(Long basketId, LocalDateTime oldestUpdate) {
+    long updatedMillis = oldestUpdate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    synchronized (wheel) {
+      wheel.schedule(basketId, updatedMillis + expiration.toMillis());
+    }
+  }
+
+  private void tick() {
+    DueIds due = new DueIds();
+    synchronized (wheel) {
+      wheel.advance(System.currentTimeMillis(), due::add);
+    }
+    // The database work runs without holding the wheel, so touches are never blocked
+    for (int i = 0; i < due.count; i++) {
+      long basketId = due.ids[i];
+      expiredBaskets.incrementAndGet();
+      try {
+        LocalDateTime oldestRemaining = cleanupService.cleanupBasketDetails(basketId, expiration);
+        if (oldestRemaining != null) {
+          schedule(basketId, oldestRemaining);
+        }
+      } catch (RuntimeException e) {
+        // Try again later rather than lose the basket
+        logger.warn("Could not expire basket {}", basketId, e);
+        touch(basketId);
+      }
+    }
+  }
+
+  private void sweep() {
+    long start = System.nanoTime();
+    LocalDateTime threshold = LocalDateTime.now().minus(expiration);
+    long rows = 0;
+    try {
+      // One transaction per batch keeps locks and undo short; a short batch means all are done
+      int deleted;
+      do {
+        deleted = cleanupService.sweepExpiredItems(threshold, sweepBatchSize);
+        rows += deleted;
+      } while (deleted == sweepBatchSize);
+    } catch (RuntimeException e) {
+      logger.warn("Basket expiry sweep failed after {} lines", rows, e);
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    sweeps.incrementAndGet();
+    rowsExpired.addAndGet(rows);
+    totalSweepMillis.addAndGet(millis);
+    lastSweepRows = rows;
+    lastSweepMillis = millis;
+    if (rows > 0) {
+      logger.info("Expired {} basket lines in {} ms", rows, millis);
+    }
+  }
+
+  private static final class DueIds {
+
+    private long[] ids = new long[16];
+    private int count;
+
+    void add(long id) {
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, count * 2);
+      }
+      ids[count++] = id;
+    }
+  }
+}
@@ -1,37 +1,62 @@
 package com.project.service;
 
-import com.project.config.DynamicSchedulingConfig;
 import com.project.entity.AccountEntity;
 import com.project.entity.Basket;
 import com.project.entity.BasketDetails;
-import com.project.entity.User;
+import com.project.entity.BookEntity;
 import com.project.repository.BasketDetailsRepository;
 import com.project.repository.BasketRepository;
+import com.project.util.OptimisticRetry;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class BasketService {
 
+  private static final Logger logger = LoggerFactory.getLogger(BasketService.class);
 
   @Autowired
-  private DynamicSchedulingConfig dynamicSchedulingConfig;
+  private BasketExpiryService basketExpiryService;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private BasketWriteBehindStore writeBehindStore;
+  @PersistenceContext
+  private EntityManager entityManager;
   private final BasketRepository basketRepository;
-  private final UserService userService;
+  private final CurrentUser currentUser;
 
   private final BasketDetailsRepository basketDetailsRepository;
-  public BasketService(BasketRepository basketRepository, UserService userService,
-      BasketDetailsRepository basketDetailsRepository) {
+  private final TransactionTemplate transactionTemplate;
+  private final OptimisticRetry optimisticRetry;
+  public BasketService(BasketRepository basketRepository, CurrentUser currentUser,
+      BasketDetailsRepository basketDetailsRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${bookstore.basket.retry.max-attempts:5}") int maxAttempts,
+      @Value("${bookstore.basket.retry.base-delay-millis:10}") long baseDelayMillis,
+      @Value("${bookstore.basket.retry.max-delay-millis:200}") long maxDelayMillis) {
     this.basketRepository = basketRepository;
 
-    this.userService = userService;
+    this.currentUser = currentUser;
     this.basketDetailsRepository = basketDetailsRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.optimisticRetry = new OptimisticRetry(maxAttempts, baseDelayMillis, maxDelayMillis);
   }
 
   public Basket getBaskedById (Long id) {
@@ -43,12 +68,78 @@ public class BasketService {
   }
 
 
+  /**
+   * Returns the basket of the logged-in user, from the account already loaded for this request.
+   * Pending changes of the write-behind store are written first and the basket is reloaded, so
+   * the lines and total shown or paid are complete.
+   */
   @Transactional
   public Basket getBasketFromLoggedInUser () {
-    String username = SecurityContextHolder.getContext().getAuthentication().getName();
-    User user = userService.findByUsername(username);
-    AccountEntity accountEntity = user.getAccount();
-    return accountEntity.getBasket();
+    AccountEntity accountEntity = currentUser.getAccount();
+    Basket basket = accountEntity.getBasket();
+    if (writeBehindStore.flush(accountEntity.getId()) && basket != null) {
+      // Not refreshed, as refreshing cascades to lines the flush may have deleted. The loaded
+      // basket and its lines are detached and read again instead, and the account is pointed at
+      // the new copy so that no detached basket is cascaded to on commit.
+      entityManager.detach(basket);
+      basket = entityManager.find(Basket.class, basket.getId());
+      accountEntity.setBasket(basket);
+    }
+    return basket;
+  }
+
+
+  /**
+   * Adds copies of a book to the basket of the logged-in user, creating the basket if needed.
+   *
+   * The line is inserted, or its quantity raised if the book is already in the basket, by one
+   * upsert on the unique (basket, book) key, so concurrent clicks cannot create a second line.
+   * The same statement restarts the expiration time of the other lines and adds the price of the
+   * new copies to the basket total, without reading the lines. With the write-behind store the
+   * copies are only recorded in memory.
+   *
+   * @param book The book.
+   * @param quantity The number of copies to add.
+   * @return The id of the basket.
+   */
+  @Transactional
+  public Long addToBasket(BookEntity book, int quantity) {
+    AccountEntity accountEntity = currentUser.getAccount();
+    Basket basket = accountEntity.getBasket();
+    if (basket == null) {
+      basket = new Basket();
+      basket.setBasketDetails(new ArrayList<>());
+      basket.setAccountEntity(accountEntity);
+      basket.setTotalAmount(BigDecimal.ZERO);
+      // Flushed now, as the lines are written with JDBC
+      basketRepository.saveAndFlush(basket);
+      accountEntity.setBasket(basket);
+    }
+    if (writeBehindStore.isEnabled()) {
+      writeBehindStore.add(accountEntity.getId(), basket.getId(), book.getId(), quantity);
+      return basket.getId();
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    // The ids come from the entity sequence; its pooled optimizer hands out the block of 50 below
+    // each value, so the value itself is never used by Hibernate. Both basket columns are set,
+    // as by the entity mapping.
+    jdbcTemplate.update("WITH line AS ("
+            + "INSERT INTO basket_details (id, quantity, book_book_id, basket_basket_id, "
+            + "basket_details_basket_id, updated_at) "
+            + "VALUES (nextval('basket_details_seq'), ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (basket_basket_id, book_book_id) DO UPDATE "
+            + "SET quantity = basket_details.quantity + EXCLUDED.quantity, "
+            + "updated_at = EXCLUDED.updated_at, version = basket_details.version + 1 "
+            + "RETURNING id), "
+            + "other_lines AS (UPDATE basket_details SET updated_at = ?, version = version + 1 "
+            + "WHERE basket_basket_id = ? AND id NOT IN (SELECT id FROM line)) "
+            + "UPDATE basket SET total_amount = COALESCE(total_amount, 0) + ?, "
+            + "version = version + 1 "
+            + "WHERE basket_id = ?",
+        quantity, book.getId(), basket.getId(), basket.getId(), now, now, basket.getId(),
+        book.getPrice().multiply(BigDecimal.valueOf(quantity)), basket.getId());
+    return basket.getId();
   }
 
 
@@ -66,55 +157,103 @@ public class BasketService {
   }
 
 
+  /**
+   * Sets the number of copies of a book in the basket of the logged-in user and adjusts the
+   * total. Runs in its own transaction, again if the line or basket was changed concurrently,
+   * or is only recorded in memory with the write-behind store.
+   *
+   * @param bookId The book.
+   * @param quantity The new number of copies.
+   */
   public void updateBasketDetails(Long bookId, int quantity) {
-    // Fetch the basket detail for the given book ID
-    BasketDetails detail = basketDetailsRepository.findByBookId(bookId);
-
-    if (detail != null) {
-      // Update quantity and total price
-      BigDecimal subtotalBeforeUpdate = detail.getBook().getPrice().multiply(
-          BigDecimal.valueOf(detail.getQuantity()));
+    Basket currentBasket = currentUser.getBasket();
+    if (currentBasket == null) {
+      return;
+    }
+    Long basketId = currentBasket.getId();
+    if (writeBehindStore.isEnabled()) {
+      writeBehindStore.set(currentUser.getAccount().getId(), basketId, bookId, quantity);
+      basketExpiryService.touch(basketId);
+      return;
+    }
+    boolean updated = optimisticRetry.run(() -> transactionTemplate.execute(status -> {
+      BasketDetails detail = basketDetailsRepository.findByBasketIdAndBookId(basketId, bookId);
+      if (detail == null) {
+        return false;
+      }
+      BigDecimal price = detail.getBook().getPrice();
+      Basket basket = detail.getBasket();
+      basket.setTotalAmount(basket.getTotalAmount()
+          .subtract(price.multiply(BigDecimal.valueOf(detail.getQuantity())))
+          .add(price.multiply(BigDecimal.valueOf(quantity))));
       detail.setQuantity(quantity);
+      // Both versions are checked on commit
+      return true;
+    }));
+    if (updated) {
+      basketExpiryService.touch(basketId);
+    }
+  }
 
-      //update totalAmount in the basket
-      Basket basket = basketRepository.findByBasketDetails(detail);
-      BigDecimal subtotalAfterUpdate = detail.getBook().getPrice().multiply(
-          BigDecimal.valueOf(quantity));
-      BigDecimal totalAmount = (basket.getTotalAmount().subtract(subtotalBeforeUpdate)).add(subtotalAfterUpdate);
-      basket.setTotalAmount(totalAmount);
-      basketRepository.save(basket);
 
-      // Save the updated detail back to the database
-      basketDetailsRepository.save(detail);
+  /**
+   * Removes a book from the basket of the logged-in user.
+   *
+   * @param bookId The book.
+   */
+  public void removeFromBasket(Long bookId) {
+    Basket basket = currentUser.getBasket();
+    if (basket == null) {
+      return;
+    }
+    if (writeBehindStore.isEnabled()) {
+      writeBehindStore.remove(currentUser.getAccount().getId(), basket.getId(), bookId);
+      return;
+    }
+    BasketDetails detail = null;
+    for (BasketDetails basketDetails : basket.getBasketDetails()) {
+      if (Objects.equals(basketDetails.getBook().getId(), bookId)) {
+        detail = basketDetails;
+        break;
+      }
+    }
+    if (detail == null) {
+      logger.debug("Book {} is not in basket {}", bookId, basket.getId());
+    } else {
+      removeBasketDetail(detail);
     }
   }
 
 
-  @Transactional
+  /**
+   * Removes a line from its basket and subtracts it from the total. Runs in its own
+   * transaction, again if the line or basket was changed concurrently.
+   *
+   * @param detail The line to remove.
+   */
   public void removeBasketDetail(BasketDetails detail) {
-    if (detail != null) {
+    if (detail == null) {
+      System.out.println("Detail is null");
+      return;
+    }
+    optimisticRetry.run(() -> transactionTemplate.execute(status -> {
       BasketDetails managedDetail = basketDetailsRepository.findById(detail.getId()).orElse(null);
-      if (managedDetail != null) {
-        BigDecimal total = managedDetail.getBook().getPrice().multiply(
-            BigDecimal.valueOf(managedDetail.getQuantity()));
-            Basket basket = basketRepository.findByBasketDetails(managedDetail);
-            basket.setTotalAmount(basket.getTotalAmount().subtract(total));
-            basketRepository.save(basket);
-        basketDetailsRepository.forceDeleteById(managedDetail.getId());
-      } else {
+      if (managedDetail == null) {
         System.out.println("Detail not found in the database");
+        return null;
       }
-    } else {
-      System.out.println("Detail is null");
-    }
+      BigDecimal total = managedDetail.getBook().getPrice().multiply(
+          BigDecimal.valueOf(managedDetail.getQuantity()));
+      Basket basket = managedDetail.getBasket();
+      basket.setTotalAmount(basket.getTotalAmount().subtract(total));
+      // A bulk delete, as the line is still in the basket's collection; the version condition
+      // makes it fail like a versioned update if the line changed since it was read
+      if (basketDetailsRepository.deleteByIdAndVersion(managedDetail.getId(),
+          managedDetail.getVersion()) == 0) {
+        throw new ObjectOptimisticLockingFailureException(BasketDetails.class,
+            managedDetail.getId());
+      }
+      return null;
+    }));
   }
-
-
-
-
-
-
-
-
-
 }
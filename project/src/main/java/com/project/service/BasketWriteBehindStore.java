@@ -0,0 +1,354 @@
+package com.project.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optional write-behind store for basket changes, enabled with bookstore.basket.store=memory.
+ *
+ * Adding, changing and removing books only records the change in memory, per account. Changes
+ * of the same book are coalesced: copies added are summed, a new quantity or a removal replaces
+ * everything before it. One thread writes the pending baskets to basket and basket_details
+ * every flush interval, in batches of baskets per transaction, with batched upserts and deletes
+ * and one statement recomputing the totals. Every written basket has the expiration time of all
+ * its lines restarted, as by adding a book.
+ *
+ * Pages showing the basket lines or total, and the checkout, flush the basket of their user
+ * first, so orders are always created from the written basket. The item count in the navigation
+ * is computed from the written lines plus the pending changes and costs no write.
+ *
+ * Durability: a change is only durable once flushed. If the process dies, the changes of up to
+ * one flush interval are lost, as are changes whose flush keeps failing; a failed flush is
+ * queued again in front of newer changes. A normal shutdown flushes everything. Pending changes
+ * are only visible to the instance that received them, so with several instances the users need
+ * sticky sessions.
+ */
+@Component
+public class BasketWriteBehindStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(BasketWriteBehindStore.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final BasketDetailsCleanupService cleanupService;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final long flushIntervalMillis;
+  private final int flushBatchSize;
+  // Pending changes by account id; entries are only changed inside compute/merge of the map
+  private final Map<Long, PendingBasket> pending = new ConcurrentHashMap<>();
+  // Flushes run one at a time, so an older change is never written after a newer one
+  private final Object flushLock = new Object();
+  private final AtomicLong changes = new AtomicLong();
+  private final AtomicLong flushes = new AtomicLong();
+  private final AtomicLong flushedBaskets = new AtomicLong();
+  private final AtomicLong flushedLines = new AtomicLong();
+  private final AtomicLong failedFlushes = new AtomicLong();
+  private volatile long lastFlushMillis;
+  private ScheduledExecutorService flusher;
+
+  public BasketWriteBehindStore(JdbcTemplate jdbcTemplate,
+      BasketDetailsCleanupService cleanupService, PlatformTransactionManager transactionManager,
+      @Value("${bookstore.basket.store:database}") String store,
+      @Value("${bookstore.basket.flush-interval-millis:2000}") long flushIntervalMillis,
+      @Value("${bookstore.basket.flush-batch-size:500}") int flushBatchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.cleanupService = cleanupService;
+    // A flush from a request commits on its own, whatever happens to the request's transaction
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(
+        TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.enabled = "memory".equalsIgnoreCase(store);
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.flushBatchSize = flushBatchSize;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "basket-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (flusher != null) {
+      flusher.shutdownNow();
+      flushAll();
+    }
+  }
+
+  /**
+   * @return True if basket changes are kept in memory, false if they are written directly.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records copies of a book added to a basket.
+   *
+   * @param accountId The account owning the basket.
+   * @param basketId The basket, which must exist.
+   * @param bookId The book.
+   * @param quantity The number of copies to add.
+   */
+  public void add(Long accountId, Long basketId, Long bookId, int quantity) {
+    change(accountId, basketId, bookId, line -> line.delta += quantity);
+  }
+
+  /**
+   * Records a new number of copies of a book in a basket; zero or less removes the book.
+   *
+   * @param accountId The account owning the basket.
+   * @param basketId The basket, which must exist.
+   * @param bookId The book.
+   * @param quantity The new number of copies.
+   */
+  public void set(Long accountId, Long basketId, Long bookId, int quantity) {
+    change(accountId, basketId, bookId, line -> {
+      line.quantity = quantity;
+      line.delta = 0;
+    });
+  }
+
+  /**
+   * Records the removal of a book from a basket.
+   */
+  public void remove(Long accountId, Long basketId, Long bookId) {
+    set(accountId, basketId, bookId, 0);
+  }
+
+  /**
+   * Applies the pending changes of an account to the quantities of its written basket.
+   *
+   * @param accountId The account.
+   * @param quantities The number of copies by book id as written; a copy is returned.
+   * @return The number of copies by book id including the pending changes.
+   */
+  public Map<Long, Integer> applyPending(Long accountId, Map<Long, Integer> quantities) {
+    Map<Long, Integer> result = new HashMap<>(quantities);
+    if (enabled) {
+      pending.computeIfPresent(accountId, (key, basket) -> {
+        basket.lines.forEach((bookId, line) -> {
+          int quantity = line.quantity != null ? line.quantity : result.getOrDefault(bookId, 0);
+          if (quantity + line.delta > 0) {
+            result.put(bookId, quantity + line.delta);
+          } else {
+            result.remove(bookId);
+          }
+        });
+        return basket;
+      });
+    }
+    return result;
+  }
+
+  /**
+   * Writes the pending changes of one account now, e.g. before its basket is shown or paid.
+   *
+   * @param accountId The account.
+   * @return True if changes were written.
+   */
+  public boolean flush(Long accountId) {
+    if (!enabled || accountId == null || !pending.containsKey(accountId)) {
+      return false;
+    }
+    synchronized (flushLock) {
+      PendingBasket basket = pending.remove(accountId);
+      if (basket == null) {
+        return false; // Written by the flusher meanwhile
+      }
+      Map<Long, PendingBasket> batch = new LinkedHashMap<>();
+      batch.put(accountId, basket);
+      return write(batch);
+    }
+  }
+
+  /**
+   * Returns the mode, the number of baskets with pending changes, and the changes, flushes and
+   * written lines so far.
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("store", enabled ? "memory" : "database");
+    result.put("pendingBaskets", pending.size());
+    result.put("changes", changes.get());
+    result.put("flushes", flushes.get());
+    result.put("flushedBaskets", flushedBaskets.get());
+    result.put("flushedLines", flushedLines.get());
+    result.put("failedFlushes", failedFlushes.get());
+    result.put("lastFlushMillis", lastFlushMillis);
+    return result;
+  }
+
+  private void change(Long accountId, Long basketId, Long bookId, LineChange lineChange) {
+    if (!enabled) {
+      return;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    pending.compute(accountId, (key, basket) -> {
+      if (basket == null) {
+        basket = new PendingBasket(basketId);
+      }
+      lineChange.apply(basket.lines.computeIfAbsent(bookId, id -> new PendingLine()));
+      basket.touchedAt = now;
+      return basket;
+    });
+    changes.incrementAndGet();
+  }
+
+  private void flushAll() {
+    boolean full;
+    do {
+      synchronized (flushLock) {
+        Map<Long, PendingBasket> batch = new LinkedHashMap<>();
+        Iterator<Long> accountIds = pending.keySet().iterator();
+        while (accountIds.hasNext() && batch.size() < flushBatchSize) {
+          Long accountId = accountIds.next();
+          PendingBasket basket = pending.remove(accountId);
+          if (basket != null) {
+            batch.put(accountId, basket);
+          }
+        }
+        full = batch.size() == flushBatchSize;
+        if (!batch.isEmpty() && !write(batch)) {
+          return; // Try again with the next interval
+        }
+      }
+    } while (full);
+  }
+
+  private boolean write(Map<Long, PendingBasket> batch) {
+    long start = System.nanoTime();
+    List<Object[]> deletes = new ArrayList<>();
+    List<Object[]> quantities = new ArrayList<>();
+    List<Object[]> additions = new ArrayList<>();
+    List<Object[]> touches = new ArrayList<>();
+    Long[] basketIds = new Long[batch.size()];
+    int i = 0;
+    for (PendingBasket basket : batch.values()) {
+      basket.lines.forEach((bookId, line) -> {
+        if (line.quantity == null) {
+          if (line.delta > 0) {
+            additions.add(new Object[]{line.delta, bookId, basket.basketId, basket.basketId,
+                basket.touchedAt});
+          }
+        } else if (line.quantity + line.delta > 0) {
+          quantities.add(new Object[]{line.quantity + line.delta, bookId, basket.basketId,
+              basket.basketId, basket.touchedAt});
+        } else {
+          deletes.add(new Object[]{basket.basketId, bookId});
+        }
+      });
+      touches.add(new Object[]{basket.touchedAt, basket.basketId, basket.touchedAt});
+      basketIds[i++] = basket.basketId;
+    }
+
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        if (!deletes.isEmpty()) {
+          jdbcTemplate.batchUpdate("DELETE FROM basket_details "
+              + "WHERE basket_basket_id = ? AND book_book_id = ?", deletes);
+        }
+        // Ids and both basket columns as in BasketService.addToBasket
+        if (!quantities.isEmpty()) {
+          jdbcTemplate.batchUpdate(upsert("EXCLUDED.quantity"), quantities);
+        }
+        if (!additions.isEmpty()) {
+          jdbcTemplate.batchUpdate(upsert("basket_details.quantity + EXCLUDED.quantity"),
+              additions);
+        }
+        jdbcTemplate.batchUpdate("UPDATE basket_details SET updated_at = ?, "
+            + "version = version + 1 WHERE basket_basket_id = ? AND updated_at < ?", touches);
+        cleanupService.recomputeTotals(basketIds);
+      });
+    } catch (RuntimeException e) {
+      // Queue the changes again in front of those made meanwhile
+      batch.forEach((accountId, basket) -> pending.merge(accountId, basket,
+          (newer, older) -> older.followedBy(newer)));
+      failedFlushes.incrementAndGet();
+      logger.warn("Could not write {} baskets, trying again later", batch.size(), e);
+      return false;
+    }
+
+    lastFlushMillis = (System.nanoTime() - start) / 1_000_000;
+    flushes.incrementAndGet();
+    flushedBaskets.addAndGet(batch.size());
+    flushedLines.addAndGet(deletes.size() + quantities.size() + additions.size());
+    return true;
+  }
+
+  private static String upsert(String quantity) {
+    return "INSERT INTO basket_details (id, quantity, book_book_id, basket_basket_id, "
+        + "basket_details_basket_id, updated_at) "
+        + "VALUES (nextval('basket_details_seq'), ?, ?, ?, ?, ?) "
+        + "ON CONFLICT (basket_basket_id, book_book_id) DO UPDATE "
+        + "SET quantity = " + quantity + ", updated_at = EXCLUDED.updated_at, "
+        + "version = basket_details.version + 1";
+  }
+
+  @FunctionalInterface
+  private interface LineChange {
+
+    void apply(PendingLine line);
+  }
+
+  private static final class PendingBasket {
+
+    private final Long basketId;
+    private final Map<Long, PendingLine> lines = new HashMap<>();
+    private LocalDateTime touchedAt;
+
+    PendingBasket(Long basketId) {
+      this.basketId = basketId;
+    }
+
+    // Applies the newer changes on top of these
+    PendingBasket followedBy(PendingBasket newer) {
+      newer.lines.forEach((bookId, newerLine) -> {
+        PendingLine line = lines.computeIfAbsent(bookId, id -> new PendingLine());
+        if (newerLine.quantity != null) {
+          line.quantity = newerLine.quantity;
+          line.delta = 0;
+        }
+        line.delta += newerLine.delta;
+      });
+      touchedAt = newer.touchedAt;
+      return this;
+    }
+  }
+
+  // A new quantity if set, plus copies added after it
+  private static final class PendingLine {
+
+    private Integer quantity;
+    private int delta;
+  }
+}
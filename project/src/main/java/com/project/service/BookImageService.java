@@ -0,0 +1,233 @@
+package com.project.service;
+
+import com.project.dto.BookImageInfo;
+import com.project.dto.CoverImage;
+import com.project.dto.StoredImage;
+import com.project.entity.BookEntity;
+import com.project.entity.BookImageEntity;
+import com.project.repository.BookImageRepository;
+import com.project.repository.BookRepository;
+import com.project.util.ImageVariant;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class BookImageService {
+
+  private final BookRepository bookRepository;
+  private final BookImageRepository bookImageRepository;
+  private final ImageDerivativeService imageDerivativeService;
+  private final CoverImageCache coverImageCache;
+  private final ImageStorage imageStorage;
+
+  public BookImageService(BookRepository bookRepository, BookImageRepository bookImageRepository,
+      ImageDerivativeService imageDerivativeService, CoverImageCache coverImageCache,
+      ImageStorage imageStorage) {
+    this.bookRepository = bookRepository;
+    this.bookImageRepository = bookImageRepository;
+    this.imageDerivativeService = imageDerivativeService;
+    this.coverImageCache = coverImageCache;
+    this.imageStorage = imageStorage;
+  }
+
+  /**
+   * Sets the uploaded cover on the book together with its content hash and modification time,
+   * and replaces the resized copies. They are saved together with the book.
+   *
+   * The existing copy of each size is updated in place. Replacing the rows would insert the new
+   * ones (identity ids are inserted right away) before the old ones are deleted at flush time,
+   * which violates the unique (book, variant) key.
+   *
+   * @param book The book the cover belongs to.
+   * @param imageData The raw image bytes as uploaded.
+   */
+  public void attachImage(BookEntity book, byte[] imageData) {
+    book.setImageHash(hash(imageData));
+    book.setImageUpdatedAt(Instant.now());
+    imageStorage.storeOriginal(book, imageData);
+
+    Map<ImageVariant, BookImageEntity> existing = new EnumMap<>(ImageVariant.class);
+    for (BookImageEntity image : book.getImages()) {
+      existing.put(image.getVariant(), image);
+    }
+    for (BookImageEntity derivative : imageDerivativeService.createDerivatives(imageData)) {
+      BookImageEntity target = existing.remove(derivative.getVariant());
+      if (target == null) {
+        target = derivative;
+        target.setBook(book);
+        book.getImages().add(target);
+      } else {
+        target.setContentType(derivative.getContentType());
+        target.setWidth(derivative.getWidth());
+        target.setHeight(derivative.getHeight());
+        target.setImageHash(derivative.getImageHash());
+        target.setCreatedAt(derivative.getCreatedAt());
+      }
+      imageStorage.storeDerivative(target, derivative.getImage());
+    }
+    // Sizes that could not be generated from the new cover must not show the old one
+    book.getImages().removeAll(existing.values());
+  }
+
+  /**
+   * Saves resized copies generated for a book that was stored before derivatives existed.
+   * Variants that already exist are kept, and a missing hash of the original is filled in.
+   *
+   * @param bookId The ID of the book.
+   * @param original The original image bytes the derivatives were created from.
+   * @param derivatives The derivatives created from the original.
+   * @return The number of derivatives saved.
+   */
+  @Transactional
+  public int saveMissingDerivatives(Long bookId, byte[] original,
+      List<BookImageEntity> derivatives) {
+    bookRepository.updateMissingImageHash(bookId, hash(original), Instant.now());
+    BookEntity book = bookRepository.getReferenceById(bookId);
+    int saved = 0;
+    for (BookImageEntity derivative : derivatives) {
+      if (bookImageRepository.findByBookIdAndVariant(bookId, derivative.getVariant()).isEmpty()) {
+        imageStorage.storeDerivative(derivative, derivative.getImage());
+        derivative.setBook(book);
+        bookImageRepository.save(derivative);
+        saved++;
+      }
+    }
+    coverImageCache.invalidate(bookId);
+    return saved;
+  }
+
+  /**
+   * Looks up a cover in the in-memory cache.
+   *
+   * @param bookId The ID of the book.
+   * @param variant The resized copy, or null for the original.
+   * @return The cached image, or null if it has to be loaded from the storage.
+   */
+  public CoverImage getCachedImage(Long bookId, ImageVariant variant) {
+    return coverImageCache.get(bookId, variant);
+  }
+
+  /**
+   * Loads a cover from the image storage and adds it to the cache.
+   *
+   * @param bookId The ID of the book.
+   * @param variant The resized copy, or null for the original.
+   * @param info The metadata of the requested image.
+   * @param version The hash of the original cover.
+   * @return The image, or null if it does not exist.
+   */
+  public CoverImage loadImage(Long bookId, ImageVariant variant, BookImageInfo info,
+      String version) {
+    StoredImage stored = imageStorage.read(bookId, variant, info.getImageHash());
+    if (stored == null) {
+      return null;
+    }
+    // Images stored before hashes were recorded get theirs calculated here
+    String imageHash = info.getImageHash() != null
+        ? info.getImageHash() : hash(readAllBytes(stored));
+    CoverImage image = new CoverImage(stored, imageHash, info.getImageUpdatedAt(),
+        version != null ? version : imageHash);
+    coverImageCache.put(bookId, variant, image);
+    return image;
+  }
+
+  /**
+   * Fetches the hash and modification time of a cover without loading the image.
+   *
+   * @param bookId The ID of the book.
+   * @return The cover metadata, or empty if the book does not exist.
+   */
+  @Transactional(readOnly = true)
+  public Optional<BookImageInfo> getImageInfo(Long bookId) {
+    return bookRepository.findImageInfoById(bookId);
+  }
+
+  /**
+   * Fetches the cover image bytes of a book.
+   *
+   * @param bookId The ID of the book.
+   * @return The image bytes, or null if the book or its image does not exist.
+   */
+  public byte[] getImage(Long bookId) {
+    String imageHash = getImageInfo(bookId).map(BookImageInfo::getImageHash).orElse(null);
+    StoredImage stored = imageStorage.read(bookId, null, imageHash);
+    return stored != null ? readAllBytes(stored) : null;
+  }
+
+  /**
+   * Fetches the hash and creation time of a resized cover without loading the image.
+   *
+   * @param bookId The ID of the book.
+   * @param variant The requested size.
+   * @return The derivative metadata, or empty if it has not been generated.
+   */
+  @Transactional(readOnly = true)
+  public Optional<BookImageInfo> getImageInfo(Long bookId, ImageVariant variant) {
+    return bookImageRepository.findImageInfoByBookIdAndVariant(bookId, variant);
+  }
+
+  /**
+   * Fetches the bytes of a resized cover.
+   *
+   * @param bookId The ID of the book.
+   * @param variant The requested size.
+   * @return The JPEG bytes, or null if the derivative has not been generated.
+   */
+  public byte[] getImage(Long bookId, ImageVariant variant) {
+    String imageHash = getImageInfo(bookId, variant).map(BookImageInfo::getImageHash)
+        .orElse(null);
+    StoredImage stored = imageStorage.read(bookId, variant, imageHash);
+    return stored != null ? readAllBytes(stored) : null;
+  }
+
+  private static byte[] readAllBytes(StoredImage stored) {
+    try {
+      return stored.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read image", e);
+    }
+  }
+
+  /**
+   * Calculates the SHA-256 hash of the image as lowercase hex.
+   */
+  public static String hash(byte[] imageData) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(imageData));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Detects the media type of an image from its leading bytes.
+   */
+  public static MediaType detectMediaType(byte[] imageData) {
+    if (imageData.length >= 4 && (imageData[0] & 0xFF) == 0x89 && imageData[1] == 'P'
+        && imageData[2] == 'N' && imageData[3] == 'G') {
+      return MediaType.IMAGE_PNG;
+    }
+    if (imageData.length >= 3 && imageData[0] == 'G' && imageData[1] == 'I'
+        && imageData[2] == 'F') {
+      return MediaType.IMAGE_GIF;
+    }
+    if (imageData.length >= 12 && imageData[0] == 'R' && imageData[1] == 'I'
+        && imageData[8] == 'W' && imageData[9] == 'E' && imageData[10] == 'B'
+        && imageData[11] == 'P') {
+      return MediaType.parseMediaType("image/webp");
+    }
+    return MediaType.IMAGE_JPEG;
+  }
+}
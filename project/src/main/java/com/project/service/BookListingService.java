@@ -0,0 +1,99 @@
+package com.project.service;
+
+import com.project.dto.BookListing;
+import com.project.dto.BookSummary;
+import com.project.repository.BookRepository;
+import com.project.util.IsbnUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads the books shown on the catalog pages. A page costs one query for the book columns and one
+ * for the authors and categories of all books on it, instead of loading every entity with its
+ * image and collections.
+ */
+@Service
+public class BookListingService {
+
+  private final BookRepository bookRepository;
+
+  public BookListingService(BookRepository bookRepository) {
+    this.bookRepository = bookRepository;
+  }
+
+  @Transactional(readOnly = true)
+  public Page<BookListing> findAll(Pageable pageable) {
+    return withAttributes(bookRepository.findListingPage(pageable));
+  }
+
+  @Transactional(readOnly = true)
+  public Page<BookListing> search(String query, Pageable pageable) {
+    return withAttributes(bookRepository.searchListingPage(query,
+        IsbnUtils.normalize(query), pageable));
+  }
+
+  /**
+   * Searches with PostgreSQL full-text search, ranked by relevance. Words are stemmed, so
+   * "cooking" also finds "cook", and the query understands quotes, "or" and "-word".
+   */
+  @Transactional(readOnly = true)
+  public Page<BookListing> searchFullText(String query, Pageable pageable) {
+    return withAttributes(bookRepository.searchListingPageFullText(query,
+        IsbnUtils.normalize(query), pageable));
+  }
+
+  /**
+   * Loads the given books in the order of the IDs. IDs of books that no longer exist are skipped.
+   */
+  @Transactional(readOnly = true)
+  public List<BookListing> findByIds(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, BookListing> byId = new HashMap<>();
+    for (BookListing book : toListings(bookRepository.findListingByIds(ids))) {
+      byId.put(book.getId(), book);
+    }
+    return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+  }
+
+  /**
+   * Loads the next books after the given ID in ID order, for walking the whole catalog.
+   */
+  @Transactional(readOnly = true)
+  public List<BookListing> findBatch(Long afterId, int size) {
+    return toListings(bookRepository.findListingBatch(afterId, Limit.of(size)));
+  }
+
+  private Page<BookListing> withAttributes(Page<BookSummary> page) {
+    List<BookListing> content = toListings(page.getContent());
+    return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+  }
+
+  private List<BookListing> toListings(List<BookSummary> books) {
+    Map<Long, List<String>> authors = new HashMap<>();
+    Map<Long, List<String>> categories = new HashMap<>();
+    List<Long> ids = books.stream().map(BookSummary::getId).toList();
+    if (!ids.isEmpty()) {
+      for (Object[] row : bookRepository.findListingAttributes(ids)) {
+        Map<Long, List<String>> target = "A".equals(String.valueOf(row[1])) ? authors : categories;
+        target.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[2]);
+      }
+    }
+    return books.stream()
+        .map(book -> new BookListing(book.getId(), book.getTitle(), book.getPrice(),
+            book.getIsbn(), book.getDescription(), book.getImageHash(),
+            authors.getOrDefault(book.getId(), List.of()),
+            categories.getOrDefault(book.getId(), List.of())))
+        .toList();
+  }
+}
@@ -1,12 +1,15 @@
 package com.project.service;
 
 import com.project.entity.BookEntity;
+import com.project.event.BookChangedEvent;
 import com.project.repository.BookRepository;
+import com.project.util.IsbnUtils;
 import java.awt.print.Book;
 import java.util.Base64;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,9 +17,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class BookService {
 
   private final BookRepository bookRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public BookService(BookRepository bookRepository) {
+  public BookService(BookRepository bookRepository, ApplicationEventPublisher eventPublisher) {
     this.bookRepository = bookRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   public List<BookEntity> getAllBooks () {
@@ -24,7 +29,18 @@ public class BookService {
   }
 
   public void saveBookToDatabase (BookEntity book) {
-    bookRepository.save(book);
+    // Stored without hyphens and spaces, as the catalog import stores and compares them
+    book.setIsbn(IsbnUtils.normalize(book.getIsbn()));
+    boolean created = book.getId() == null;
+    BookEntity saved = bookRepository.save(book);
+    // Let caches and in-memory indexes of the catalog pick up the change
+    eventPublisher.publishEvent(new BookChangedEvent(saved.getId(),
+        created ? BookChangedEvent.Type.CREATED : BookChangedEvent.Type.UPDATED));
+  }
+
+  public void deleteBook (BookEntity book) {
+    bookRepository.delete(book);
+    eventPublisher.publishEvent(new BookChangedEvent(book.getId(), BookChangedEvent.Type.DELETED));
   }
   public long getBookCount() {
     return bookRepository.count();
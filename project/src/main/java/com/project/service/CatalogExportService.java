@@ -0,0 +1,144 @@
+package com.project.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.util.CsvWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes the whole catalog as CSV or NDJSON, in the format read by
+ * {@link CatalogImportService}.
+ *
+ * The books are read with a server-side cursor: PostgreSQL only sends the next rows when the
+ * previous ones have been written, as the driver fetches fetch-size rows at a time within the
+ * read-only transaction. Memory use does not depend on the catalog size, and the first books
+ * are sent right away. Cover images are not exported.
+ */
+@Service
+public class CatalogExportService {
+
+  private static final String SELECT_BOOKS = "SELECT b.book_id, b.title, b.isbn, b.price, "
+      + "b.description, "
+      + "ARRAY(SELECT a.name FROM book_author ba JOIN author_entity a ON a.id = ba.author_id "
+      + "WHERE ba.book_id = b.book_id ORDER BY a.name) AS authors, "
+      + "ARRAY(SELECT c.name FROM book_category bc JOIN category_entity c ON c.id = bc.category_id "
+      + "WHERE bc.book_id = b.book_id ORDER BY c.name) AS categories "
+      + "FROM book_entity b ORDER BY b.book_id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+
+  public CatalogExportService(DataSource dataSource,
+      PlatformTransactionManager transactionManager,
+      ObjectMapper objectMapper,
+      @Value("${bookstore.export.fetch-size:1000}") int fetchSize) {
+    // A template of its own, as the fetch size applies to all its statements
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Writes all books as CSV with a header row. Several authors or categories are separated by
+   * ";".
+   */
+  public void exportCsv(OutputStream out) throws IOException {
+    CsvWriter csv = new CsvWriter(writer(out));
+    csv.writeRecord("id", "title", "isbn", "price", "authors", "categories", "description");
+    csv.flush();
+    export(row -> csv.writeRecord(String.valueOf(row.id()), row.title(), row.isbn(),
+        row.price() != null ? row.price().toPlainString() : null,
+        String.join(";", row.authors()), String.join(";", row.categories()),
+        row.description()));
+    csv.flush();
+  }
+
+  /**
+   * Writes all books as NDJSON, one object per line. Authors and categories are arrays.
+   */
+  public void exportNdjson(OutputStream out) throws IOException {
+    Writer writer = writer(out);
+    JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+    export(row -> {
+      json.writeStartObject();
+      json.writeNumberField("id", row.id());
+      json.writeStringField("title", row.title());
+      json.writeStringField("isbn", row.isbn());
+      if (row.price() != null) {
+        json.writeNumberField("price", row.price());
+      } else {
+        json.writeNullField("price");
+      }
+      json.writeArrayFieldStart("authors");
+      for (String author : row.authors()) {
+        json.writeString(author);
+      }
+      json.writeEndArray();
+      json.writeArrayFieldStart("categories");
+      for (String category : row.categories()) {
+        json.writeString(category);
+      }
+      json.writeEndArray();
+      json.writeStringField("description", row.description());
+      json.writeEndObject();
+      json.flush();
+      writer.write('\n');
+    });
+    writer.flush();
+  }
+
+  private void export(RowWriter rowWriter) throws IOException {
+    try {
+      transactionTemplate.executeWithoutResult(status ->
+          jdbcTemplate.query(SELECT_BOOKS, (ResultSet rs) -> {
+            try {
+              rowWriter.write(new ExportRow(rs.getLong("book_id"), rs.getString("title"),
+                  rs.getString("isbn"), rs.getBigDecimal("price"), rs.getString("description"),
+                  names(rs.getArray("authors")), names(rs.getArray("categories"))));
+            } catch (IOException e) {
+              // The client went away, which ends the query and the transaction
+              throw new UncheckedIOException(e);
+            }
+          }));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static String[] names(Array array) throws SQLException {
+    return array != null ? (String[]) array.getArray() : new String[0];
+  }
+
+  private static Writer writer(OutputStream out) {
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  @FunctionalInterface
+  private interface RowWriter {
+
+    void write(ExportRow row) throws IOException;
+  }
+
+  private record ExportRow(long id, String title, String isbn, BigDecimal price,
+      String description, String[] authors, String[] categories) {
+  }
+}
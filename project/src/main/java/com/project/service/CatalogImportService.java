@@ -0,0 +1,577 @@
+package com.project.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.entity.AuthorEntity;
+import com.project.entity.CategoryEntity;
+import com.project.event.BooksImportedEvent;
+import com.project.util.CsvReader;
+import com.project.util.CsvWriter;
+import com.project.util.IsbnUtils;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Imports books in bulk from CSV or NDJSON files.
+ *
+ * The file is stored in the import directory and read record by record in the background, so
+ * only one batch of books is held in memory at a time. Records are validated, books whose ISBN
+ * already exists are skipped, and each batch is written with a few JDBC batch statements in its
+ * own transaction. The IDs of a batch are reserved from the sequence of the book_id identity
+ * column with one query, Hibernate could not batch these inserts.
+ *
+ * Rejected records are written to a CSV report. A failed import keeps the batches written so far,
+ * importing the same file again skips them as existing ISBNs.
+ *
+ * CSV files need a header row with the columns title, isbn and price, and optionally author(s),
+ * category(ies) and description. Several authors or categories are separated by ";". NDJSON
+ * files contain one JSON object per line with the same fields, authors and categories may also
+ * be arrays.
+ */
+@Service
+public class CatalogImportService {
+
+  private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+  // Length of the varchar columns of book_entity, author_entity and category_entity
+  private static final int MAX_TEXT_LENGTH = 255;
+
+  private static final String INSERT_BOOK =
+      "INSERT INTO book_entity (book_id, title, isbn, description, price) VALUES (?, ?, ?, ?, ?)";
+  private static final String INSERT_BOOK_AUTHOR =
+      "INSERT INTO book_author (book_id, author_id) VALUES (?, ?)";
+  private static final String INSERT_BOOK_CATEGORY =
+      "INSERT INTO book_category (book_id, category_id) VALUES (?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final TaxonomyService taxonomyService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectMapper objectMapper;
+  private final Path importPath;
+  private final int batchSize;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private volatile ImportJob lastJob;
+
+  public CatalogImportService(JdbcTemplate jdbcTemplate,
+      NamedParameterJdbcTemplate namedJdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      TaxonomyService taxonomyService,
+      ApplicationEventPublisher eventPublisher,
+      ObjectMapper objectMapper,
+      @Value("${bookstore.import.path:imports}") String importPath,
+      @Value("${bookstore.import.batch-size:1000}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.namedJdbcTemplate = namedJdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.taxonomyService = taxonomyService;
+    this.eventPublisher = eventPublisher;
+    this.objectMapper = objectMapper;
+    this.importPath = Paths.get(importPath);
+    this.batchSize = batchSize;
+  }
+
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  /**
+   * Stores the uploaded file and starts importing it in the background.
+   *
+   * @param file A .csv, .ndjson or .jsonl file.
+   * @return false if an import is already running.
+   * @throws IllegalArgumentException If the file type is not supported.
+   * @throws IOException If the file cannot be stored.
+   */
+  public boolean startImport(MultipartFile file) throws IOException {
+    Format format = Format.of(file.getOriginalFilename());
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    ImportJob job;
+    try {
+      Files.createDirectories(importPath);
+      String name = "import-" + System.currentTimeMillis();
+      Path input = importPath.resolve(name + format.extension);
+      file.transferTo(input.toAbsolutePath());
+      job = new ImportJob(file.getOriginalFilename(), format, input,
+          importPath.resolve(name + "-rejected.csv"), Files.size(input));
+    } catch (IOException | RuntimeException e) {
+      running.set(false);
+      throw e;
+    }
+    lastJob = job;
+
+    Thread thread = new Thread(() -> {
+      try {
+        run(job);
+      } finally {
+        running.set(false);
+      }
+    }, "catalog-import");
+    thread.setDaemon(true);
+    thread.start();
+    return true;
+  }
+
+  /**
+   * Progress of the running or last import: records read and imported, rejects, throughput and
+   * the share of the file read so far.
+   */
+  public Map<String, Object> getStatus() {
+    ImportJob job = lastJob;
+    Map<String, Object> result = new LinkedHashMap<>();
+    if (job == null) {
+      result.put("state", "NONE");
+      return result;
+    }
+    Instant end = job.finishedAt != null ? job.finishedAt : Instant.now();
+    double seconds = Math.max(end.toEpochMilli() - job.startedAt.toEpochMilli(), 1) / 1000.0;
+    result.put("state", job.state);
+    result.put("file", job.fileName);
+    result.put("format", job.format);
+    result.put("startedAt", job.startedAt);
+    result.put("finishedAt", job.finishedAt);
+    result.put("progressPercent", job.totalBytes == 0
+        ? 100.0 : Math.min(100.0, 100.0 * job.bytesRead.get() / job.totalBytes));
+    result.put("recordsRead", job.recordsRead.get());
+    result.put("imported", job.imported.get());
+    result.put("rejected", job.rejected.get());
+    result.put("rowsPerSecond", Math.round(job.recordsRead.get() / seconds));
+    result.put("error", job.error);
+    result.put("rejectReport", job.rejected.get() > 0 ? "/admin/import/rejects" : null);
+    return result;
+  }
+
+  /**
+   * The CSV report of the rejected records of the last import, or null if there is none.
+   */
+  public Path getRejectReport() {
+    ImportJob job = lastJob;
+    return job != null && Files.exists(job.rejectFile) ? job.rejectFile : null;
+  }
+
+  private void run(ImportJob job) {
+    logger.info("Catalog import of {} started", job.fileName);
+    try (InputStream in = new CountingInputStream(Files.newInputStream(job.input), job.bytesRead);
+        RecordSource source = job.format == Format.CSV ? new CsvSource(in) : new NdjsonSource(in);
+        CsvWriter rejects = new CsvWriter(
+            Files.newBufferedWriter(job.rejectFile, StandardCharsets.UTF_8))) {
+      rejects.writeRecord("record", "isbn", "reason");
+      String sequence = jdbcTemplate.queryForObject(
+          "SELECT pg_get_serial_sequence('book_entity', 'book_id')", String.class);
+
+      List<ImportRow> batch = new ArrayList<>(batchSize);
+      Map<String, Object> fields;
+      while ((fields = source.next()) != null) {
+        long record = job.recordsRead.incrementAndGet();
+        try {
+          batch.add(ImportRow.of(record, fields));
+        } catch (IllegalArgumentException e) {
+          reject(job, rejects, record, fields.get("isbn"), e.getMessage());
+        }
+        if (batch.size() == batchSize) {
+          write(job, batch, sequence, rejects);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        write(job, batch, sequence, rejects);
+      }
+      job.state = "COMPLETED";
+    } catch (IOException | RuntimeException e) {
+      logger.error("Catalog import of {} failed", job.fileName, e);
+      job.error = e.getMessage();
+      job.state = "FAILED";
+    } finally {
+      job.finishedAt = Instant.now();
+      try {
+        Files.deleteIfExists(job.input);
+      } catch (IOException e) {
+        logger.warn("Could not delete import file {}", job.input);
+      }
+    }
+    logger.info("Catalog import of {} finished: {} of {} records imported, {} rejected",
+        job.fileName, job.imported.get(), job.recordsRead.get(), job.rejected.get());
+  }
+
+  private void write(ImportJob job, List<ImportRow> batch, String sequence,
+      CsvWriter rejects) throws IOException {
+    // Duplicates within the batch, and ISBNs written before (including earlier batches)
+    Map<String, ImportRow> byIsbn = new LinkedHashMap<>();
+    for (ImportRow row : batch) {
+      if (byIsbn.putIfAbsent(row.isbn(), row) != null) {
+        reject(job, rejects, row.record(), row.isbn(), "Duplicate ISBN in file");
+      }
+    }
+    // Books saved before ISBNs were normalized on save are compared in normalized form as well
+    Set<String> existing = new HashSet<>(namedJdbcTemplate.queryForList(
+        "SELECT upper(regexp_replace(isbn, '[[:space:]-]', '', 'g')) FROM book_entity "
+            + "WHERE upper(regexp_replace(isbn, '[[:space:]-]', '', 'g')) IN (:isbns)",
+        Map.of("isbns", byIsbn.keySet()), String.class));
+    List<ImportRow> rows = new ArrayList<>();
+    for (ImportRow row : byIsbn.values()) {
+      if (existing.contains(row.isbn())) {
+        reject(job, rejects, row.record(), row.isbn(), "ISBN already exists");
+      } else {
+        rows.add(row);
+      }
+    }
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    // New names are created in their own transaction, as the JDBC inserts below do not see
+    // entities that Hibernate has not flushed yet
+    resolve(rows, ImportRow::authors, job.authorIds,
+        names -> toIds(taxonomyService.resolveAuthors(names), AuthorEntity::getName,
+            AuthorEntity::getId));
+    resolve(rows, ImportRow::categories, job.categoryIds,
+        names -> toIds(taxonomyService.resolveCategories(names), CategoryEntity::getName,
+            CategoryEntity::getId));
+
+    List<Long> ids = transactionTemplate.execute(status -> {
+      List<Long> bookIds = jdbcTemplate.queryForList(
+          "SELECT nextval(CAST(? AS regclass)) FROM generate_series(1, ?)", Long.class,
+          sequence, rows.size());
+      jdbcTemplate.batchUpdate(INSERT_BOOK, new BatchPreparedStatementSetter() {
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+          ImportRow row = rows.get(i);
+          ps.setLong(1, bookIds.get(i));
+          ps.setString(2, row.title());
+          ps.setString(3, row.isbn());
+          ps.setString(4, row.description());
+          ps.setBigDecimal(5, row.price());
+        }
+
+        @Override
+        public int getBatchSize() {
+          return rows.size();
+        }
+      });
+      insertLinks(INSERT_BOOK_AUTHOR, rows, bookIds, ImportRow::authors, job.authorIds);
+      insertLinks(INSERT_BOOK_CATEGORY, rows, bookIds, ImportRow::categories, job.categoryIds);
+      return bookIds;
+    });
+    job.imported.addAndGet(ids.size());
+    eventPublisher.publishEvent(new BooksImportedEvent(ids));
+  }
+
+  // Looks up the IDs of the names not seen in this import yet
+  private static void resolve(List<ImportRow> rows, Function<ImportRow, List<String>> names,
+      Map<String, Long> ids, Function<List<String>, Map<String, Long>> resolver) {
+    Set<String> missing = new HashSet<>();
+    for (ImportRow row : rows) {
+      for (String name : names.apply(row)) {
+        if (!ids.containsKey(key(name))) {
+          missing.add(name);
+        }
+      }
+    }
+    if (!missing.isEmpty()) {
+      ids.putAll(resolver.apply(new ArrayList<>(missing)));
+    }
+  }
+
+  private static <T> Map<String, Long> toIds(List<T> entities, Function<T, String> name,
+      Function<T, Long> id) {
+    Map<String, Long> result = new HashMap<>();
+    for (T entity : entities) {
+      result.put(key(name.apply(entity)), id.apply(entity));
+    }
+    return result;
+  }
+
+  private void insertLinks(String sql, List<ImportRow> rows, List<Long> bookIds,
+      Function<ImportRow, List<String>> names, Map<String, Long> ids) {
+    // A name differing only in case is the same author or category
+    List<long[]> links = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i++) {
+      Set<Long> linked = new HashSet<>();
+      for (String name : names.apply(rows.get(i))) {
+        Long id = ids.get(key(name));
+        if (linked.add(id)) {
+          links.add(new long[] {bookIds.get(i), id});
+        }
+      }
+    }
+    jdbcTemplate.batchUpdate(sql, links, links.size(), (ps, link) -> {
+      ps.setLong(1, link[0]);
+      ps.setLong(2, link[1]);
+    });
+  }
+
+  private void reject(ImportJob job, CsvWriter rejects, long record, Object isbn,
+      String reason) throws IOException {
+    job.rejected.incrementAndGet();
+    rejects.writeRecord(String.valueOf(record), isbn != null ? isbn.toString() : null, reason);
+  }
+
+  private static String key(String name) {
+    return name.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * A validated record of the import file.
+   */
+  private record ImportRow(long record, String title, String isbn, String description,
+      BigDecimal price, List<String> authors, List<String> categories) {
+
+    static ImportRow of(long record, Map<String, Object> fields) {
+      if (fields.isEmpty()) {
+        throw new IllegalArgumentException("Record is empty or not a JSON object");
+      }
+      String title = text(fields, "title");
+      if (title == null) {
+        throw new IllegalArgumentException("Title is missing");
+      }
+      String isbn = IsbnUtils.validate(text(fields, "isbn"));
+      String priceText = text(fields, "price");
+      if (priceText == null) {
+        throw new IllegalArgumentException("Price is missing");
+      }
+      BigDecimal price;
+      try {
+        price = new BigDecimal(priceText).setScale(2, RoundingMode.HALF_UP);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Price is not a number: " + priceText);
+      }
+      if (price.signum() < 0) {
+        throw new IllegalArgumentException("Price is negative");
+      }
+      List<String> authors = names(fields, "authors", "author");
+      List<String> categories = names(fields, "categories", "category");
+      String description = text(fields, "description");
+      checkLength("Title", title);
+      checkLength("Description", description);
+      authors.forEach(name -> checkLength("Author", name));
+      categories.forEach(name -> checkLength("Category", name));
+      return new ImportRow(record, title, isbn, description, price, authors, categories);
+    }
+
+    private static String text(Map<String, Object> fields, String name) {
+      Object value = fields.get(name);
+      if (value == null || value instanceof List || value instanceof Map) {
+        return null;
+      }
+      String text = value.toString().trim();
+      return text.isEmpty() ? null : text;
+    }
+
+    // A list, or names separated by ";"
+    private static List<String> names(Map<String, Object> fields, String... names) {
+      for (String name : names) {
+        Object value = fields.get(name);
+        if (value instanceof List<?> list) {
+          return list.stream().filter(item -> item != null && !item.toString().isBlank())
+              .map(item -> item.toString().trim()).toList();
+        }
+        if (value != null && !value.toString().isBlank()) {
+          return Arrays.stream(value.toString().split(";")).map(String::trim)
+              .filter(item -> !item.isEmpty()).toList();
+        }
+      }
+      return List.of();
+    }
+
+    private static void checkLength(String field, String value) {
+      if (value != null && value.length() > MAX_TEXT_LENGTH) {
+        throw new IllegalArgumentException(
+            field + " is longer than " + MAX_TEXT_LENGTH + " characters");
+      }
+    }
+  }
+
+  private enum Format {
+    CSV(".csv"),
+    NDJSON(".ndjson");
+
+    private final String extension;
+
+    Format(String extension) {
+      this.extension = extension;
+    }
+
+    static Format of(String fileName) {
+      String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+      if (name.endsWith(".csv")) {
+        return CSV;
+      }
+      if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+        return NDJSON;
+      }
+      throw new IllegalArgumentException("Only .csv, .ndjson and .jsonl files can be imported");
+    }
+  }
+
+  // Reads the fields of one record at a time, null at the end of the file
+  private interface RecordSource extends Closeable {
+
+    Map<String, Object> next() throws IOException;
+  }
+
+  private static final class CsvSource implements RecordSource {
+
+    private final CsvReader reader;
+    private final List<String> header;
+
+    CsvSource(InputStream in) throws IOException {
+      this.reader = new CsvReader(new BufferedReader(
+          new InputStreamReader(in, StandardCharsets.UTF_8)));
+      List<String> names = reader.next();
+      if (names == null) {
+        throw new IOException("The file is empty");
+      }
+      this.header = names.stream()
+          .map(name -> name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT)).toList();
+      if (!header.containsAll(List.of("title", "isbn", "price"))) {
+        throw new IOException("The header must contain the columns title, isbn and price");
+      }
+    }
+
+    @Override
+    public Map<String, Object> next() throws IOException {
+      List<String> values = reader.next();
+      if (values == null) {
+        return null;
+      }
+      Map<String, Object> fields = new HashMap<>();
+      for (int i = 0; i < header.size() && i < values.size(); i++) {
+        fields.put(header.get(i), values.get(i));
+      }
+      return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  private final class NdjsonSource implements RecordSource {
+
+    private final BufferedReader reader;
+
+    NdjsonSource(InputStream in) {
+      this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> next() throws IOException {
+      String line;
+      do {
+        line = reader.readLine();
+        if (line == null) {
+          return null;
+        }
+      } while (line.isBlank());
+      try {
+        Object value = objectMapper.readValue(line, Object.class);
+        // Records that are not objects have no fields and are rejected by the validation
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+      } catch (JsonProcessingException e) {
+        return Map.of();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  // Counts the bytes read from the file, for the progress of the import
+  private static final class CountingInputStream extends FilterInputStream {
+
+    private final AtomicLong count;
+
+    CountingInputStream(InputStream in, AtomicLong count) {
+      super(in);
+      this.count = count;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count.incrementAndGet();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count.addAndGet(n);
+      }
+      return n;
+    }
+  }
+
+  private static final class ImportJob {
+
+    private final String fileName;
+    private final Format format;
+    private final Path input;
+    private final Path rejectFile;
+    private final long totalBytes;
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    // IDs of the authors and categories by lower case name, filled as the import goes
+    private final Map<String, Long> authorIds = new HashMap<>();
+    private final Map<String, Long> categoryIds = new HashMap<>();
+    private volatile String state = "RUNNING";
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    ImportJob(String fileName, Format format, Path input, Path rejectFile, long totalBytes) {
+      this.fileName = fileName;
+      this.format = format;
+      this.input = input;
+      this.rejectFile = rejectFile;
+      this.totalBytes = totalBytes;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package com.project.service;
+
+import com.project.dto.BookListing;
+import com.project.dto.CatalogCursor;
+import com.project.dto.CatalogQuery;
+import com.project.dto.KeysetPage;
+import com.project.entity.BookEntity;
+import com.project.repository.BookRepository;
+import com.project.repository.BookSpecifications;
+import com.project.util.CatalogSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads catalog listings for any combination of search text, category, author, price range and
+ * sort. The criteria of a {@link CatalogQuery} are turned into one statement that selects the IDs
+ * of a page, the books on it are then loaded like every other listing.
+ *
+ * Pages are either numbered (offset pagination) or continue after the last book of the previous
+ * page (keyset pagination, bookstore.pagination.mode=keyset). With the (price, book_id) and
+ * (title, book_id) indexes of the V3 migration every keyset page costs the same, however deep
+ * the reader pages. Books without a sort key are listed after all others in ID order.
+ */
+@Service
+public class CatalogQueryService {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final BookRepository bookRepository;
+  private final BookListingService bookListingService;
+  private final boolean keysetEnabled;
+  private final boolean exactCount;
+
+  public CatalogQueryService(BookRepository bookRepository,
+      BookListingService bookListingService,
+      @Value("${bookstore.pagination.mode:offset}") String mode,
+      @Value("${bookstore.pagination.exact-count:false}") boolean exactCount) {
+    this.bookRepository = bookRepository;
+    this.bookListingService = bookListingService;
+    this.keysetEnabled = "keyset".equals(mode);
+    this.exactCount = exactCount;
+  }
+
+  /**
+   * Whether the catalog pages use keyset pagination (bookstore.pagination.mode=keyset).
+   */
+  public boolean isKeysetEnabled() {
+    return keysetEnabled;
+  }
+
+  /**
+   * Reads a numbered page of the matching books. The sort of the pageable is ignored, the order
+   * is the one of the query.
+   */
+  @Transactional(readOnly = true)
+  public Page<BookListing> findPage(CatalogQuery query, Pageable pageable) {
+    // The count is skipped when the page itself shows where the results end
+    return PageableExecutionUtils.getPage(findContent(query, pageable), pageable,
+        () -> count(query));
+  }
+
+  /**
+   * Reads the books of a numbered page without counting all matching books.
+   */
+  @Transactional(readOnly = true)
+  public List<BookListing> findContent(CatalogQuery query, Pageable pageable) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+    Root<BookEntity> book = cq.from(BookEntity.class);
+    List<Predicate> where = predicates(query, cb, cq, book);
+    cq.select(book.get("id"))
+        .where(where.toArray(Predicate[]::new))
+        .orderBy(orderBy(query.sort(), cb, book));
+    List<Long> ids = entityManager.createQuery(cq)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
+    return bookListingService.findByIds(ids);
+  }
+
+  /**
+   * Reads the page after the cursor.
+   *
+   * @param query The criteria and order of the books.
+   * @param cursor The nextCursor of the previous page, or null for the first page. A cursor of
+   *     another order or an invalid one starts from the first page.
+   * @param size The number of books per page.
+   * @return The page with the cursor of the next one.
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<BookListing> findPageAfter(CatalogQuery query, String cursor, int size) {
+    CatalogSort sort = query.sort();
+    CatalogCursor after = CatalogCursor.decode(cursor);
+    if (after != null && after.sort() != sort) {
+      after = null;
+    }
+
+    // One row more than the page tells whether there is a next page
+    List<Object[]> rows = new ArrayList<>();
+    boolean inNullRegion = sort.getProperty() != null && after != null && after.key() == null;
+    if (!inNullRegion) {
+      rows.addAll(readKeys(query, after, size + 1));
+    }
+    if (sort.getProperty() != null && rows.size() <= size) {
+      Long afterId = inNullRegion ? after.id() : null;
+      rows.addAll(readWithoutKey(query, afterId, size + 1 - rows.size()));
+    }
+
+    boolean hasNext = rows.size() > size;
+    List<Object[]> pageRows = hasNext ? rows.subList(0, size) : rows;
+    List<Long> ids = pageRows.stream().map(row -> (Long) row[0]).toList();
+    String nextCursor = null;
+    if (hasNext) {
+      Object[] last = pageRows.get(pageRows.size() - 1);
+      nextCursor = new CatalogCursor(sort, last[1] == null ? null : keyToString(last[1]),
+          (Long) last[0]).encode();
+    }
+    return new KeysetPage<>(bookListingService.findByIds(ids), nextCursor, totalEstimate(query));
+  }
+
+  /**
+   * IDs of all matching books in no particular order, for counting facets.
+   */
+  @Transactional(readOnly = true)
+  public List<Long> findIds(CatalogQuery query) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+    Root<BookEntity> book = cq.from(BookEntity.class);
+    cq.select(book.get("id")).where(predicates(query, cb, cq, book).toArray(Predicate[]::new));
+    return entityManager.createQuery(cq).getResultList();
+  }
+
+  @Transactional(readOnly = true)
+  public long count(CatalogQuery query) {
+    return bookRepository.count(BookSpecifications.matching(query));
+  }
+
+  // [id, sort key] of the books with a sort key after the cursor
+  private List<Object[]> readKeys(CatalogQuery query, CatalogCursor after, int limit) {
+    CatalogSort sort = query.sort();
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+    Root<BookEntity> book = cq.from(BookEntity.class);
+    Path<Long> id = book.get("id");
+    List<Predicate> where = predicates(query, cb, cq, book);
+
+    if (sort.getProperty() == null) {
+      if (after != null) {
+        where.add(cb.greaterThan(id, after.id()));
+      }
+      cq.multiselect(id, cb.nullLiteral(String.class));
+    } else {
+      Path<Comparable<Object>> key = book.get(sort.getProperty());
+      where.add(cb.isNotNull(key));
+      if (after != null) {
+        Comparable<Object> value = keyFromString(sort, after.key());
+        // (key, id) > (value, afterId), or < for descending orders. The redundant bound on the
+        // key alone lets PostgreSQL start the index scan at the cursor.
+        if (sort.isAscending()) {
+          where.add(cb.greaterThanOrEqualTo(key, value));
+          where.add(cb.or(cb.greaterThan(key, value),
+              cb.and(cb.equal(key, value), cb.greaterThan(id, after.id()))));
+        } else {
+          where.add(cb.lessThanOrEqualTo(key, value));
+          where.add(cb.or(cb.lessThan(key, value),
+              cb.and(cb.equal(key, value), cb.lessThan(id, after.id()))));
+        }
+      }
+      cq.multiselect(id, key);
+    }
+    cq.where(where.toArray(Predicate[]::new)).orderBy(orderBy(sort, cb, book));
+    return entityManager.createQuery(cq).setMaxResults(limit).getResultList();
+  }
+
+  // [id, null] of the books without a sort key after the given ID
+  private List<Object[]> readWithoutKey(CatalogQuery query, Long afterId, int limit) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+    Root<BookEntity> book = cq.from(BookEntity.class);
+    Path<Long> id = book.get("id");
+    List<Predicate> where = predicates(query, cb, cq, book);
+    where.add(cb.isNull(book.get(query.sort().getProperty())));
+    if (afterId != null) {
+      where.add(cb.greaterThan(id, afterId));
+    }
+    cq.multiselect(id, cb.nullLiteral(String.class))
+        .where(where.toArray(Predicate[]::new))
+        .orderBy(cb.asc(id));
+    return entityManager.createQuery(cq).setMaxResults(limit).getResultList();
+  }
+
+  // Exact if configured, otherwise the planner's row estimate of the table for the unfiltered
+  // catalog and unknown for filtered listings
+  private Long totalEstimate(CatalogQuery query) {
+    if (exactCount) {
+      return count(query);
+    }
+    if (!query.isUnfiltered()) {
+      return null;
+    }
+    Number estimate = (Number) entityManager.createNativeQuery(
+            "SELECT CAST(reltuples AS bigint) FROM pg_class "
+                + "WHERE oid = CAST('book_entity' AS regclass)")
+        .getSingleResult();
+    // -1 until the table has been analyzed
+    return estimate == null || estimate.longValue() < 0 ? null : estimate.longValue();
+  }
+
+  private static List<Predicate> predicates(CatalogQuery query, CriteriaBuilder cb,
+      CriteriaQuery<?> cq, Root<BookEntity> book) {
+    List<Predicate> predicates = new ArrayList<>();
+    Predicate predicate = BookSpecifications.matching(query).toPredicate(book, cq, cb);
+    if (predicate != null) {
+      predicates.add(predicate);
+    }
+    return predicates;
+  }
+
+  // Sort key, then ID in the same direction, matching the (key, book_id) indexes
+  private static List<Order> orderBy(CatalogSort sort, CriteriaBuilder cb,
+      Root<BookEntity> book) {
+    Path<Long> id = book.get("id");
+    if (sort.getProperty() == null) {
+      return List.of(cb.asc(id));
+    }
+    Path<Object> key = book.get(sort.getProperty());
+    return sort.isAscending()
+        ? List.of(cb.asc(key), cb.asc(id)) : List.of(cb.desc(key), cb.desc(id));
+  }
+
+  private static String keyToString(Object key) {
+    return key instanceof BigDecimal price ? price.toPlainString() : key.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> keyFromString(CatalogSort sort, String key) {
+    Comparable<?> value = "price".equals(sort.getProperty()) ? new BigDecimal(key) : key;
+    return (Comparable<Object>) value;
+  }
+}
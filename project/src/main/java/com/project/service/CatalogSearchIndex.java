@@ -0,0 +1,390 @@
+package com.project.service;
+
+import com.project.dto.BookListing;
+import com.project.event.BookChangedEvent;
+import com.project.event.BooksImportedEvent;
+import com.project.util.IsbnUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index over title, authors, categories, description and ISBN of all books,
+ * used for catalog search when {@code bookstore.search.mode=memory}.
+ *
+ * Every term maps to a sorted list of book IDs as primitive ints, with a weight per book for the
+ * most important field the term occurs in. All words of a query must match, the last one as a
+ * prefix, and results are ranked by the summed weights. The index is built when the application
+ * has started and updated whenever a book is added, edited or deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.search.mode", havingValue = "memory")
+public class CatalogSearchIndex {
+
+  private static final int TITLE_WEIGHT = 8;
+  private static final int ISBN_WEIGHT = 8;
+  private static final int AUTHOR_WEIGHT = 4;
+  private static final int CATEGORY_WEIGHT = 2;
+  private static final int DESCRIPTION_WEIGHT = 1;
+  private static final int BUILD_BATCH_SIZE = 1000;
+  private static final Logger logger = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+  private final BookListingService bookListingService;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Sorted, so all terms with a given prefix form one range
+  private final TreeMap<String, PostingList> postings = new TreeMap<>();
+  // Terms of every indexed book, to remove them again on update or delete
+  private final Map<Integer, String[]> documentTerms = new HashMap<>();
+  // IDs of all indexed books, the result of the empty query
+  private final BitSet documents = new BitSet();
+  private volatile boolean ready;
+
+  public CatalogSearchIndex(BookListingService bookListingService) {
+    this.bookListingService = bookListingService;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    long start = System.currentTimeMillis();
+    int count = 0;
+    Long afterId = 0L;
+    List<BookListing> batch;
+    do {
+      batch = bookListingService.findBatch(afterId, BUILD_BATCH_SIZE);
+      for (BookListing book : batch) {
+        index(book);
+        afterId = book.getId();
+      }
+      count += batch.size();
+    } while (batch.size() == BUILD_BATCH_SIZE);
+    ready = true;
+    logger.info("Search index built in {} ms: {} books, {} terms",
+        System.currentTimeMillis() - start, count, postings.size());
+  }
+
+  @EventListener
+  public void onBookChanged(BookChangedEvent event) {
+    if (event.type() == BookChangedEvent.Type.DELETED) {
+      remove(event.bookId());
+      return;
+    }
+    List<BookListing> books = bookListingService.findByIds(List.of(event.bookId()));
+    if (books.isEmpty()) {
+      remove(event.bookId());
+    } else {
+      index(books.get(0));
+    }
+  }
+
+  /**
+   * Indexes the books of a catalog import, which publishes one event per batch instead of a
+   * change event per book.
+   */
+  @EventListener
+  public void onBooksImported(BooksImportedEvent event) {
+    bookListingService.findByIds(event.bookIds()).forEach(this::index);
+  }
+
+  /**
+   * Adds a book to the index, replacing its previous terms.
+   */
+  public void index(BookListing book) {
+    Map<String, Integer> weights = new HashMap<>();
+    addTerms(weights, book.getTitle(), TITLE_WEIGHT);
+    for (String author : book.getAuthor()) {
+      addTerms(weights, author, AUTHOR_WEIGHT);
+    }
+    for (String category : book.getCategory()) {
+      addTerms(weights, category, CATEGORY_WEIGHT);
+    }
+    addTerms(weights, book.getDescription(), DESCRIPTION_WEIGHT);
+    addTerms(weights, book.getIsbn(), ISBN_WEIGHT);
+    // ISBNs are also searchable without hyphens
+    if (book.getIsbn() != null) {
+      weights.merge(book.getIsbn().replaceAll("[^0-9A-Za-z]", "").toLowerCase(), ISBN_WEIGHT,
+          Math::max);
+    }
+    weights.remove("");
+
+    int doc = Math.toIntExact(book.getId());
+    lock.writeLock().lock();
+    try {
+      removeTerms(doc);
+      for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+        postings.computeIfAbsent(entry.getKey(), term -> new PostingList())
+            .add(doc, entry.getValue());
+      }
+      documentTerms.put(doc, weights.keySet().toArray(new String[0]));
+      documents.set(doc);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeTerms(Math.toIntExact(bookId));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the books matching all words of the query, the best matches first. An empty query
+   * matches all books in ID order.
+   *
+   * @param query The search text as typed by the user.
+   * @return The IDs of the matching books.
+   */
+  public int[] search(String query) {
+    List<String> terms = tokenize(query);
+    lock.readLock().lock();
+    try {
+      // An ISBN typed with hyphens or spaces is a single term of the index
+      String isbn = terms.size() > 1 ? IsbnUtils.normalize(query.trim()).toLowerCase() : null;
+      if (isbn != null && postings.containsKey(isbn)) {
+        terms = List.of(isbn);
+      }
+      if (terms.isEmpty()) {
+        return documents.stream().toArray();
+      }
+
+      List<PostingList> lists = new ArrayList<>();
+      for (int i = 0; i < terms.size() - 1; i++) {
+        PostingList list = postings.get(terms.get(i));
+        if (list == null) {
+          return new int[0];
+        }
+        lists.add(list);
+      }
+      PostingList last = prefixUnion(terms.get(terms.size() - 1));
+      if (last.size == 0) {
+        return new int[0];
+      }
+      lists.add(last);
+      return rank(intersect(lists));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Merges the postings of all terms starting with the prefix, keeping the highest weight. The
+  // sorted lists are merged k-way through a min-heap of the lists, keyed by their next book.
+  private PostingList prefixUnion(String prefix) {
+    NavigableMap<String, PostingList> range = postings.subMap(prefix, true,
+        prefix + Character.MAX_VALUE, false);
+    if (range.size() == 1) {
+      return range.firstEntry().getValue();
+    }
+    PostingList[] lists = range.values().toArray(new PostingList[0]);
+    int[] positions = new int[lists.length];
+    int[] heap = new int[lists.length];
+    int heapSize = 0;
+    int total = 0;
+    for (int i = 0; i < lists.length; i++) {
+      if (lists[i].size > 0) {
+        heap[heapSize++] = i;
+        total += lists[i].size;
+      }
+    }
+    for (int i = heapSize / 2 - 1; i >= 0; i--) {
+      siftDown(heap, heapSize, i, lists, positions);
+    }
+
+    PostingList union = new PostingList(total);
+    while (heapSize > 0) {
+      PostingList list = lists[heap[0]];
+      int position = positions[heap[0]]++;
+      union.append(list.docs[position], list.weights[position]);
+      if (position + 1 == list.size) {
+        heap[0] = heap[--heapSize];
+      }
+      if (heapSize > 0) {
+        siftDown(heap, heapSize, 0, lists, positions);
+      }
+    }
+    return union;
+  }
+
+  private static void siftDown(int[] heap, int heapSize, int index, PostingList[] lists,
+      int[] positions) {
+    int list = heap[index];
+    int doc = lists[list].docs[positions[list]];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      int childDoc = lists[heap[child]].docs[positions[heap[child]]];
+      if (child + 1 < heapSize) {
+        int rightDoc = lists[heap[child + 1]].docs[positions[heap[child + 1]]];
+        if (rightDoc < childDoc) {
+          child++;
+          childDoc = rightDoc;
+        }
+      }
+      if (doc <= childDoc) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = list;
+  }
+
+  // Walks the shortest list and looks the books up in the others by binary search
+  private PostingList intersect(List<PostingList> lists) {
+    lists.sort((a, b) -> Integer.compare(a.size, b.size));
+    PostingList shortest = lists.get(0);
+    PostingList result = new PostingList(shortest.size);
+    for (int i = 0; i < shortest.size; i++) {
+      int doc = shortest.docs[i];
+      int score = shortest.weights[i];
+      boolean matches = true;
+      for (int j = 1; j < lists.size() && matches; j++) {
+        PostingList other = lists.get(j);
+        int index = Arrays.binarySearch(other.docs, 0, other.size, doc);
+        if (index < 0) {
+          matches = false;
+        } else {
+          score += other.weights[index];
+        }
+      }
+      if (matches) {
+        result.append(doc, score);
+      }
+    }
+    return result;
+  }
+
+  // Highest score first, then by ID. Score and ID are packed into one long per book, so the
+  // books are ordered by a primitive sort.
+  private int[] rank(PostingList matches) {
+    long[] keys = new long[matches.size];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = (long) (Integer.MAX_VALUE - matches.weights[i]) << 32 | matches.docs[i];
+    }
+    Arrays.sort(keys);
+    int[] docs = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      docs[i] = (int) keys[i];
+    }
+    return docs;
+  }
+
+  private void removeTerms(int doc) {
+    String[] terms = documentTerms.remove(doc);
+    if (terms == null) {
+      return;
+    }
+    documents.clear(doc);
+    for (String term : terms) {
+      PostingList list = postings.get(term);
+      if (list != null && list.remove(doc) && list.size == 0) {
+        postings.remove(term);
+      }
+    }
+  }
+
+  private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+    for (String term : tokenize(text)) {
+      weights.merge(term, weight, Math::max);
+    }
+  }
+
+  /**
+   * Splits text into lowercase words of letters and digits.
+   */
+  static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null) {
+      return terms;
+    }
+    for (String term : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+      if (!term.isEmpty()) {
+        terms.add(term);
+      }
+    }
+    return terms;
+  }
+
+  // Book IDs in ascending order with a parallel array of weights
+  private static final class PostingList {
+
+    private int[] docs;
+    private int[] weights;
+    private int size;
+
+    PostingList() {
+      this(4);
+    }
+
+    PostingList(int capacity) {
+      docs = new int[Math.max(capacity, 4)];
+      weights = new int[docs.length];
+    }
+
+    void add(int doc, int weight) {
+      int index = Arrays.binarySearch(docs, 0, size, doc);
+      if (index >= 0) {
+        weights[index] = weight;
+        return;
+      }
+      index = -index - 1;
+      grow();
+      System.arraycopy(docs, index, docs, index + 1, size - index);
+      System.arraycopy(weights, index, weights, index + 1, size - index);
+      docs[index] = doc;
+      weights[index] = weight;
+      size++;
+    }
+
+    // Adds a book after all others, or raises the weight of the last one to the higher weight
+    void append(int doc, int weight) {
+      if (size > 0 && docs[size - 1] == doc) {
+        weights[size - 1] = Math.max(weights[size - 1], weight);
+        return;
+      }
+      grow();
+      docs[size] = doc;
+      weights[size] = weight;
+      size++;
+    }
+
+    boolean remove(int doc) {
+      int index = Arrays.binarySearch(docs, 0, size, doc);
+      if (index < 0) {
+        return false;
+      }
+      System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+      System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+      size--;
+      return true;
+    }
+
+    private void grow() {
+      if (size == docs.length) {
+        docs = Arrays.copyOf(docs, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+    }
+  }
+}
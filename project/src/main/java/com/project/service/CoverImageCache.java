@@ -0,0 +1,139 @@
+package com.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.dto.CoverImage;
+import com.project.dto.StoredImage;
+import com.project.event.BookChangedEvent;
+import com.project.util.ImageVariant;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Byte-budgeted cache for cover images in front of the database.
+ *
+ * Images kept on disk by the filesystem storage are not cached, the operating system's page
+ * cache already holds the frequently requested files.
+ *
+ * Entries are weighted by their size and evicted with Caffeine's W-TinyLFU policy, so a few
+ * large covers cannot push out the frequently requested ones. With off-heap storage enabled the
+ * image bytes are kept in direct buffers, outside of the heap scanned by the garbage collector.
+ * Hits hand out the cached bytes, or a read-only view of the direct buffer, without copying.
+ */
+@Component
+public class CoverImageCache {
+
+  // Rough per-entry overhead of key, metadata and cache node
+  private static final int ENTRY_OVERHEAD = 200;
+
+  private final Cache<Key, Entry> cache;
+  private final long maxBytes;
+  private final boolean offHeap;
+
+  public CoverImageCache(@Value("${bookstore.image-cache.max-bytes:67108864}") long maxBytes,
+      @Value("${bookstore.image-cache.off-heap:false}") boolean offHeap) {
+    this.maxBytes = maxBytes;
+    this.offHeap = offHeap;
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher((Key key, Entry entry) -> entry.data().capacity() + ENTRY_OVERHEAD)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Looks up a cached cover.
+   *
+   * @param bookId The ID of the book.
+   * @param variant The resized copy, or null for the original.
+   * @return The cached image, or null on a miss.
+   */
+  public CoverImage get(Long bookId, ImageVariant variant) {
+    Entry entry = cache.getIfPresent(new Key(bookId, variant));
+    if (entry == null) {
+      return null;
+    }
+    // Hits hand out the cached bytes themselves, a read-only view for off-heap entries
+    ByteBuffer data = entry.data();
+    StoredImage image = data.isDirect()
+        ? StoredImage.ofBuffer(data) : StoredImage.ofBytes(data.array());
+    return new CoverImage(image, entry.hash(), entry.updatedAt(), entry.version());
+  }
+
+  /**
+   * Adds a loaded cover, unless the cache already holds a newer one. A request that read the
+   * metadata before the cover was replaced may finish after the newer cover was cached.
+   */
+  public void put(Long bookId, ImageVariant variant, CoverImage image) {
+    if (image.image().isFile() || image.image().isBuffer()) {
+      return;
+    }
+    byte[] bytes = image.image().getData();
+    ByteBuffer data;
+    if (offHeap) {
+      data = ByteBuffer.allocateDirect(bytes.length);
+      data.put(bytes).flip();
+    } else {
+      data = ByteBuffer.wrap(bytes);
+    }
+    cache.asMap().merge(new Key(bookId, variant),
+        new Entry(data, image.hash(), image.updatedAt(), image.version()),
+        (current, loaded) -> current.isNewerThan(loaded) ? current : loaded);
+  }
+
+  /**
+   * Removes the original and all resized copies of a book's cover.
+   */
+  public void invalidate(Long bookId) {
+    cache.invalidate(new Key(bookId, null));
+    for (ImageVariant variant : ImageVariant.values()) {
+      cache.invalidate(new Key(bookId, variant));
+    }
+  }
+
+  @EventListener
+  public void onBookChanged(BookChangedEvent event) {
+    if (event.type() != BookChangedEvent.Type.CREATED) {
+      invalidate(event.bookId());
+    }
+  }
+
+  /**
+   * Returns hit rate and memory usage, for sizing the cache against the real working set.
+   */
+  public Map<String, Object> getStats() {
+    CacheStats stats = cache.stats();
+    long weightedSize = cache.policy().eviction()
+        .map(eviction -> eviction.weightedSize().orElse(0L))
+        .orElse(0L);
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("entries", cache.estimatedSize());
+    result.put("usedBytes", weightedSize);
+    result.put("maxBytes", maxBytes);
+    result.put("offHeap", offHeap);
+    result.put("hitCount", stats.hitCount());
+    result.put("missCount", stats.missCount());
+    result.put("hitRate", stats.hitRate());
+    result.put("evictionCount", stats.evictionCount());
+    result.put("evictedBytes", stats.evictionWeight());
+    return result;
+  }
+
+  private record Key(Long bookId, ImageVariant variant) {
+  }
+
+  private record Entry(ByteBuffer data, String hash, Instant updatedAt, String version) {
+
+    // Images without a modification time are older than any with one
+    boolean isNewerThan(Entry other) {
+      return updatedAt != null && (other.updatedAt == null || updatedAt.isAfter(other.updatedAt));
+    }
+  }
+}
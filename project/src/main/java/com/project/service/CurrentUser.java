@@ -0,0 +1,145 @@
+package com.project.service;
+
+import com.project.dto.UserPrincipal;
+import com.project.entity.AccountEntity;
+import com.project.entity.Basket;
+import com.project.entity.BasketDetails;
+import com.project.entity.User;
+import com.project.util.Role;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * The logged-in user of the current request, loaded at most once per request.
+ *
+ * Roles come from the cached {@link UserPrincipal}, so pages that only need to know who is
+ * logged in do not read the users table. The account with its balance and basket, and the full
+ * user, are only loaded when asked for. Controllers and services should ask this bean instead of
+ * looking the user up by name again. Anonymous visitors are recognized without a query.
+ */
+@Component
+@RequestScope
+public class CurrentUser {
+
+  private final UserService userService;
+  private final AccountService accountService;
+  private final BasketWriteBehindStore writeBehindStore;
+  private boolean resolved;
+  private UserPrincipal principal;
+  private User user;
+  private AccountEntity account;
+
+  public CurrentUser(UserService userService, AccountService accountService,
+      BasketWriteBehindStore writeBehindStore) {
+    this.userService = userService;
+    this.accountService = accountService;
+    this.writeBehindStore = writeBehindStore;
+  }
+
+  /**
+   * Returns the identity and roles of the logged-in user, or null for anonymous visitors and
+   * unknown names.
+   */
+  public UserPrincipal getPrincipal() {
+    if (!resolved) {
+      Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+      if (authentication != null && authentication.isAuthenticated()
+          && !(authentication instanceof AnonymousAuthenticationToken)) {
+        principal = userService.findPrincipal(authentication.getName());
+      }
+      resolved = true;
+    }
+    return principal;
+  }
+
+  /**
+   * Returns the logged-in user with account and basket, or null for anonymous visitors and
+   * unknown names.
+   */
+  public User getUser() {
+    if (user == null && isLoggedIn()) {
+      user = userService.findByUsername(principal.username());
+    }
+    return user;
+  }
+
+  public boolean isLoggedIn() {
+    return getPrincipal() != null;
+  }
+
+  public boolean isAdmin() {
+    return isLoggedIn() && principal.hasRole(Role.ADMIN);
+  }
+
+  public AccountEntity getAccount() {
+    if (account == null && isLoggedIn()) {
+      if (user != null) {
+        account = user.getAccount();
+      } else if (principal.accountId() != null) {
+        account = accountService.getAccountById(principal.accountId());
+      }
+    }
+    return account;
+  }
+  public BigDecimal getBalance() {
+    AccountEntity account = getAccount();
+    return account != null ? account.getBalance() : null;
+  }
+
+  public Basket getBasket() {
+    AccountEntity account = getAccount();
+    return account != null ? account.getBasket() : null;
+  }
+
+  /**
+   * Number of books in the basket, counting every copy, including changes not yet written by
+   * the write-behind store.
+   */
+  public int getBasketItemCount() {
+    Basket basket = getBasket();
+    if (basket == null || basket.getBasketDetails() == null) {
+      return 0;
+    }
+    if (!writeBehindStore.isEnabled()) {
+      return basket.getBasketDetails().stream()
+          .mapToInt(detail -> detail.getQuantity() != null ? detail.getQuantity() : 0)
+          .sum();
+    }
+    Map<Long, Integer> quantities = new HashMap<>();
+    for (BasketDetails detail : basket.getBasketDetails()) {
+      if (detail.getQuantity() != null) {
+        quantities.merge(detail.getBook().getId(), detail.getQuantity(), Integer::sum);
+      }
+    }
+    return writeBehindStore.applyPending(account.getId(), quantities).values().stream()
+        .mapToInt(Integer::intValue)
+        .sum();
+  }
+
+  /**
+   * Adds the user, role, balance and basket size shown in the navigation of the catalog pages.
+   * Anonymous visitors get the user and role "null", as the templates expect.
+   */
+  public void addTo(Model model) {
+    if (!isLoggedIn()) {
+      model.addAttribute("user", "null");
+      model.addAttribute("role", "null");
+      return;
+    }
+    model.addAttribute("user", principal);
+    if (isAdmin()) {
+      model.addAttribute("role", "admin");
+    } else {
+      model.addAttribute("role", "user");
+      model.addAttribute("balance", getBalance());
+      model.addAttribute("basketItems", getBasketItemCount());
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.project.service;
+
+import com.project.dto.StoredImage;
+import com.project.entity.BookEntity;
+import com.project.entity.BookImageEntity;
+import com.project.repository.BookImageRepository;
+import com.project.repository.BookRepository;
+import com.project.util.ImageVariant;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps cover images as large objects in the book and derivative rows.
+ *
+ * Always present: with the filesystem storage enabled, it reads the images that have not been
+ * moved out of the database yet, and the filesystem storage takes precedence.
+ */
+@Service
+public class DatabaseImageStorage implements ImageStorage {
+
+  private final BookRepository bookRepository;
+  private final BookImageRepository bookImageRepository;
+
+  public DatabaseImageStorage(BookRepository bookRepository,
+      BookImageRepository bookImageRepository) {
+    this.bookRepository = bookRepository;
+    this.bookImageRepository = bookImageRepository;
+  }
+
+  @Override
+  public void storeOriginal(BookEntity book, byte[] data) {
+    book.setImage(data);
+  }
+
+  @Override
+  public void storeDerivative(BookImageEntity derivative, byte[] data) {
+    derivative.setImage(data);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public StoredImage read(Long bookId, ImageVariant variant, String hash) {
+    byte[] data = variant == null
+        ? bookRepository.findImageById(bookId).orElse(null)
+        : bookImageRepository.findImageByBookIdAndVariant(bookId, variant).orElse(null);
+    return data != null ? StoredImage.ofBytes(data) : null;
+  }
+}
@@ -0,0 +1,386 @@
+package com.project.service;
+
+import com.project.dto.BookListing;
+import com.project.dto.FacetCounts;
+import com.project.dto.FacetCounts.FacetValue;
+import com.project.dto.FacetCounts.PriceBand;
+import com.project.event.BookChangedEvent;
+import com.project.event.BooksImportedEvent;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the categories, authors and price of every book by book ID, so the facet counts of any
+ * result set are computed by one walk over its IDs instead of a GROUP BY query per facet. Memory
+ * grows with the number of books and their facets, not with books times facet values. Built at
+ * startup and updated on catalog changes.
+ */
+@Component
+public class FacetIndex {
+
+  private static final int MAX_VALUES = 10;
+  private static final int BUILD_BATCH_SIZE = 1000;
+  // Lower bounds of the price bands in cents, the last band is open-ended
+  private static final long[] PRICE_BAND_CENTS = {0, 1000, 2000, 5000, 10000};
+  private static final int[] NONE = new int[0];
+  private static final Logger logger = LoggerFactory.getLogger(FacetIndex.class);
+
+  private final BookListingService bookListingService;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final BitSet all = new BitSet();
+  private final FacetValues categories = new FacetValues();
+  private final FacetValues authors = new FacetValues();
+  // Price in cents per book ID, -1 for books without a price
+  private long[] prices = new long[0];
+  // Counts of the whole catalog, computed on first use and dropped on every change
+  private volatile FacetCounts allCounts;
+
+  public FacetIndex(BookListingService bookListingService) {
+    this.bookListingService = bookListingService;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    long start = System.currentTimeMillis();
+    Long afterId = 0L;
+    List<BookListing> batch;
+    do {
+      batch = bookListingService.findBatch(afterId, BUILD_BATCH_SIZE);
+      for (BookListing book : batch) {
+        index(book);
+        afterId = book.getId();
+      }
+    } while (batch.size() == BUILD_BATCH_SIZE);
+    logger.info("Facet index built in {} ms: {} books, {} categories, {} authors",
+        System.currentTimeMillis() - start, all.cardinality(), categories.size(),
+        authors.size());
+  }
+
+  @EventListener
+  public void onBookChanged(BookChangedEvent event) {
+    if (event.type() == BookChangedEvent.Type.DELETED) {
+      remove(event.bookId());
+      return;
+    }
+    List<BookListing> found = bookListingService.findByIds(List.of(event.bookId()));
+    if (found.isEmpty()) {
+      remove(event.bookId());
+    } else {
+      index(found.get(0));
+    }
+  }
+
+  /**
+   * Adds the books of a catalog import, which publishes one event per batch instead of a change
+   * event per book.
+   */
+  @EventListener
+  public void onBooksImported(BooksImportedEvent event) {
+    bookListingService.findByIds(event.bookIds()).forEach(this::index);
+  }
+
+  public void index(BookListing book) {
+    int doc = Math.toIntExact(book.getId());
+    long price = toCents(book.getPrice());
+
+    lock.writeLock().lock();
+    try {
+      removeBook(doc);
+      all.set(doc);
+      categories.add(doc, book.getCategory());
+      authors.add(doc, book.getAuthor());
+      if (doc >= prices.length) {
+        int oldLength = prices.length;
+        prices = Arrays.copyOf(prices, Math.max(doc + 1, oldLength * 2));
+        Arrays.fill(prices, oldLength, prices.length, -1);
+      }
+      prices[doc] = price;
+      allCounts = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeBook(Math.toIntExact(bookId));
+      allCounts = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the IDs of all books.
+   */
+  public BitSet all() {
+    lock.readLock().lock();
+    try {
+      return (BitSet) all.clone();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the IDs of the books with a price within the range, including both bounds.
+   */
+  public BitSet withPriceBetween(double minPrice, double maxPrice) {
+    long min = toCents(BigDecimal.valueOf(minPrice));
+    long max = toCents(BigDecimal.valueOf(maxPrice));
+    BitSet result = new BitSet();
+    lock.readLock().lock();
+    try {
+      for (int doc = all.nextSetBit(0); doc >= 0; doc = all.nextSetBit(doc + 1)) {
+        long price = prices[doc];
+        if (price >= min && price <= max) {
+          result.set(doc);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  /**
+   * Counts the books per category, author and price band within the whole catalog. The counts
+   * only change with the index, so they are computed once per change instead of per request.
+   */
+  public FacetCounts countAll() {
+    FacetCounts counts = allCounts;
+    if (counts != null) {
+      return counts;
+    }
+    lock.readLock().lock();
+    try {
+      // Writers are blocked while the read lock is held, so the counts cannot be stale
+      counts = allCounts;
+      if (counts == null) {
+        counts = count(all);
+        allCounts = counts;
+      }
+      return counts;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts the books per category, author and price band within the given results. Walks the
+   * IDs of the results once and adds up the facets of each book, so the cost depends on the
+   * size of the results and not on the number of authors or categories.
+   *
+   * @param matches The IDs of the books in the results.
+   * @return The facet counts.
+   */
+  public FacetCounts count(BitSet matches) {
+    lock.readLock().lock();
+    try {
+      int total = 0;
+      int[] bandCounts = new int[PRICE_BAND_CENTS.length];
+      FacetTally categoryTally = categories.tally();
+      FacetTally authorTally = authors.tally();
+      for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+        if (!all.get(doc)) {
+          continue;
+        }
+        total++;
+        categoryTally.add(categories.of(doc));
+        authorTally.add(authors.of(doc));
+        if (prices[doc] >= 0) {
+          bandCounts[bandOf(prices[doc])]++;
+        }
+      }
+      List<PriceBand> bands = new ArrayList<>();
+      for (int i = 0; i < bandCounts.length; i++) {
+        if (bandCounts[i] > 0) {
+          double min = PRICE_BAND_CENTS[i] / 100.0;
+          Double max = i + 1 < PRICE_BAND_CENTS.length ? PRICE_BAND_CENTS[i + 1] / 100.0 : null;
+          String label = max != null
+              ? String.format("%.0f – %.0f €", min, max) : String.format("%.0f € and more", min);
+          bands.add(new PriceBand(label, min, max, bandCounts[i]));
+        }
+      }
+      // Unmodifiable, as the counts of the whole catalog are shared between requests
+      return new FacetCounts(total, categoryTally.top(), authorTally.top(), List.copyOf(bands));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeBook(int doc) {
+    if (!all.get(doc)) {
+      return;
+    }
+    all.clear(doc);
+    categories.remove(doc);
+    authors.remove(doc);
+    prices[doc] = -1;
+  }
+
+  private static int bandOf(long cents) {
+    int band = 0;
+    while (band + 1 < PRICE_BAND_CENTS.length && cents >= PRICE_BAND_CENTS[band + 1]) {
+      band++;
+    }
+    return band;
+  }
+
+  private static long toCents(BigDecimal price) {
+    return price != null ? price.movePointRight(2).longValue() : -1;
+  }
+
+  /**
+   * The values of one facet, e.g. all authors. Every distinct value, ignoring case, gets a
+   * number, and every book keeps the sorted numbers of its values. Numbers of values no book
+   * has anymore are reused.
+   */
+  private static final class FacetValues {
+
+    private final Map<String, Integer> numbers = new HashMap<>();
+    private String[] labels = new String[16];
+    // Number of books per value
+    private int[] sizes = new int[16];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int nextNumber;
+    // Value numbers per book ID
+    private int[][] books = new int[0][];
+
+    int size() {
+      return numbers.size();
+    }
+
+    int[] of(int doc) {
+      int[] values = doc < books.length ? books[doc] : null;
+      return values != null ? values : NONE;
+    }
+
+    void add(int doc, List<String> values) {
+      Set<String> keys = new LinkedHashSet<>();
+      int[] docValues = new int[values.size()];
+      int count = 0;
+      for (String value : values) {
+        if (value == null || value.isBlank() || !keys.add(value.trim().toLowerCase())) {
+          continue;
+        }
+        int number = numberOf(value.trim());
+        sizes[number]++;
+        docValues[count++] = number;
+      }
+      if (doc >= books.length) {
+        books = Arrays.copyOf(books, Math.max(doc + 1, books.length * 2));
+      }
+      docValues = Arrays.copyOf(docValues, count);
+      Arrays.sort(docValues);
+      books[doc] = count > 0 ? docValues : null;
+    }
+
+    void remove(int doc) {
+      for (int number : of(doc)) {
+        if (--sizes[number] == 0) {
+          numbers.remove(labels[number].toLowerCase());
+          labels[number] = null;
+          if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+          }
+          free[freeCount++] = number;
+        }
+      }
+      if (doc < books.length) {
+        books[doc] = null;
+      }
+    }
+
+    FacetTally tally() {
+      return new FacetTally(this, nextNumber);
+    }
+
+    private int numberOf(String label) {
+      Integer existing = numbers.get(label.toLowerCase());
+      if (existing != null) {
+        return existing;
+      }
+      int number = freeCount > 0 ? free[--freeCount] : nextNumber++;
+      if (number >= labels.length) {
+        labels = Arrays.copyOf(labels, labels.length * 2);
+        sizes = Arrays.copyOf(sizes, sizes.length * 2);
+      }
+      labels[number] = label;
+      numbers.put(label.toLowerCase(), number);
+      return number;
+    }
+  }
+
+  /**
+   * Counts of the values of one facet within a set of results.
+   */
+  private static final class FacetTally {
+
+    private final FacetValues values;
+    private final int[] counts;
+    // Numbers of the values counted at least once, so only these are looked at afterwards
+    private int[] seen = new int[16];
+    private int seenCount;
+
+    FacetTally(FacetValues values, int numbers) {
+      this.values = values;
+      this.counts = new int[numbers];
+    }
+
+    void add(int[] numbers) {
+      for (int number : numbers) {
+        if (counts[number]++ == 0) {
+          if (seenCount == seen.length) {
+            seen = Arrays.copyOf(seen, seenCount * 2);
+          }
+          seen[seenCount++] = number;
+        }
+      }
+    }
+
+    // The most frequent values, largest first, kept in a short sorted array while walking
+    List<FacetValue> top() {
+      int[] best = new int[Math.min(MAX_VALUES, seenCount)];
+      int bestCount = 0;
+      for (int i = 0; i < seenCount; i++) {
+        int number = seen[i];
+        if (bestCount == best.length && !before(number, best[bestCount - 1])) {
+          continue;
+        }
+        int position = bestCount < best.length ? bestCount++ : bestCount - 1;
+        while (position > 0 && before(number, best[position - 1])) {
+          best[position] = best[position - 1];
+          position--;
+        }
+        best[position] = number;
+      }
+      List<FacetValue> result = new ArrayList<>(bestCount);
+      for (int i = 0; i < bestCount; i++) {
+        result.add(new FacetValue(values.labels[best[i]], counts[best[i]]));
+      }
+      return List.copyOf(result);
+    }
+
+    private boolean before(int a, int b) {
+      return counts[a] != counts[b]
+          ? counts[a] > counts[b] : values.labels[a].compareTo(values.labels[b]) < 0;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.project.service;
+
+import com.project.dto.StoredImage;
+import com.project.entity.BookEntity;
+import com.project.entity.BookImageEntity;
+import com.project.util.ImageVariant;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Array;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps cover images as files on local disk, named after their SHA-256 hash, so serving an image
+ * does not need a database connection. Identical images are stored once.
+ *
+ * Files are never overwritten: a changed cover gets a new hash and thereby a new file. Files no
+ * book or resized copy refers to any more are deleted by a periodic sweep, once they are older
+ * than the grace period, so an upload whose rows are not committed yet keeps its file. Images
+ * that have not been moved out of the database yet are still read from there.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "bookstore.images.storage", havingValue = "filesystem")
+public class FileSystemImageStorage implements ImageStorage {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileSystemImageStorage.class);
+  // Hashes looked up per query during the sweep
+  private static final int SWEEP_BATCH_SIZE = 1000;
+
+  private final Path root;
+  private final DatabaseImageStorage databaseStorage;
+  private final JdbcTemplate jdbcTemplate;
+  private final Duration orphanGracePeriod;
+
+  public FileSystemImageStorage(@Value("${bookstore.images.storage-path:images}") String root,
+      @Value("${bookstore.images.orphan-grace-minutes:60}") long orphanGraceMinutes,
+      DatabaseImageStorage databaseStorage, JdbcTemplate jdbcTemplate) {
+    this.root = Paths.get(root).toAbsolutePath().normalize();
+    this.orphanGracePeriod = Duration.ofMinutes(orphanGraceMinutes);
+    this.databaseStorage = databaseStorage;
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void storeOriginal(BookEntity book, byte[] data) {
+    write(book.getImageHash(), data);
+    book.setImage(null);
+  }
+
+  @Override
+  public void storeDerivative(BookImageEntity derivative, byte[] data) {
+    write(derivative.getImageHash(), data);
+    derivative.setImage(null);
+  }
+
+  @Override
+  public StoredImage read(Long bookId, ImageVariant variant, String hash) {
+    if (hash != null) {
+      Path file = pathOf(hash);
+      try {
+        return StoredImage.ofFile(file, Files.size(file));
+      } catch (IOException e) {
+        // Not on disk (yet), fall through to the database
+      }
+    }
+    return databaseStorage.read(bookId, variant, hash);
+  }
+
+  /**
+   * Writes an image under its hash, unless a file with that hash already exists.
+   *
+   * The image is written to a temporary file first and then moved into place, so readers never
+   * see a partially written file.
+   */
+  public void write(String hash, byte[] data) {
+    Path target = pathOf(hash);
+    try {
+      if (Files.exists(target)) {
+        // Used again: restart the grace period, so the sweep does not delete it before the
+        // rows referring to it are committed
+        Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        return;
+      }
+      Files.createDirectories(target.getParent());
+      Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+      try {
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store image " + hash, e);
+    }
+  }
+
+  /**
+   * Deletes the image files no book or resized copy refers to, and leftover temporary files,
+   * that are older than the grace period.
+   *
+   * @return The number of deleted files.
+   */
+  @Scheduled(fixedDelayString = "${bookstore.images.orphan-sweep-interval-minutes:360}",
+      initialDelayString = "${bookstore.images.orphan-sweep-interval-minutes:360}",
+      timeUnit = TimeUnit.MINUTES)
+  public int sweepOrphans() {
+    if (!Files.isDirectory(root)) {
+      return 0;
+    }
+    FileTime cutoff = FileTime.from(Instant.now().minus(orphanGracePeriod));
+    int deleted = 0;
+    List<Path> batch = new ArrayList<>();
+    try (Stream<Path> files = Files.walk(root, 3)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (!Files.isRegularFile(file) || Files.getLastModifiedTime(file).compareTo(cutoff) > 0) {
+          continue;
+        }
+        if (!file.getFileName().toString().matches("[0-9a-f]{64}")) {
+          deleted += delete(file) ? 1 : 0; // Temporary file of an interrupted write
+          continue;
+        }
+        batch.add(file);
+        if (batch.size() == SWEEP_BATCH_SIZE) {
+          deleted += deleteUnreferenced(batch);
+          batch.clear();
+        }
+      }
+      deleted += deleteUnreferenced(batch);
+    } catch (IOException e) {
+      logger.warn("Image file sweep failed after {} files", deleted, e);
+    }
+    if (deleted > 0) {
+      logger.info("Deleted {} unreferenced image files", deleted);
+    }
+    return deleted;
+  }
+
+  private int deleteUnreferenced(List<Path> files) {
+    if (files.isEmpty()) {
+      return 0;
+    }
+    String[] hashes = files.stream().map(file -> file.getFileName().toString())
+        .toArray(String[]::new);
+    // Uses the image hash indexes of V10
+    Set<String> referenced = new HashSet<>(jdbcTemplate.query(
+        "SELECT h FROM unnest(?) AS h WHERE EXISTS (SELECT 1 FROM book_entity b "
+            + "WHERE b.image_hash = h) OR EXISTS (SELECT 1 FROM book_image_entity i "
+            + "WHERE i.image_hash = h)",
+        ps -> {
+          Array array = ps.getConnection().createArrayOf("varchar", hashes);
+          ps.setArray(1, array);
+        },
+        (rs, rowNum) -> rs.getString(1)));
+    int deleted = 0;
+    for (Path file : files) {
+      if (!referenced.contains(file.getFileName().toString()) && delete(file)) {
+        deleted++;
+      }
+    }
+    return deleted;
+  }
+
+  private static boolean delete(Path file) {
+    try {
+      return Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Could not delete image file {}: {}", file, e.getMessage());
+      return false;
+    }
+  }
+
+  // Two directory levels keep the number of files per directory small: ab/cd/abcd...
+  private Path pathOf(String hash) {
+    if (!hash.matches("[0-9a-f]{64}")) {
+      throw new IllegalArgumentException("Invalid image hash: " + hash);
+    }
+    return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+  }
+}
@@ -1,15 +1,21 @@
 package com.project.service;
 
-import com.project.entity.BookEntity;
-import com.project.entity.CategoryEntity;
+import com.project.dto.BookListing;
+import com.project.dto.CatalogQuery;
+import com.project.dto.FacetCounts;
+import com.project.dto.KeysetPage;
 import com.project.repository.BookRepository;
-import com.project.repository.CategoryRepository;
+import com.project.util.IsbnUtils;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class FilterService {
@@ -17,35 +23,143 @@ public class FilterService {
   @Autowired
   private BookRepository bookRepository;
 
-  @Transactional(readOnly = true)
-  public Page<BookEntity> filterBooksByPriceRange(Double minPrice, Double maxPrice,
-      org.springframework.data.domain.Pageable pageable) {
-    return bookRepository.findByPriceBetween(minPrice, maxPrice, pageable);
+  @Autowired
+  private BookListingService bookListingService;
+
+  // Only present with bookstore.search.mode=memory
+  @Autowired
+  private ObjectProvider<CatalogSearchIndex> catalogSearchIndex;
+
+  @Autowired
+  private FacetIndex facetIndex;
+
+  @Autowired
+  private SearchResultCache searchResultCache;
+
+  @Autowired
+  private CatalogQueryService catalogQueryService;
+
+  // "like" (substring match), "fulltext" (PostgreSQL full-text search) or "memory"
+  @Value("${bookstore.search.mode:like}")
+  private String searchMode;
+
+  /**
+   * Numbered page of the books matching all criteria of the query, in the order of the query.
+   * Text, category, author and price range are combined into one statement.
+   */
+  public Page<BookListing> findBooks(CatalogQuery query, Pageable pageable) {
+    CatalogQuery normalized = normalize(query);
+    return searchResultCache.get("catalog",
+        () -> catalogQueryService.findPage(normalized, pageable),
+        normalized, pageable.getPageNumber(), pageable.getPageSize());
   }
-  // Get all books sorted by price (low to high)
-  @Transactional(readOnly = true)
-  public Page<BookEntity> getBooksSortedByPrice(Pageable pageable) {
-    return bookRepository.findAllByOrderByPriceAsc(pageable);
+
+  // Same as findBooks, for listings whose number of books is known already
+  public Page<BookListing> findBooks(CatalogQuery query, Pageable pageable, long total) {
+    CatalogQuery normalized = normalize(query);
+    return searchResultCache.get("catalogContent",
+        () -> new PageImpl<>(catalogQueryService.findContent(normalized, pageable), pageable,
+            total),
+        normalized, pageable.getPageNumber(), pageable.getPageSize(), total);
   }
 
-  // Get all books without filtering
-  @Transactional(readOnly = true)
-  public Page<BookEntity> getAllBooks(Pageable pageable) {
-    return bookRepository.findAll(pageable); // Default, no filtering
+  public boolean isKeysetPagination() {
+    return catalogQueryService.isKeysetEnabled();
   }
 
-  @Transactional(readOnly = true)
-  public List<BookEntity> filterByCategory(String category) {
-    return bookRepository.findAllByCategoryContainsIgnoreCase(category, Pageable.unpaged());
+  // Keyset pages are ordered by a column, so only the unranked "like" search can use them
+  public boolean isKeysetSearch() {
+    return catalogQueryService.isKeysetEnabled() && "like".equals(searchMode);
   }
 
+  // Page of the books matching the query after the cursor
+  public KeysetPage<BookListing> findBooksAfter(CatalogQuery query, String cursor, int size) {
+    CatalogQuery normalized = normalize(query);
+    return searchResultCache.get("keyset",
+        () -> catalogQueryService.findPageAfter(normalized, cursor, size),
+        normalized, cursor, size);
+  }
+
+  // Facet counts for the same books as findBooks
+  public FacetCounts catalogFacets(CatalogQuery query) {
+    if (query.isUnfiltered()) {
+      return allFacets();
+    }
+    if (query.isPriceRangeOnly()) {
+      // Same open upper bound as the filter pages
+      return priceRangeFacets(query.minPrice() != null ? query.minPrice() : 0,
+          query.maxPrice() != null ? query.maxPrice() : 1000000);
+    }
+    CatalogQuery normalized = normalize(query);
+    return searchResultCache.get("catalogFacets", () -> {
+      BitSet matches = new BitSet();
+      for (Long id : catalogQueryService.findIds(normalized)) {
+        matches.set(Math.toIntExact(id));
+      }
+      return facetIndex.count(matches);
+    }, normalized);
+  }
+
+  // The query with normalized search text. It is both the cache key and the query that is run,
+  // so equivalent queries share cache entries and every entry holds the results of its key.
+  private static CatalogQuery normalize(CatalogQuery query) {
+    return new CatalogQuery(SearchResultCache.normalize(query.text()), query.category(),
+        query.author(), query.minPrice(), query.maxPrice(), query.sort());
+  }
 
   // Search for books by title or author
-  @Transactional(readOnly = true)
-  public Page<BookEntity> searchBooks(String query, Pageable pageable) {
-    return bookRepository
-        .findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCaseOrCategoryContainingIgnoreCaseOrDescriptionContainsIgnoreCaseOrIsbn(query, query,query,query, query, pageable);
+  public Page<BookListing> searchBooks(String query, Pageable pageable) {
+    String normalized = SearchResultCache.normalize(query);
+    return searchResultCache.get("search", () -> loadSearchPage(normalized, pageable),
+        normalized, pageable.getPageNumber(), pageable.getPageSize(),
+        pageable.getSort().toString());
   }
-}
 
+  private Page<BookListing> loadSearchPage(String query, Pageable pageable) {
+    CatalogSearchIndex index = catalogSearchIndex.getIfAvailable();
+    if (index != null && index.isReady()) {
+      // Only the books on the requested page are loaded from the database
+      int[] ids = index.search(query);
+      int from = (int) Math.min(pageable.getOffset(), ids.length);
+      int to = Math.min(from + pageable.getPageSize(), ids.length);
+      List<Long> pageIds = Arrays.stream(ids, from, to).mapToObj(Long::valueOf).toList();
+      return new PageImpl<>(bookListingService.findByIds(pageIds), pageable, ids.length);
+    }
+    if ("fulltext".equals(searchMode)) {
+      return bookListingService.searchFullText(query, pageable);
+    }
+    return bookListingService.search(query, pageable);
+  }
+
+  // Facet counts for the same results as searchBooks
+  public FacetCounts searchFacets(String query) {
+    String normalized = SearchResultCache.normalize(query);
+    return searchResultCache.get("searchFacets", () -> loadSearchFacets(normalized), normalized);
+  }
 
+  private FacetCounts loadSearchFacets(String query) {
+    BitSet matches = new BitSet();
+    CatalogSearchIndex index = catalogSearchIndex.getIfAvailable();
+    if (index != null && index.isReady()) {
+      for (int id : index.search(query)) {
+        matches.set(id);
+      }
+    } else {
+      List<Long> ids = "fulltext".equals(searchMode)
+          ? bookRepository.searchIdsFullText(query, IsbnUtils.normalize(query))
+          : bookRepository.searchIds(query, IsbnUtils.normalize(query));
+      for (Long id : ids) {
+        matches.set(Math.toIntExact(id));
+      }
+    }
+    return facetIndex.count(matches);
+  }
+
+  public FacetCounts priceRangeFacets(Double minPrice, Double maxPrice) {
+    return facetIndex.count(facetIndex.withPriceBetween(minPrice, maxPrice));
+  }
+
+  public FacetCounts allFacets() {
+    return facetIndex.countAll();
+  }
+}
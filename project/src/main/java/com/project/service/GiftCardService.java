@@ -22,6 +22,9 @@ public class GiftCardService {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private UserPrincipalCache userPrincipalCache;
+
   /**
    * Redeems a gift card by adding its balance to the user's account.
    * The gift card is marked as redeemed after processing.
@@ -53,6 +56,7 @@ public class GiftCardService {
     // Add the gift card balance to the account balance
     account.setBalance(account.getBalance().add(giftCard.getBalance()));
     accountRepository.save(account);
+    userPrincipalCache.invalidate(user.getUsername());
     // Mark the gift card as redeemed
     giftCard.setRedeemed(true);
     giftCard.setAccountEntity(account);
@@ -1,7 +1,10 @@
 package com.project.service;
 
-import com.project.entity.BookEntity;
-import com.project.repository.BookRepository;
+import com.project.dto.BookListing;
+import com.project.dto.CatalogQuery;
+import com.project.dto.FacetCounts;
+import com.project.dto.KeysetPage;
+import com.project.util.CatalogSort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -9,16 +12,33 @@ import org.springframework.stereotype.Service;
 @Service
 public class HomeService {
 
-  private final BookRepository bookRepository;
+  private final BookListingService bookListingService;
+  private final FacetIndex facetIndex;
+  private final CatalogQueryService catalogQueryService;
 
 
-  public HomeService(BookRepository bookRepository) {
-    this.bookRepository = bookRepository;
+  public HomeService(BookListingService bookListingService, FacetIndex facetIndex,
+      CatalogQueryService catalogQueryService) {
+    this.bookListingService = bookListingService;
+    this.facetIndex = facetIndex;
+    this.catalogQueryService = catalogQueryService;
   }
 
 
-  public Page<BookEntity> bookList(Pageable pageable) {
-    return bookRepository.findAll(pageable);
+  public Page<BookListing> bookList(Pageable pageable) {
+    return bookListingService.findAll(pageable);
+  }
+
+  public boolean isKeysetPagination() {
+    return catalogQueryService.isKeysetEnabled();
+  }
+
+  public KeysetPage<BookListing> bookListAfter(String cursor, int size) {
+    return catalogQueryService.findPageAfter(CatalogQuery.all(CatalogSort.ID), cursor, size);
+  }
+
+  public FacetCounts facets() {
+    return facetIndex.countAll();
   }
 
 
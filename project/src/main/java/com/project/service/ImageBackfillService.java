@@ -0,0 +1,102 @@
+package com.project.service;
+
+import com.project.entity.BookImageEntity;
+import com.project.repository.BookRepository;
+import com.project.util.ImageVariant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generates the resized cover copies for books that were stored before derivatives existed.
+ *
+ * Books are processed in parallel. Every task reads the original and saves the derivatives in
+ * two short transactions and resizes in between, so the connection pool is not held while
+ * images are being encoded.
+ */
+@Service
+public class ImageBackfillService {
+
+  // Bounded below the connection pool size so regular requests still get connections
+  private static final int MAX_THREADS = 4;
+  private static final Logger logger = LoggerFactory.getLogger(ImageBackfillService.class);
+
+  private final BookRepository bookRepository;
+  private final BookImageService bookImageService;
+  private final ImageDerivativeService imageDerivativeService;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  public ImageBackfillService(BookRepository bookRepository, BookImageService bookImageService,
+      ImageDerivativeService imageDerivativeService) {
+    this.bookRepository = bookRepository;
+    this.bookImageService = bookImageService;
+    this.imageDerivativeService = imageDerivativeService;
+  }
+
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  /**
+   * Starts the backfill in the background.
+   *
+   * @return false if a backfill is already running.
+   */
+  public boolean startBackfill() {
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    Thread thread = new Thread(() -> {
+      try {
+        runBackfill();
+      } finally {
+        running.set(false);
+      }
+    }, "image-backfill");
+    thread.setDaemon(true);
+    thread.start();
+    return true;
+  }
+
+  private void runBackfill() {
+    List<Long> bookIds = bookRepository.findIdsWithMissingImageDerivatives(
+        ImageVariant.values().length);
+    logger.info("Image backfill started for {} books", bookIds.size());
+    long start = System.currentTimeMillis();
+
+    int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    for (Long bookId : bookIds) {
+      executor.submit(() -> {
+        try {
+          byte[] original = bookImageService.getImage(bookId);
+          if (original == null) {
+            return;
+          }
+          List<BookImageEntity> derivatives = imageDerivativeService.createDerivatives(original);
+          created.addAndGet(bookImageService.saveMissingDerivatives(bookId, original, derivatives));
+        } catch (RuntimeException e) {
+          failed.incrementAndGet();
+          logger.warn("Image backfill failed for book {}: {}", bookId, e.getMessage());
+        }
+      });
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.DAYS);
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    logger.info("Image backfill finished in {} ms: {} derivatives created, {} books failed",
+        System.currentTimeMillis() - start, created.get(), failed.get());
+  }
+}
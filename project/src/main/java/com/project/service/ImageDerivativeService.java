@@ -0,0 +1,141 @@
+package com.project.service;
+
+import com.project.entity.BookImageEntity;
+import com.project.util.ImageVariant;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Produces the resized JPEG copies of a cover image for every {@link ImageVariant}.
+ */
+@Service
+public class ImageDerivativeService {
+
+  private static final float JPEG_QUALITY = 0.8f;
+  private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+  /**
+   * Generates one derivative per variant from the original image. The result is empty if the
+   * image format cannot be decoded, in which case the original is served for all sizes.
+   *
+   * @param original The original image bytes.
+   * @return The derivatives, not yet attached to a book.
+   */
+  public List<BookImageEntity> createDerivatives(byte[] original) {
+    List<BookImageEntity> derivatives = new ArrayList<>();
+    BufferedImage source;
+    try {
+      source = ImageIO.read(new ByteArrayInputStream(original));
+    } catch (IOException e) {
+      logger.warn("Could not decode cover image: {}", e.getMessage());
+      return derivatives;
+    }
+    if (source == null) {
+      logger.warn("Unsupported cover image format, skipping derivatives");
+      return derivatives;
+    }
+
+    Instant now = Instant.now();
+    for (ImageVariant variant : ImageVariant.values()) {
+      BufferedImage resized = resize(source, variant.getMaxWidth(), variant.getMaxHeight());
+      byte[] data;
+      try {
+        data = writeJpeg(resized);
+      } catch (IOException e) {
+        logger.warn("Could not encode {} derivative: {}", variant, e.getMessage());
+        continue;
+      }
+      BookImageEntity derivative = new BookImageEntity();
+      derivative.setVariant(variant);
+      derivative.setContentType("image/jpeg");
+      derivative.setWidth(resized.getWidth());
+      derivative.setHeight(resized.getHeight());
+      derivative.setImage(data);
+      derivative.setImageHash(BookImageService.hash(data));
+      derivative.setCreatedAt(now);
+      derivatives.add(derivative);
+    }
+    return derivatives;
+  }
+
+  // Scales the image down to fit into the bounds, halving the size step by step for quality
+  private BufferedImage resize(BufferedImage source, int maxWidth, int maxHeight) {
+    double scale = Math.min(1.0, Math.min((double) maxWidth / source.getWidth(),
+        (double) maxHeight / source.getHeight()));
+    int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+    int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+    BufferedImage current = toRgb(source);
+    int width = current.getWidth();
+    int height = current.getHeight();
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      current = draw(current, width, height);
+    } while (width != targetWidth || height != targetHeight);
+    return current;
+  }
+
+  // JPEG has no alpha channel, so transparent areas are painted white
+  private BufferedImage toRgb(BufferedImage source) {
+    if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+      return source;
+    }
+    BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(),
+        BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = rgb.createGraphics();
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+    graphics.drawImage(source, 0, 0, null);
+    graphics.dispose();
+    return rgb;
+  }
+
+  private BufferedImage draw(BufferedImage source, int width, int height) {
+    BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = target.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    graphics.drawImage(source, 0, 0, width, height, null);
+    graphics.dispose();
+    return target;
+  }
+
+  private byte[] writeJpeg(BufferedImage image) throws IOException {
+    Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+    if (!writers.hasNext()) {
+      throw new IOException("No JPEG writer available");
+    }
+    ImageWriter writer = writers.next();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+      writer.setOutput(imageOut);
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(JPEG_QUALITY);
+      param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,36 @@
+package com.project.service;
+
+import com.project.dto.StoredImage;
+import com.project.entity.BookEntity;
+import com.project.entity.BookImageEntity;
+import com.project.util.ImageVariant;
+
+/**
+ * Backend that holds the bytes of cover images. Selected with the
+ * {@code bookstore.images.storage} property ("database" or "filesystem").
+ *
+ * The hash of the image is always recorded on the entity; whether the bytes are kept in the
+ * entity as well depends on the backend.
+ */
+public interface ImageStorage {
+
+  /**
+   * Stores the original cover of a book. The image hash must already be set on the book.
+   */
+  void storeOriginal(BookEntity book, byte[] data);
+
+  /**
+   * Stores a resized copy. The image hash must already be set on the derivative.
+   */
+  void storeDerivative(BookImageEntity derivative, byte[] data);
+
+  /**
+   * Reads a cover image.
+   *
+   * @param bookId The ID of the book.
+   * @param variant The resized copy, or null for the original.
+   * @param hash The recorded hash of the image (may be null for old images).
+   * @return The image, or null if it does not exist.
+   */
+  StoredImage read(Long bookId, ImageVariant variant, String hash);
+}
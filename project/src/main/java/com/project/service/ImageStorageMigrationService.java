@@ -0,0 +1,97 @@
+package com.project.service;
+
+import com.project.repository.BookImageRepository;
+import com.project.repository.BookRepository;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+/**
+ * Moves cover images that are still stored as large objects in the database to the filesystem
+ * storage. Only available when {@code bookstore.images.storage=filesystem}.
+ *
+ * Every image is written to disk before its row is updated, and the large object is unlinked in
+ * the same statement that clears the column. An interrupted migration can simply be restarted.
+ */
+@Service
+public class ImageStorageMigrationService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ImageStorageMigrationService.class);
+
+  private final BookRepository bookRepository;
+  private final BookImageRepository bookImageRepository;
+  private final ObjectProvider<FileSystemImageStorage> fileSystemStorage;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  public ImageStorageMigrationService(BookRepository bookRepository,
+      BookImageRepository bookImageRepository,
+      ObjectProvider<FileSystemImageStorage> fileSystemStorage) {
+    this.bookRepository = bookRepository;
+    this.bookImageRepository = bookImageRepository;
+    this.fileSystemStorage = fileSystemStorage;
+  }
+
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  /**
+   * Starts the migration in the background.
+   *
+   * @return false if the filesystem storage is not enabled or a migration is already running.
+   */
+  public boolean startMigration() {
+    FileSystemImageStorage storage = fileSystemStorage.getIfAvailable();
+    if (storage == null || !running.compareAndSet(false, true)) {
+      return false;
+    }
+    Thread thread = new Thread(() -> {
+      try {
+        long start = System.currentTimeMillis();
+        int originals = migrate(storage, bookRepository.findIdsWithImageInDatabase(),
+            id -> bookRepository.findImageById(id).orElse(null),
+            bookRepository::moveImageOutOfDatabase);
+        int derivatives = migrate(storage, bookImageRepository.findIdsWithImageInDatabase(),
+            id -> bookImageRepository.findImageById(id).orElse(null),
+            bookImageRepository::moveImageOutOfDatabase);
+        logger.info("Image migration finished in {} ms: {} covers and {} resized copies moved",
+            System.currentTimeMillis() - start, originals, derivatives);
+      } finally {
+        running.set(false);
+      }
+    }, "image-migration");
+    thread.setDaemon(true);
+    thread.start();
+    return true;
+  }
+
+  // One image at a time, so only a single image is held in memory and each update is short
+  private int migrate(FileSystemImageStorage storage, List<Long> ids,
+      Function<Long, byte[]> reader, RowUpdate update) {
+    int moved = 0;
+    for (Long id : ids) {
+      try {
+        byte[] data = reader.apply(id);
+        if (data == null) {
+          continue;
+        }
+        String hash = BookImageService.hash(data);
+        storage.write(hash, data);
+        moved += update.apply(id, hash);
+      } catch (RuntimeException e) {
+        logger.warn("Image migration failed for row {}: {}", id, e.getMessage());
+      }
+    }
+    return moved;
+  }
+
+  @FunctionalInterface
+  private interface RowUpdate {
+
+    int apply(Long id, String hash);
+  }
+}
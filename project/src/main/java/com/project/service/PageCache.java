@@ -0,0 +1,121 @@
+package com.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rendered catalog pages for anonymous visitors, stored gzip-compressed and keyed by URL.
+ *
+ * Keys carry the catalog version of {@link SearchResultCache}, which every book change and
+ * import increments, so pages of an older catalog are never served and simply age out. A page is
+ * stored under the version read before it was rendered, so a change during rendering cannot
+ * leave a stale page under the new version.
+ */
+@Component
+public class PageCache {
+
+  // Rough per-entry overhead of key, metadata and cache node
+  private static final int ENTRY_OVERHEAD = 200;
+
+  private final SearchResultCache searchResultCache;
+  private final Cache<Key, Page> cache;
+  private final boolean enabled;
+  private final long maxBytes;
+
+  public PageCache(SearchResultCache searchResultCache,
+      @Value("${bookstore.page-cache.enabled:true}") boolean enabled,
+      @Value("${bookstore.page-cache.max-bytes:33554432}") long maxBytes,
+      @Value("${bookstore.page-cache.ttl-seconds:600}") long ttlSeconds) {
+    this.searchResultCache = searchResultCache;
+    this.enabled = enabled;
+    this.maxBytes = maxBytes;
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher((Key key, Page page) -> page.gzip().length + key.url().length()
+            + ENTRY_OVERHEAD)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long currentVersion() {
+    return searchResultCache.getCatalogVersion();
+  }
+
+  /**
+   * Looks up a rendered page.
+   *
+   * @param version The catalog version, see {@link #currentVersion()}.
+   * @param url The path and query string of the request.
+   * @return The page, or null on a miss.
+   */
+  public Page get(long version, String url) {
+    return cache.getIfPresent(new Key(version, url));
+  }
+
+  /**
+   * Compresses and stores a rendered page.
+   *
+   * @param version The catalog version read before the page was rendered.
+   * @param url The path and query string of the request.
+   * @param contentType The content type of the response.
+   * @param body The uncompressed page.
+   */
+  public void put(long version, String url, String contentType, byte[] body) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    cache.put(new Key(version, url), new Page(contentType, compressed.toByteArray()));
+  }
+
+  /**
+   * Returns hit rate and memory usage, for sizing the cache against the real working set.
+   */
+  public Map<String, Object> getStats() {
+    CacheStats stats = cache.stats();
+    long weightedSize = cache.policy().eviction()
+        .map(eviction -> eviction.weightedSize().orElse(0L))
+        .orElse(0L);
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("enabled", enabled);
+    result.put("entries", cache.estimatedSize());
+    result.put("usedBytes", weightedSize);
+    result.put("maxBytes", maxBytes);
+    result.put("catalogVersion", currentVersion());
+    result.put("hitCount", stats.hitCount());
+    result.put("missCount", stats.missCount());
+    result.put("hitRate", stats.hitRate());
+    result.put("evictionCount", stats.evictionCount());
+    return result;
+  }
+
+  /**
+   * A rendered page.
+   *
+   * @param contentType The content type of the response.
+   * @param gzip The gzip-compressed body.
+   */
+  public record Page(String contentType, byte[] gzip) {
+  }
+
+  private record Key(long version, String url) {
+  }
+}
@@ -0,0 +1,132 @@
+package com.project.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.event.BookChangedEvent;
+import com.project.event.BooksImportedEvent;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the result pages and facet counts of catalog searches and filters.
+ *
+ * Keys carry the catalog version, which every book change increments, so results of an older
+ * catalog are never returned and simply age out. Concurrent requests for the same missing key
+ * wait for the first one instead of querying the database themselves.
+ */
+@Component
+public class SearchResultCache {
+
+  private final AsyncCache<Key, Object> cache;
+  private final AtomicLong catalogVersion = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final long maxEntries;
+
+  public SearchResultCache(@Value("${bookstore.search-cache.max-entries:10000}") long maxEntries,
+      @Value("${bookstore.search-cache.ttl-seconds:600}") long ttlSeconds) {
+    this.maxEntries = maxEntries;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .buildAsync();
+  }
+
+  /**
+   * Returns the cached result, or loads it on the calling thread.
+   *
+   * @param kind The kind of result, e.g. "search" or "searchFacets".
+   * @param loader Loads the result from the database on a miss.
+   * @param params The query, filters, sort and page the result depends on.
+   * @return The result.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String kind, Supplier<T> loader, Object... params) {
+    Key key = new Key(catalogVersion.get(), kind, Arrays.asList(params));
+    CompletableFuture<Object> existing = cache.getIfPresent(key);
+    if (existing != null) {
+      (existing.isDone() ? hits : coalesced).incrementAndGet();
+      return (T) join(existing);
+    }
+
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    existing = cache.asMap().putIfAbsent(key, future);
+    if (existing != null) {
+      coalesced.incrementAndGet();
+      return (T) join(existing);
+    }
+    misses.incrementAndGet();
+    try {
+      T result = loader.get();
+      // A null result is removed from the cache by Caffeine
+      future.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  @EventListener
+  public void onBookChanged(BookChangedEvent event) {
+    catalogVersion.incrementAndGet();
+  }
+
+  @EventListener
+  public void onBooksImported(BooksImportedEvent event) {
+    catalogVersion.incrementAndGet();
+  }
+
+  /**
+   * The current catalog version, for other caches of pages that show the catalog.
+   */
+  public long getCatalogVersion() {
+    return catalogVersion.get();
+  }
+
+  /**
+   * Normalizes a search text for use as key, so that "Harry  Potter " and "harry potter" share
+   * one entry.
+   */
+  public static String normalize(String query) {
+    return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase();
+  }
+
+  public Map<String, Object> getStats() {
+    long requests = hits.get() + misses.get() + coalesced.get();
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("entries", cache.synchronous().estimatedSize());
+    result.put("maxEntries", maxEntries);
+    result.put("catalogVersion", catalogVersion.get());
+    result.put("hitCount", hits.get());
+    result.put("missCount", misses.get());
+    result.put("coalescedCount", coalesced.get());
+    result.put("hitRate", requests == 0 ? 0.0 : (double) (hits.get() + coalesced.get()) / requests);
+    return result;
+  }
+
+  private static Object join(CompletableFuture<Object> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private record Key(long catalogVersion, String kind, List<Object> params) {
+  }
+}
@@ -0,0 +1,353 @@
+package com.project.service;
+
+import com.project.dto.BookListing;
+import com.project.dto.Suggestion;
+import com.project.event.BookChangedEvent;
+import com.project.event.BooksImportedEvent;
+import com.project.repository.OrderDetailsRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prefix trie over book titles, author names and categories for the search box autocomplete.
+ *
+ * Every phrase is reachable from the start of each of its words, so "pot" completes to
+ * "Harry Potter". A phrase is as popular as the books carrying it: one point per book plus the
+ * copies sold when the index was built. Each trie node keeps its best completions, so a lookup
+ * only walks down the prefix. Changes only mark the nodes on their paths; the best completions
+ * of the marked nodes are then recomputed once, bottom-up, per book or batch of books. The trie
+ * is built at startup and updated on catalog changes, lookups never touch the database.
+ */
+@Component
+public class SuggestionIndex {
+
+  // Completions kept per node, the most a single lookup can return
+  public static final int MAX_SUGGESTIONS = 10;
+  private static final int BUILD_BATCH_SIZE = 1000;
+  private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+
+  private final BookListingService bookListingService;
+  private final OrderDetailsRepository orderDetailsRepository;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Node root = new Node();
+  private final Map<String, Entry> entries = new HashMap<>();
+  // Phrases of every indexed book with the weight they contributed, for updates and deletes
+  private final Map<Long, BookPhrases> books = new HashMap<>();
+  private Map<Long, Long> unitsSold = Map.of();
+
+  public SuggestionIndex(BookListingService bookListingService,
+      OrderDetailsRepository orderDetailsRepository) {
+    this.bookListingService = bookListingService;
+    this.orderDetailsRepository = orderDetailsRepository;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    long start = System.currentTimeMillis();
+    Map<Long, Long> sales = new HashMap<>();
+    for (Object[] row : orderDetailsRepository.sumQuantityByBook()) {
+      sales.put((Long) row[0], ((Number) row[1]).longValue());
+    }
+    unitsSold = sales;
+
+    Long afterId = 0L;
+    List<BookListing> batch;
+    do {
+      batch = bookListingService.findBatch(afterId, BUILD_BATCH_SIZE);
+      indexAll(batch);
+      if (!batch.isEmpty()) {
+        afterId = batch.get(batch.size() - 1).getId();
+      }
+    } while (batch.size() == BUILD_BATCH_SIZE);
+    logger.info("Suggestion index built in {} ms: {} phrases from {} books",
+        System.currentTimeMillis() - start, entries.size(), books.size());
+  }
+
+  @EventListener
+  public void onBookChanged(BookChangedEvent event) {
+    if (event.type() == BookChangedEvent.Type.DELETED) {
+      remove(event.bookId());
+      return;
+    }
+    List<BookListing> found = bookListingService.findByIds(List.of(event.bookId()));
+    if (found.isEmpty()) {
+      remove(event.bookId());
+    } else {
+      index(found.get(0));
+    }
+  }
+
+  /**
+   * Adds the phrases of the books of a catalog import at once, so the completions of each node
+   * are recomputed once per batch.
+   */
+  @EventListener
+  public void onBooksImported(BooksImportedEvent event) {
+    indexAll(bookListingService.findByIds(event.bookIds()));
+  }
+
+  /**
+   * Adds the phrases of a book, replacing those it contributed before.
+   */
+  public void index(BookListing book) {
+    indexAll(List.of(book));
+  }
+
+  /**
+   * Adds the phrases of several books, replacing those they contributed before. The best
+   * completions are recomputed once for the whole batch.
+   */
+  public void indexAll(List<BookListing> batch) {
+    lock.writeLock().lock();
+    try {
+      for (BookListing book : batch) {
+        add(book);
+      }
+      refreshTop(root);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Called with the write lock held, leaves the changed nodes marked
+  private void add(BookListing book) {
+    Map<String, Suggestion> phrases = new HashMap<>();
+    addPhrase(phrases, book.getTitle(), Suggestion.Type.TITLE);
+    for (String author : book.getAuthor()) {
+      addPhrase(phrases, author, Suggestion.Type.AUTHOR);
+    }
+    for (String category : book.getCategory()) {
+      addPhrase(phrases, category, Suggestion.Type.CATEGORY);
+    }
+    long weight = 1 + unitsSold.getOrDefault(book.getId(), 0L);
+
+    removeBook(book.getId());
+    for (Map.Entry<String, Suggestion> phrase : phrases.entrySet()) {
+      Entry entry = entries.computeIfAbsent(phrase.getKey(),
+          key -> new Entry(phrase.getValue(), keysOf(phrase.getValue().text())));
+      entry.score += weight;
+      update(entry);
+    }
+    books.put(book.getId(), new BookPhrases(phrases.keySet(), weight));
+  }
+
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeBook(bookId);
+      refreshTop(root);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the most popular completions of the prefix.
+   *
+   * @param prefix The text typed so far.
+   * @param limit The maximum number of completions, at most {@link #MAX_SUGGESTIONS}.
+   * @return The completions, most popular first.
+   */
+  public List<Suggestion> suggest(String prefix, int limit) {
+    String key = normalize(prefix);
+    if (key.isEmpty()) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      Node node = root;
+      for (int i = 0; i < key.length() && node != null; i++) {
+        node = node.child(key.charAt(i));
+      }
+      if (node == null) {
+        return List.of();
+      }
+      int count = Math.max(0, Math.min(Math.min(limit, MAX_SUGGESTIONS), node.top.length));
+      List<Suggestion> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        result.add(node.top[i].suggestion);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeBook(Long bookId) {
+    BookPhrases previous = books.remove(bookId);
+    if (previous == null) {
+      return;
+    }
+    for (String phrase : previous.phrases()) {
+      Entry entry = entries.get(phrase);
+      entry.score -= previous.weight();
+      if (entry.score <= 0) {
+        entries.remove(phrase);
+      }
+      update(entry);
+    }
+  }
+
+  // Re-inserts or removes the entry under all its keys and marks every node on the way, as its
+  // best completions may have changed
+  private void update(Entry entry) {
+    boolean present = entry.score > 0;
+    for (String key : entry.keys) {
+      Node node = root;
+      node.dirty = true;
+      for (int i = 0; i < key.length() && node != null; i++) {
+        node = present ? node.childOrCreate(key.charAt(i)) : node.child(key.charAt(i));
+        if (node != null) {
+          node.dirty = true;
+        }
+      }
+      if (node == null) {
+        continue;
+      }
+      if (present) {
+        node.addTerminal(entry);
+      } else {
+        node.removeTerminal(entry);
+      }
+    }
+  }
+
+  // Recomputes the best completions of the marked nodes, children first. The parents of a
+  // marked node are marked as well, so unmarked subtrees are skipped.
+  private static void refreshTop(Node node) {
+    if (!node.dirty) {
+      return;
+    }
+    for (Node child : node.children) {
+      refreshTop(child);
+    }
+    node.refreshTop();
+    node.dirty = false;
+  }
+
+  private static void addPhrase(Map<String, Suggestion> phrases, String text,
+      Suggestion.Type type) {
+    if (text == null || normalize(text).isEmpty()) {
+      return;
+    }
+    String display = text.trim().replaceAll("\\s+", " ");
+    phrases.putIfAbsent(type + ":" + normalize(text), new Suggestion(display, type));
+  }
+
+  // The whole phrase and every suffix starting at a word
+  private static List<String> keysOf(String text) {
+    String phrase = normalize(text);
+    List<String> keys = new ArrayList<>();
+    keys.add(phrase);
+    for (int i = phrase.indexOf(' '); i >= 0; i = phrase.indexOf(' ', i + 1)) {
+      keys.add(phrase.substring(i + 1));
+    }
+    return keys;
+  }
+
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    return text.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+  }
+
+  private static final class Entry {
+
+    private final Suggestion suggestion;
+    private final List<String> keys;
+    private long score;
+
+    Entry(Suggestion suggestion, List<String> keys) {
+      this.suggestion = suggestion;
+      this.keys = keys;
+    }
+  }
+
+  private record BookPhrases(Set<String> phrases, long weight) {
+  }
+
+  private static final Comparator<Entry> BY_POPULARITY = Comparator
+      .comparingLong((Entry entry) -> entry.score).reversed()
+      .thenComparing(entry -> entry.suggestion.text())
+      .thenComparing(entry -> entry.suggestion.type());
+
+  // Children are kept in arrays sorted by character, which is far smaller than a map per node
+  private static final class Node {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private char[] keys = NO_KEYS;
+    private Node[] children = NO_CHILDREN;
+    private Entry[] terminals = NO_ENTRIES;
+    private Entry[] top = NO_ENTRIES;
+    private boolean dirty;
+
+    Node child(char c) {
+      int index = Arrays.binarySearch(keys, c);
+      return index >= 0 ? children[index] : null;
+    }
+
+    Node childOrCreate(char c) {
+      int index = Arrays.binarySearch(keys, c);
+      if (index >= 0) {
+        return children[index];
+      }
+      index = -index - 1;
+      char[] newKeys = new char[keys.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      Node child = new Node();
+      newKeys[index] = c;
+      newChildren[index] = child;
+      keys = newKeys;
+      children = newChildren;
+      return child;
+    }
+
+    void addTerminal(Entry entry) {
+      for (Entry terminal : terminals) {
+        if (terminal == entry) {
+          return;
+        }
+      }
+      terminals = Arrays.copyOf(terminals, terminals.length + 1);
+      terminals[terminals.length - 1] = entry;
+    }
+
+    void removeTerminal(Entry entry) {
+      terminals = Arrays.stream(terminals).filter(terminal -> terminal != entry)
+          .toArray(Entry[]::new);
+    }
+
+    void refreshTop() {
+      Set<Entry> candidates = new LinkedHashSet<>(Arrays.asList(terminals));
+      for (Node child : children) {
+        candidates.addAll(Arrays.asList(child.top));
+      }
+      top = candidates.stream()
+          .filter(entry -> entry.score > 0)
+          .sorted(BY_POPULARITY)
+          .limit(MAX_SUGGESTIONS)
+          .toArray(Entry[]::new);
+    }
+  }
+}
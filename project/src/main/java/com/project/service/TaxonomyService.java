@@ -0,0 +1,124 @@
+package com.project.service;
+
+import com.project.entity.AuthorEntity;
+import com.project.entity.CategoryEntity;
+import com.project.repository.AuthorRepository;
+import com.project.repository.CategoryRepository;
+import com.project.util.SlugUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Categories and authors of the catalog. Books refer to them by ID, so a name is stored once
+ * and every category and author has a browse page under its slug.
+ */
+@Service
+public class TaxonomyService {
+
+  private final CategoryRepository categoryRepository;
+  private final AuthorRepository authorRepository;
+  private final SearchResultCache searchResultCache;
+
+  public TaxonomyService(CategoryRepository categoryRepository,
+      AuthorRepository authorRepository, SearchResultCache searchResultCache) {
+    this.categoryRepository = categoryRepository;
+    this.authorRepository = authorRepository;
+    this.searchResultCache = searchResultCache;
+  }
+
+  /**
+   * Returns the categories with the given names, creating those that do not exist yet. Names
+   * are trimmed, blank ones are skipped and names differing only in case are the same category.
+   */
+  @Transactional
+  public List<CategoryEntity> resolveCategories(List<String> names) {
+    List<CategoryEntity> result = new ArrayList<>();
+    for (String name : distinctNames(names)) {
+      result.add(categoryRepository.findByNameIgnoreCase(name).orElseGet(() ->
+          categoryRepository.save(new CategoryEntity(null, name,
+              uniqueSlug(name, categoryRepository::existsBySlug)))));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the authors with the given names, creating those that do not exist yet. Names are
+   * trimmed, blank ones are skipped and names differing only in case are the same author.
+   */
+  @Transactional
+  public List<AuthorEntity> resolveAuthors(List<String> names) {
+    List<AuthorEntity> result = new ArrayList<>();
+    for (String name : distinctNames(names)) {
+      result.add(authorRepository.findByNameIgnoreCase(name).orElseGet(() ->
+          authorRepository.save(new AuthorEntity(null, name,
+              uniqueSlug(name, authorRepository::existsBySlug)))));
+    }
+    return result;
+  }
+
+  @Transactional(readOnly = true)
+  public Optional<CategoryEntity> findCategory(String slug) {
+    return categoryRepository.findBySlug(slug);
+  }
+
+  @Transactional(readOnly = true)
+  public Optional<AuthorEntity> findAuthor(String slug) {
+    return authorRepository.findBySlug(slug);
+  }
+
+  /**
+   * Number of books in the category. The counts of all categories are loaded with one query
+   * and cached until the catalog changes.
+   */
+  public long countBooks(CategoryEntity category) {
+    Map<Long, Long> counts = searchResultCache.get("categoryCounts",
+        () -> toCounts(categoryRepository.countBooksByCategory()));
+    return counts.getOrDefault(category.getId(), 0L);
+  }
+
+  /**
+   * Number of books by the author, cached like {@link #countBooks(CategoryEntity)}.
+   */
+  public long countBooks(AuthorEntity author) {
+    Map<Long, Long> counts = searchResultCache.get("authorCounts",
+        () -> toCounts(authorRepository.countBooksByAuthor()));
+    return counts.getOrDefault(author.getId(), 0L);
+  }
+
+  private static Map<Long, Long> toCounts(List<Object[]> rows) {
+    Map<Long, Long> counts = new HashMap<>();
+    for (Object[] row : rows) {
+      counts.put((Long) row[0], ((Number) row[1]).longValue());
+    }
+    return counts;
+  }
+
+  private static List<String> distinctNames(List<String> names) {
+    Map<String, String> byKey = new LinkedHashMap<>();
+    if (names != null) {
+      for (String name : names) {
+        if (name != null && !name.isBlank()) {
+          byKey.putIfAbsent(name.trim().toLowerCase(), name.trim());
+        }
+      }
+    }
+    return new ArrayList<>(byKey.values());
+  }
+
+  // The slug of the name, numbered if another name already has it
+  private static String uniqueSlug(String name, Predicate<String> exists) {
+    String base = SlugUtils.slugify(name);
+    String slug = base;
+    for (int i = 2; exists.test(slug); i++) {
+      slug = base + "-" + i;
+    }
+    return slug;
+  }
+}
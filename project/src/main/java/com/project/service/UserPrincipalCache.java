@@ -0,0 +1,86 @@
+package com.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.dto.UserPrincipal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches the {@link UserPrincipal} of recently active users by username, so logins and the role
+ * checks of every page do not read the users and user_roles tables again.
+ *
+ * Services changing a user, its account or balance invalidate the entry. Within a transaction
+ * the entry is dropped again after the commit, so a concurrent request cannot put back the
+ * snapshot it read before the change became visible. The TTL is a safety net for changes made
+ * outside the application.
+ */
+@Component
+public class UserPrincipalCache {
+
+  private final Cache<String, UserPrincipal> cache;
+  private final long maxEntries;
+
+  public UserPrincipalCache(@Value("${bookstore.user-cache.max-entries:10000}") long maxEntries,
+      @Value("${bookstore.user-cache.ttl-seconds:300}") long ttlSeconds) {
+    this.maxEntries = maxEntries;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached principal, or loads it on the calling thread.
+   *
+   * @param username The login name.
+   * @param loader Loads the principal from the database on a miss, null for unknown users.
+   * @return The principal, or null if the user does not exist. Unknown users are not cached.
+   */
+  public UserPrincipal get(String username, Function<String, UserPrincipal> loader) {
+    return cache.get(username, loader);
+  }
+
+  /**
+   * Drops the principal of a user whose data changed.
+   *
+   * @param username The login name, ignored if null.
+   */
+  public void invalidate(String username) {
+    if (username == null) {
+      return;
+    }
+    cache.invalidate(username);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          cache.invalidate(username);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns hit rate and size of the cache.
+   */
+  public Map<String, Object> getStats() {
+    CacheStats stats = cache.stats();
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("entries", cache.estimatedSize());
+    result.put("maxEntries", maxEntries);
+    result.put("hitCount", stats.hitCount());
+    result.put("missCount", stats.missCount());
+    result.put("hitRate", stats.hitRate());
+    result.put("evictionCount", stats.evictionCount());
+    return result;
+  }
+}
@@ -1,5 +1,6 @@
 package com.project.service;
 
+import com.project.dto.UserPrincipal;
 import com.project.entity.AccountEntity;
 import com.project.entity.User;
 import com.project.repository.AccountRepository;
@@ -27,39 +28,58 @@ public class UserService implements UserDetailsService {
   private final UserRepository userRepository;
   private final PasswordEncoder passwordEncoder;
   private final AccountRepository accountRepository;
+  private final UserPrincipalCache userPrincipalCache;
   private final Logger logger = LoggerFactory.getLogger(UserService.class);
 
 
   @Autowired
   public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AccountService accountService,
-      AccountRepository accountRepository) {
+      AccountRepository accountRepository, UserPrincipalCache userPrincipalCache) {
     this.userRepository = userRepository;
     this.passwordEncoder = passwordEncoder;
     this.accountRepository = accountRepository;
+    this.userPrincipalCache = userPrincipalCache;
   }
 
   // Method to load user by username for authentication
   @Override
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-    User user = userRepository.findByUsername(username);
-    if (user == null) {
+    UserPrincipal principal = findPrincipal(username);
+    if (principal == null) {
       throw new UsernameNotFoundException("User not found");
     }
 
-    Set<GrantedAuthority> authorities = user.getRoles().stream()
+    Set<GrantedAuthority> authorities = principal.roles().stream()
         .map(role -> new SimpleGrantedAuthority("ROLE_" + role.name())) // Prefix "ROLE_"
         .collect(Collectors.toSet());
 
-    logger.info("Loading user: {}", user.getUsername());
-    user.getRoles().forEach(role -> logger.info("Role: {}", role));
+    logger.info("Loading user: {}", principal.username());
+    principal.roles().forEach(role -> logger.info("Role: {}", role));
 
     return new org.springframework.security.core.userdetails.User(
-        user.getUsername(),
-        user.getPassword(),
+        principal.username(),
+        principal.passwordHash(),
         authorities
     );
   }
 
+  /**
+   * Returns the identity and roles of a user, from the cache if the user was active recently.
+   *
+   * @param username The login name.
+   * @return The principal, or null if there is no such user.
+   */
+  public UserPrincipal findPrincipal(String username) {
+    return userPrincipalCache.get(username, name -> {
+      User user = userRepository.findByUsername(name);
+      if (user == null) {
+        return null;
+      }
+      return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(),
+          user.getRoles(), user.getAccount() != null ? user.getAccount().getId() : null);
+    });
+  }
+
   // Find a user by username (not necessarily for authentication)
   @Transactional
   public User findByUsername(String username) {
@@ -90,6 +110,7 @@ public class UserService implements UserDetailsService {
 
     // Save the user
     userRepository.save(newUser);
+    userPrincipalCache.invalidate(username);
 
     // Log the action
     logger.info("New user registered: {}", username);
@@ -107,13 +128,13 @@ public class UserService implements UserDetailsService {
   public Long getAuthenticatedUserId() {
     // Retrieve the authenticated username from the security context
     String username = SecurityContextHolder.getContext().getAuthentication().getName();
-    // Fetch the custom User entity from the database using the username
-    User user = userRepository.findByUsername(username);
+    // The id is part of the cached principal, no need to load the user
+    UserPrincipal principal = findPrincipal(username);
 
-    if (user == null) {
+    if (principal == null) {
       throw new RuntimeException("User not found for username: " + username);
     }
-    return user.getId();
+    return principal.id();
   }
 
 
@@ -133,6 +154,7 @@ public class UserService implements UserDetailsService {
       // Update the balance and save the user
       user.getAccount().setBalance(updatedBalance);
       userRepository.save(user);
+      userPrincipalCache.invalidate(user.getUsername());
   }
 
   @Transactional
@@ -155,6 +177,7 @@ public class UserService implements UserDetailsService {
 
     // Delete the user
     userRepository.delete(user);
+    userPrincipalCache.invalidate(username);
     logger.info("Deleted user profile for user: {}", username);
   }
 
@@ -0,0 +1,51 @@
+package com.project.util;
+
+/**
+ * Orders of the catalog pages. Every order ends with the book ID, so it is unique and can be
+ * continued from the last book of a page.
+ */
+public enum CatalogSort {
+  ID(null, true),
+  PRICE_ASC("price", true),
+  PRICE_DESC("price", false),
+  TITLE_ASC("title", true),
+  TITLE_DESC("title", false);
+
+  private final String property;
+  private final boolean ascending;
+
+  CatalogSort(String property, boolean ascending) {
+    this.property = property;
+    this.ascending = ascending;
+  }
+
+  /**
+   * The sorted BookEntity property, or null when only sorted by ID.
+   */
+  public String getProperty() {
+    return property;
+  }
+
+  public boolean isAscending() {
+    return ascending;
+  }
+
+  /**
+   * Resolves the order from the "sort" request parameter of the catalog pages.
+   *
+   * @param sort The parameter value, e.g. "price", "priceDesc", "title" or "titleDesc".
+   * @return The matching order, ID order if there is none.
+   */
+  public static CatalogSort fromParam(String sort) {
+    if (sort == null) {
+      return ID;
+    }
+    return switch (sort) {
+      case "price" -> PRICE_ASC;
+      case "priceDesc" -> PRICE_DESC;
+      case "title", "titleAsc" -> TITLE_ASC;
+      case "titleDesc" -> TITLE_DESC;
+      default -> ID;
+    };
+  }
+}
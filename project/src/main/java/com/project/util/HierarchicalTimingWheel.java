@@ -0,0 +1,310 @@
+package com.project.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Deadlines for many long ids, e.g. baskets, in a hierarchical timing wheel.
+ *
+ * Time advances in ticks. Level 0 has one slot per tick, each higher level one slot per full
+ * turn of the level below, so scheduling and expiring an id costs O(1) no matter how many ids
+ * are waiting. Far deadlines sit in a coarse slot and move down a level when their turn comes.
+ *
+ * The current deadline of every id is kept in a primitive map. Moving a deadline further away
+ * only updates the map: the slot entry stays where it is and is moved on when reached. Only a
+ * deadline moved closer adds an entry, the older one is dropped when reached. Ids and ticks are
+ * stored as pairs in growable long arrays, no boxing.
+ *
+ * Not thread-safe, callers synchronize.
+ */
+public class HierarchicalTimingWheel {
+
+  private final long tickMillis;
+  private final int wheelBits;
+  private final int wheelMask;
+  private final int levels;
+  // slots[level][slot] holds (id, tick) pairs, counts[level][slot] the number of longs used
+  private final long[][][] slots;
+  private final int[][] counts;
+  private final LongLongMap deadlines = new LongLongMap();
+  private long currentTick;
+
+  /**
+   * @param tickMillis The length of a tick, the precision of the deadlines.
+   * @param wheelBits The number of slots per level as a power of two, e.g. 6 for 64.
+   * @param levels The number of levels. Deadlines beyond the last level are moved on when it
+   *     turns around.
+   * @param nowMillis The current time.
+   */
+  public HierarchicalTimingWheel(long tickMillis, int wheelBits, int levels, long nowMillis) {
+    if (tickMillis <= 0 || wheelBits < 1 || levels < 1 || wheelBits * levels > 62) {
+      throw new IllegalArgumentException("Invalid timing wheel dimensions");
+    }
+    this.tickMillis = tickMillis;
+    this.wheelBits = wheelBits;
+    this.wheelMask = (1 << wheelBits) - 1;
+    this.levels = levels;
+    this.slots = new long[levels][1 << wheelBits][];
+    this.counts = new int[levels][1 << wheelBits];
+    this.currentTick = nowMillis / tickMillis;
+  }
+
+  /**
+   * Sets the deadline of an id, replacing an earlier one.
+   *
+   * @param id The id.
+   * @param deadlineMillis When the id expires. Past deadlines expire with the next tick.
+   */
+  public void schedule(long id, long deadlineMillis) {
+    // Round up, so an id never expires before its deadline
+    long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+    long previous = deadlines.put(id, tick);
+    if (previous == LongLongMap.NONE || tick < previous) {
+      place(id, tick);
+    }
+  }
+
+  /**
+   * Sets the deadline of an id unless it already has an earlier one.
+   *
+   * @param id The id.
+   * @param deadlineMillis When the id expires at the latest.
+   */
+  public void scheduleNoLaterThan(long id, long deadlineMillis) {
+    long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+    long previous = deadlines.get(id);
+    if (previous == LongLongMap.NONE || tick < previous) {
+      deadlines.put(id, tick);
+      place(id, tick);
+    }
+  }
+
+  /**
+   * Removes the deadline of an id.
+   */
+  public void cancel(long id) {
+    deadlines.remove(id);
+  }
+
+  /**
+   * @return The number of ids with a deadline.
+   */
+  public int size() {
+    return deadlines.size();
+  }
+
+  /**
+   * Moves the wheel up to the given time and hands out the ids whose deadline has passed. An
+   * expired id is removed, schedule it again to get another deadline.
+   *
+   * @param nowMillis The current time.
+   * @param expired Receives each expired id once.
+   */
+  public void advance(long nowMillis, LongConsumer expired) {
+    long nowTick = nowMillis / tickMillis;
+    while (currentTick < nowTick) {
+      currentTick++;
+      // Move the entries of higher levels whose turn has come one level down, top level first
+      for (int level = levels - 1; level > 0; level--) {
+        if ((currentTick & ((1L << (wheelBits * level)) - 1)) == 0) {
+          int slot = (int) (currentTick >>> (wheelBits * level)) & wheelMask;
+          drain(level, slot, (id, tick) -> {
+            if (tick > currentTick) {
+              place(id, tick);
+            } else {
+              fire(id, tick, expired);
+            }
+          });
+        }
+      }
+      drain(0, (int) currentTick & wheelMask, (id, tick) -> fire(id, tick, expired));
+    }
+  }
+
+  private void fire(long id, long tick, LongConsumer expired) {
+    long deadline = deadlines.get(id);
+    if (deadline == LongLongMap.NONE || deadline < tick) {
+      return; // Cancelled, or a closer entry for the id exists
+    }
+    if (deadline > currentTick) {
+      place(id, deadline); // Moved further away since this entry was added
+      return;
+    }
+    deadlines.remove(id);
+    expired.accept(id);
+  }
+
+  private void place(long id, long tick) {
+    long delta = tick - currentTick;
+    if (delta <= 0) {
+      // The slot of the current tick was handled already
+      add(0, (int) (currentTick + 1) & wheelMask, id, tick);
+      return;
+    }
+    for (int level = 0; level < levels; level++) {
+      if (delta < 1L << (wheelBits * (level + 1))) {
+        add(level, (int) (tick >>> (wheelBits * level)) & wheelMask, id, tick);
+        return;
+      }
+    }
+    // Beyond the last level: park in the slot reached last, the entry is placed again from there
+    int top = levels - 1;
+    long parked = currentTick + (1L << (wheelBits * levels)) - 1;
+    add(top, (int) (parked >>> (wheelBits * top)) & wheelMask, id, tick);
+  }
+
+  private void add(int level, int slot, long id, long tick) {
+    long[] entries = slots[level][slot];
+    int count = counts[level][slot];
+    if (entries == null) {
+      entries = new long[8];
+    } else if (count == entries.length) {
+      entries = Arrays.copyOf(entries, count * 2);
+    }
+    entries[count] = id;
+    entries[count + 1] = tick;
+    slots[level][slot] = entries;
+    counts[level][slot] = count + 2;
+  }
+
+  private void drain(int level, int slot, EntryConsumer consumer) {
+    long[] entries = slots[level][slot];
+    int count = counts[level][slot];
+    if (count == 0) {
+      return;
+    }
+    // Detach first, as consumers may add entries to this slot again
+    slots[level][slot] = null;
+    counts[level][slot] = 0;
+    for (int i = 0; i < count; i += 2) {
+      consumer.accept(entries[i], entries[i + 1]);
+    }
+  }
+
+  @FunctionalInterface
+  private interface EntryConsumer {
+
+    void accept(long id, long tick);
+  }
+
+  /**
+   * Open addressing map from long to long with linear probing and backward shift deletion.
+   */
+  private static final class LongLongMap {
+
+    static final long NONE = Long.MIN_VALUE;
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys = newKeys(16);
+    private long[] values = new long[16];
+    private int size;
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+
+    private static long[] newKeys(int capacity) {
+      long[] keys = new long[capacity];
+      Arrays.fill(keys, FREE);
+      return keys;
+    }
+
+    int size() {
+      return size;
+    }
+
+    long get(long key) {
+      if (key == FREE) {
+        return hasFreeKey ? freeKeyValue : NONE;
+      }
+      int mask = keys.length - 1;
+      for (int i = index(key, mask); ; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+        if (keys[i] == FREE) {
+          return NONE;
+        }
+      }
+    }
+
+    long put(long key, long value) {
+      if (key == FREE) {
+        long previous = hasFreeKey ? freeKeyValue : NONE;
+        if (!hasFreeKey) {
+          size++;
+        }
+        hasFreeKey = true;
+        freeKeyValue = value;
+        return previous;
+      }
+      int mask = keys.length - 1;
+      int i = index(key, mask);
+      while (keys[i] != FREE) {
+        if (keys[i] == key) {
+          long previous = values[i];
+          values[i] = value;
+          return previous;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = value;
+      if (++size > keys.length * 3 / 4) {
+        resize();
+      }
+      return NONE;
+    }
+
+    void remove(long key) {
+      if (key == FREE) {
+        if (hasFreeKey) {
+          hasFreeKey = false;
+          size--;
+        }
+        return;
+      }
+      int mask = keys.length - 1;
+      int i = index(key, mask);
+      while (keys[i] != key) {
+        if (keys[i] == FREE) {
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      size--;
+      // Shift following entries of the probe sequence back into the gap
+      int gap = i;
+      for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+        int home = index(keys[j], mask);
+        if (((j - home) & mask) >= ((j - gap) & mask)) {
+          keys[gap] = keys[j];
+          values[gap] = values[j];
+          gap = j;
+        }
+      }
+      keys[gap] = FREE;
+    }
+
+    private void resize() {
+      long[] oldKeys = keys;
+      long[] oldValues = values;
+      keys = newKeys(oldKeys.length * 2);
+      values = new long[oldKeys.length * 2];
+      int mask = keys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != FREE) {
+          int i = index(oldKeys[j], mask);
+          while (keys[i] != FREE) {
+            i = (i + 1) & mask;
+          }
+          keys[i] = oldKeys[j];
+          values[i] = oldValues[j];
+        }
+      }
+    }
+
+    private static int index(long key, int mask) {
+      long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+  }
+}
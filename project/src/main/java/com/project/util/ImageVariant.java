@@ -0,0 +1,48 @@
+package com.project.util;
+
+/**
+ * Fixed cover image sizes generated on upload. The bounds are twice the rendered size so the
+ * thumbnails stay sharp on high density displays.
+ */
+public enum ImageVariant {
+  LIST("list", 220, 330),
+  BASKET("basket", 200, 266),
+  DETAIL("detail", 600, 900);
+
+  private final String path;
+  private final int maxWidth;
+  private final int maxHeight;
+
+  ImageVariant(String path, int maxWidth, int maxHeight) {
+    this.path = path;
+    this.maxWidth = maxWidth;
+    this.maxHeight = maxHeight;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public int getMaxWidth() {
+    return maxWidth;
+  }
+
+  public int getMaxHeight() {
+    return maxHeight;
+  }
+
+  /**
+   * Resolves a variant from its URL path segment.
+   *
+   * @param path The path segment, e.g. "list".
+   * @return The matching variant, or null if there is none.
+   */
+  public static ImageVariant fromPath(String path) {
+    for (ImageVariant variant : values()) {
+      if (variant.path.equalsIgnoreCase(path)) {
+        return variant;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,49 @@
+package com.project.util;
+
+import java.util.Locale;
+
+public class IsbnUtils {
+
+  /**
+   * Removes hyphens and spaces and upper-cases the check digit X, e.g. "0-306-40615-x" into
+   * "030640615X". Same rules as the normalized ISBN index of the V11 migration.
+   */
+  public static String normalize(String isbn) {
+    return isbn == null ? null : isbn.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Normalizes an ISBN-10 or ISBN-13 and checks its check digit.
+   *
+   * @return The normalized ISBN.
+   * @throws IllegalArgumentException If the ISBN is missing, has the wrong number of digits or a
+   *     wrong check digit.
+   */
+  public static String validate(String value) {
+    if (value == null) {
+      throw new IllegalArgumentException("ISBN is missing");
+    }
+    String isbn = normalize(value);
+    boolean valid;
+    if (isbn.matches("\\d{9}[\\dX]")) {
+      int sum = 0;
+      for (int i = 0; i < 10; i++) {
+        int digit = isbn.charAt(i) == 'X' ? 10 : isbn.charAt(i) - '0';
+        sum += (10 - i) * digit;
+      }
+      valid = sum % 11 == 0;
+    } else if (isbn.matches("\\d{13}")) {
+      int sum = 0;
+      for (int i = 0; i < 13; i++) {
+        sum += (i % 2 == 0 ? 1 : 3) * (isbn.charAt(i) - '0');
+      }
+      valid = sum % 10 == 0;
+    } else {
+      throw new IllegalArgumentException("ISBN must have 10 or 13 digits: " + value);
+    }
+    if (!valid) {
+      throw new IllegalArgumentException("ISBN check digit is wrong: " + value);
+    }
+    return isbn;
+  }
+}
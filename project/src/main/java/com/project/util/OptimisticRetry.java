@@ -0,0 +1,62 @@
+package com.project.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Runs an action again when it fails on an optimistic lock, i.e. a row changed between reading
+ * and writing it. The action has to start its own transaction, so every attempt reads the
+ * current rows.
+ *
+ * Attempts wait a random time up to an exponentially growing limit ("full jitter"), so
+ * competing requests spread out instead of colliding again. After the last attempt the failure
+ * is thrown.
+ */
+public class OptimisticRetry {
+
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+
+  /**
+   * @param maxAttempts The number of attempts, at least 1.
+   * @param baseDelayMillis The longest wait before the second attempt, doubled for each further
+   *     attempt.
+   * @param maxDelayMillis The longest wait before any attempt.
+   */
+  public OptimisticRetry(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("At least one attempt is needed");
+    }
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  public <T> T run(Supplier<T> action) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return action.get();
+      } catch (OptimisticLockingFailureException e) {
+        if (attempt >= maxAttempts) {
+          throw e;
+        }
+        pause(attempt);
+      }
+    }
+  }
+
+  private void pause(int attempt) {
+    long limit = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+    if (limit <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting to retry", e);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.project.util;
+
+import java.util.Locale;
+
+public class SlugUtils {
+
+  /**
+   * Turns a name into the URL form of a browse page, e.g. "Science Fiction" into
+   * "science-fiction". Same rules as the catalog_slug function of the V5 migration.
+   */
+  public static String slugify(String name) {
+    String slug = name.toLowerCase(Locale.ROOT)
+        .replaceAll("[^a-z0-9]+", "-")
+        .replaceAll("^-+|-+$", "");
+    return slug.isEmpty() ? "n-a" : slug;
+  }
+}
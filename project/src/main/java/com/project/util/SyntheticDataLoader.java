@@ -0,0 +1,575 @@
+package com.project.util;
+
+import com.project.service.BookImageService;
+import com.project.service.FileSystemImageStorage;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills an empty database with synthetic books, users with accounts, baskets, orders, gift cards
+ * and forum threads for load and scale tests. Runs at startup with the "synthetic-data" profile,
+ * the volumes are set in application-synthetic-data.properties.
+ *
+ * The same seed and volumes always produce the same rows: every table has its own random
+ * generator derived from the seed, and timestamps are relative to a fixed date (only basket items
+ * are relative to the start, so they are not expired right away). Rows are written with JDBC
+ * batches, one transaction per batch, and IDs are reserved from the sequences like Hibernate
+ * does. The search vector triggers are disabled while writing and the vectors computed once at
+ * the end.
+ *
+ * Nothing is generated if the catalog already contains books. Users are named user0, user1, ...
+ * and share one password, an admin/admin user is added if there is none.
+ */
+@Component
+@Profile("synthetic-data")
+public class SyntheticDataLoader implements CommandLineRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(SyntheticDataLoader.class);
+  private static final LocalDateTime BASE_DATE = LocalDateTime.of(2024, 6, 1, 12, 0);
+  // Same format as the orders placed in the shop (see OrderService)
+  private static final DateTimeFormatter ORDER_DATE =
+      DateTimeFormatter.ofPattern("EEEE, MMM dd, yyyy HH:mm:ss a");
+  // Allocation size of the sequences Hibernate creates for GenerationType.AUTO
+  private static final int POOLED_INCREMENT = 50;
+  private static final int PLACEHOLDER_COVERS = 8;
+  private static final int CATEGORIES = 60;
+
+  private static final String[] ADJECTIVES = {"Silent", "Hidden", "Last", "Broken", "Golden",
+      "Lost", "Secret", "Crimson", "Distant", "Burning", "Quiet", "Endless", "Forgotten", "Wild",
+      "Northern", "Hollow", "Bright", "Dark", "Little", "Winter"};
+  private static final String[] NOUNS = {"River", "Garden", "Kingdom", "Memory", "Harbor",
+      "Mountain", "Letter", "Empire", "Forest", "Station", "Promise", "Shadow", "Island", "Storm",
+      "Library", "Machine", "Journey", "Orchard", "Lighthouse", "City"};
+  private static final String[] TOPICS = {"Fiction", "Mystery", "Thriller", "Romance",
+      "Science Fiction", "Fantasy", "History", "Biography", "Poetry", "Travel", "Cooking",
+      "Science", "Philosophy", "Business", "Children", "Horror", "Art", "Music", "Sports",
+      "Programming"};
+  private static final String[] FIRST_NAMES = {"Anna", "Ben", "Clara", "David", "Elena", "Felix",
+      "Greta", "Hugo", "Ida", "Jonas", "Karla", "Lukas", "Mara", "Nico", "Olga", "Paul", "Rosa",
+      "Sven", "Tara", "Viktor", "Wanda", "Yusuf", "Zoe", "Emil", "Lina"};
+  private static final String[] LAST_NAMES = {"Adler", "Berger", "Cohen", "Dietrich", "Engel",
+      "Fischer", "Graf", "Hoffmann", "Ivanova", "Jansen", "Keller", "Lang", "Meyer", "Novak",
+      "Ortega", "Peters", "Richter", "Schmidt", "Tanaka", "Vogel", "Weber", "Young", "Zimmer",
+      "Brandt", "Kaya"};
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final PasswordEncoder passwordEncoder;
+  private final ObjectProvider<FileSystemImageStorage> fileSystemStorage;
+  private final long seed;
+  private final int books;
+  private final int users;
+  private final int ordersPerUser;
+  private final double basketShare;
+  private final int giftCards;
+  private final int forumThreads;
+  private final int batchSize;
+  private final String password;
+  private final boolean databaseCovers;
+
+  public SyntheticDataLoader(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      PasswordEncoder passwordEncoder,
+      ObjectProvider<FileSystemImageStorage> fileSystemStorage,
+      @Value("${bookstore.generator.seed:42}") long seed,
+      @Value("${bookstore.generator.books:100000}") int books,
+      @Value("${bookstore.generator.users:10000}") int users,
+      @Value("${bookstore.generator.orders-per-user:3}") int ordersPerUser,
+      @Value("${bookstore.generator.basket-share:0.3}") double basketShare,
+      @Value("${bookstore.generator.gift-cards:2000}") int giftCards,
+      @Value("${bookstore.generator.forum-threads:2000}") int forumThreads,
+      @Value("${bookstore.generator.batch-size:5000}") int batchSize,
+      @Value("${bookstore.generator.password:password}") String password,
+      @Value("${bookstore.images.storage:database}") String imageStorage) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.passwordEncoder = passwordEncoder;
+    this.fileSystemStorage = fileSystemStorage;
+    this.seed = seed;
+    this.books = books;
+    this.users = users;
+    this.ordersPerUser = ordersPerUser;
+    this.basketShare = basketShare;
+    this.giftCards = giftCards;
+    this.forumThreads = forumThreads;
+    this.batchSize = batchSize;
+    this.password = password;
+    this.databaseCovers = !"filesystem".equals(imageStorage);
+  }
+
+  @Override
+  public void run(String... args) {
+    Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM book_entity", Long.class);
+    if (existing != null && existing > 0) {
+      logger.info("Synthetic data skipped: the catalog already contains {} books", existing);
+      return;
+    }
+    long start = System.currentTimeMillis();
+    boolean triggersDisabled = setSearchTriggers(false);
+    try {
+      long[] categoryIds = insertTaxonomy("category_entity", CATEGORIES,
+          i -> TOPICS[i % TOPICS.length]
+              + (i < TOPICS.length ? "" : " " + (i / TOPICS.length + 1)));
+      long[] authorIds = insertTaxonomy("author_entity", Math.max(1, books / 8),
+          SyntheticDataLoader::authorName);
+      Catalog catalog = insertBooks(categoryIds, authorIds, new Random(seed + 2));
+      long[] accountIds = insertUsers(new Random(seed + 3));
+      if (books > 0) {
+        insertBaskets(accountIds, catalog, new Random(seed + 4));
+        insertOrders(accountIds, catalog, new Random(seed + 5));
+      }
+      insertGiftCards(accountIds, new Random(seed + 6));
+      insertForumThreads(new Random(seed + 7));
+    } finally {
+      if (triggersDisabled) {
+        setSearchTriggers(true);
+        long vectors = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("UPDATE book_entity "
+            + "SET search_vector = book_search_vector(book_id, title, description)"));
+        logger.info("Search vectors computed in {} ms", System.currentTimeMillis() - vectors);
+      }
+    }
+    logger.info("Synthetic data generated in {} s", (System.currentTimeMillis() - start) / 1000);
+  }
+
+  private long[] insertTaxonomy(String table, int count, IntFunction<String> names) {
+    long start = System.currentTimeMillis();
+    long[] ids = new long[count];
+    forEachBatch(count, (from, size) -> {
+      long[] batchIds = reserveIds(table + "_seq", POOLED_INCREMENT, size);
+      List<Object[]> rows = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        String name = names.apply(from + i);
+        ids[from + i] = batchIds[i];
+        rows.add(new Object[] {batchIds[i], name, SlugUtils.slugify(name)});
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, name, slug) VALUES (?, ?, ?)",
+          rows);
+    });
+    logRate(table, count, start);
+    return ids;
+  }
+
+  // Unique by construction: first and last name, numbered once all combinations are used
+  private static String authorName(int i) {
+    int combinations = FIRST_NAMES.length * LAST_NAMES.length;
+    String name = FIRST_NAMES[i % FIRST_NAMES.length] + " "
+        + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+    return i < combinations ? name : name + " " + (i / combinations + 1);
+  }
+
+  private Catalog insertBooks(long[] categoryIds, long[] authorIds, Random random) {
+    long start = System.currentTimeMillis();
+    List<byte[]> covers = placeholderCovers(random);
+    List<String> coverHashes = covers.stream().map(BookImageService::hash).toList();
+    FileSystemImageStorage storage = fileSystemStorage.getIfAvailable();
+    if (!databaseCovers && storage != null) {
+      // Content-addressed files, so all books share the few placeholder files
+      for (int i = 0; i < covers.size(); i++) {
+        storage.write(coverHashes.get(i), covers.get(i));
+      }
+    }
+    String insertBook = "INSERT INTO book_entity (book_id, title, isbn, description, price, "
+        + "image, image_hash, image_updated_at) VALUES (?, ?, ?, ?, ?, "
+        + (databaseCovers ? "lo_from_bytea(0, ?)" : "NULL") + ", ?, ?)";
+    OffsetDateTime coverDate = BASE_DATE.atOffset(ZoneOffset.UTC);
+
+    String sequence = serialSequence("book_entity", "book_id");
+    Catalog catalog = new Catalog(new long[books], new BigDecimal[books]);
+    forEachBatch(books, (from, size) -> {
+      long[] ids = reserveIds(sequence, 1, size);
+      List<Object[]> bookRows = new ArrayList<>(size);
+      List<Object[]> authorRows = new ArrayList<>();
+      List<Object[]> categoryRows = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        int n = from + i;
+        String title = title(random);
+        BigDecimal price = BigDecimal.valueOf(299 + random.nextInt(7700), 2);
+        int cover = random.nextInt(covers.size());
+        List<Object> values = new ArrayList<>(List.of(ids[i], title, isbn(n),
+            "A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)].toLowerCase() + " story about "
+                + title.toLowerCase() + ".", price));
+        if (databaseCovers) {
+          values.add(covers.get(cover));
+        }
+        values.add(coverHashes.get(cover));
+        values.add(coverDate);
+        bookRows.add(values.toArray());
+        catalog.ids()[n] = ids[i];
+        catalog.prices()[n] = price;
+
+        // A few popular authors and categories, and a long tail
+        long author = authorIds[skewed(random, authorIds.length)];
+        authorRows.add(new Object[] {ids[i], author});
+        if (random.nextInt(100) < 15) {
+          long coAuthor = authorIds[random.nextInt(authorIds.length)];
+          if (coAuthor != author) {
+            authorRows.add(new Object[] {ids[i], coAuthor});
+          }
+        }
+        long category = categoryIds[skewed(random, categoryIds.length)];
+        categoryRows.add(new Object[] {ids[i], category});
+        if (random.nextInt(100) < 30) {
+          long second = categoryIds[random.nextInt(categoryIds.length)];
+          if (second != category) {
+            categoryRows.add(new Object[] {ids[i], second});
+          }
+        }
+      }
+      jdbcTemplate.batchUpdate(insertBook, bookRows);
+      jdbcTemplate.batchUpdate("INSERT INTO book_author (book_id, author_id) VALUES (?, ?)",
+          authorRows);
+      jdbcTemplate.batchUpdate("INSERT INTO book_category (book_id, category_id) VALUES (?, ?)",
+          categoryRows);
+    });
+    logRate("books", books, start);
+    return catalog;
+  }
+
+  private long[] insertUsers(Random random) {
+    long start = System.currentTimeMillis();
+    // Hashing is deliberately slow, so all users share the same password hash
+    String passwordHash = passwordEncoder.encode(password);
+    Integer admins = jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM users WHERE username = 'admin'", Integer.class);
+    int adminCount = admins != null && admins == 0 ? 1 : 0;
+    String adminHash = adminCount == 1 ? passwordEncoder.encode("admin") : null;
+
+    String accountSequence = serialSequence("account_entity", "account_id");
+    String userSequence = serialSequence("users", "id");
+    long[] accountIds = new long[users];
+    forEachBatch(users + adminCount, (from, size) -> {
+      long[] accounts = reserveIds(accountSequence, 1, size);
+      long[] userIds = reserveIds(userSequence, 1, size);
+      List<Object[]> accountRows = new ArrayList<>(size);
+      List<Object[]> userRows = new ArrayList<>(size);
+      List<Object[]> roleRows = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        int n = from + i - adminCount;
+        boolean admin = n < 0;
+        String username = admin ? "admin" : "user" + n;
+        String email = username + "@example.com";
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        accountRows.add(new Object[] {accounts[i], username, firstName, lastName, email,
+            10000 + random.nextInt(89999), (1 + random.nextInt(200)) + " Main Street",
+            BASE_DATE.minusDays(6570 + random.nextInt(18000)).toLocalDate().toString(),
+            "+49 30 " + (1000000 + random.nextInt(9000000)),
+            admin ? BigDecimal.ZERO : BigDecimal.valueOf(random.nextInt(50000), 2)});
+        userRows.add(new Object[] {userIds[i], username, email,
+            admin ? adminHash : passwordHash, accounts[i]});
+        roleRows.add(new Object[] {userIds[i], admin ? Role.ADMIN.name() : Role.USER.name()});
+        if (!admin) {
+          accountIds[n] = accounts[i];
+        }
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO account_entity (account_id, username, first_name, "
+          + "last_name, email, zip_code, address, birthday, phone_number, balance) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", accountRows);
+      jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, password, account_id) "
+          + "VALUES (?, ?, ?, ?, ?)", userRows);
+      jdbcTemplate.batchUpdate("INSERT INTO user_roles (user_id, role) VALUES (?, ?)", roleRows);
+    });
+    logRate("users", users, start);
+    return accountIds;
+  }
+
+  private void insertBaskets(long[] accountIds, Catalog catalog, Random random) {
+    long start = System.currentTimeMillis();
+    LocalDateTime now = LocalDateTime.now();
+    int[] count = {0};
+    forEachBatch(accountIds.length, (from, size) -> {
+      List<Integer> owners = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        if (random.nextDouble() < basketShare) {
+          owners.add(from + i);
+        }
+      }
+      if (owners.isEmpty()) {
+        return;
+      }
+      long[] basketIds = reserveIds("basket_seq", POOLED_INCREMENT, owners.size());
+      List<Object[]> basketRows = new ArrayList<>();
+      List<Object[]> detailRows = new ArrayList<>();
+      List<Object[]> accountRows = new ArrayList<>();
+      for (int i = 0; i < owners.size(); i++) {
+        long accountId = accountIds[owners.get(i)];
+        BigDecimal total = BigDecimal.ZERO;
+        int items = 1 + random.nextInt(5);
+        Set<Integer> books = new HashSet<>();
+        for (int j = 0; j < items; j++) {
+          int book = skewed(random, catalog.ids().length);
+          int quantity = 1 + random.nextInt(3);
+          if (!books.add(book)) {
+            continue; // One line per book and basket
+          }
+          total = total.add(catalog.prices()[book].multiply(BigDecimal.valueOf(quantity)));
+          // Both basket columns of basket_details are kept in sync, as by the application
+          detailRows.add(new Object[] {quantity, catalog.ids()[book], basketIds[i], basketIds[i],
+              now.minusMinutes(random.nextInt(7 * 24 * 60))});
+        }
+        basketRows.add(new Object[] {basketIds[i], accountId, total});
+        accountRows.add(new Object[] {basketIds[i], accountId});
+      }
+      long[] detailIds = reserveIds("basket_details_seq", POOLED_INCREMENT, detailRows.size());
+      for (int i = 0; i < detailRows.size(); i++) {
+        Object[] row = detailRows.get(i);
+        detailRows.set(i, new Object[] {detailIds[i], row[0], row[1], row[2], row[3], row[4]});
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO basket (basket_id, account_id, total_amount) "
+          + "VALUES (?, ?, ?)", basketRows);
+      jdbcTemplate.batchUpdate("INSERT INTO basket_details (id, quantity, book_book_id, "
+          + "basket_basket_id, basket_details_basket_id, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+          detailRows);
+      jdbcTemplate.batchUpdate("UPDATE account_entity SET basket_id = ? WHERE account_id = ?",
+          accountRows);
+      count[0] += owners.size();
+    });
+    logRate("baskets", count[0], start);
+  }
+
+  private void insertOrders(long[] accountIds, Catalog catalog, Random random) {
+    long start = System.currentTimeMillis();
+    String sequence = serialSequence("order_entity", "order_id");
+    long[] count = {0, 0};
+    // Fewer accounts per batch, as every account has several orders with several items
+    int accountsPerBatch = Math.max(1, batchSize / Math.max(1, ordersPerUser * 3));
+    for (int from = 0; from < accountIds.length; from += accountsPerBatch) {
+      int first = from;
+      int last = Math.min(accountIds.length, from + accountsPerBatch);
+      transactionTemplate.executeWithoutResult(status -> {
+        List<long[]> orders = new ArrayList<>();
+        List<List<int[]>> orderItems = new ArrayList<>();
+        for (int a = first; a < last; a++) {
+          int orderCount = random.nextInt(2 * ordersPerUser + 1);
+          for (int o = 0; o < orderCount; o++) {
+            List<int[]> items = new ArrayList<>();
+            int itemCount = 1 + random.nextInt(4);
+            for (int j = 0; j < itemCount; j++) {
+              items.add(new int[] {skewed(random, catalog.ids().length), 1 + random.nextInt(3)});
+            }
+            orders.add(new long[] {accountIds[a], random.nextInt(730 * 24 * 60)});
+            orderItems.add(items);
+          }
+        }
+        if (orders.isEmpty()) {
+          return;
+        }
+        long[] orderIds = reserveIds(sequence, 1, orders.size());
+        List<Object[]> orderRows = new ArrayList<>(orders.size());
+        List<Object[]> detailRows = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+          long accountId = orders.get(i)[0];
+          BigDecimal total = BigDecimal.ZERO;
+          for (int[] item : orderItems.get(i)) {
+            total = total.add(catalog.prices()[item[0]].multiply(BigDecimal.valueOf(item[1])));
+            detailRows.add(new Object[] {item[1], catalog.ids()[item[0]], orderIds[i], accountId});
+          }
+          String date = BASE_DATE.minusMinutes(orders.get(i)[1]).format(ORDER_DATE);
+          orderRows.add(new Object[] {orderIds[i], date, total, accountId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO order_entity (order_id, date, total_amount, "
+            + "account_id) VALUES (?, ?, ?, ?)", orderRows);
+        jdbcTemplate.batchUpdate("INSERT INTO order_details_entity (quantity, book_id, order_id, "
+            + "account_id) VALUES (?, ?, ?, ?)", detailRows);
+        count[0] += orderRows.size();
+        count[1] += detailRows.size();
+      });
+    }
+    logRate("orders with " + count[1] + " items", count[0], start);
+  }
+
+  private void insertGiftCards(long[] accountIds, Random random) {
+    long start = System.currentTimeMillis();
+    int[] amounts = {10, 20, 25, 50, 100, 200};
+    forEachBatch(giftCards, (from, size) -> {
+      List<Object[]> rows = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        // Multiplying by an odd number that is no multiple of 5 permutes the 10 digit codes
+        long code = (from + i + 1L) * 2654435761L % 10_000_000_000L;
+        boolean redeemed = accountIds.length > 0 && random.nextInt(100) < 20;
+        rows.add(new Object[] {String.format("GC%010d", code),
+            BigDecimal.valueOf(amounts[random.nextInt(amounts.length)]), redeemed,
+            redeemed ? accountIds[random.nextInt(accountIds.length)] : null});
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO gift_card_entity (card_code, balance, redeemed, "
+          + "account_entity_account_id) VALUES (?, ?, ?, ?)", rows,
+          new int[] {Types.VARCHAR, Types.NUMERIC, Types.BOOLEAN, Types.BIGINT});
+    });
+    logRate("gift cards", giftCards, start);
+  }
+
+  private void insertForumThreads(Random random) {
+    long start = System.currentTimeMillis();
+    String sequence = serialSequence("message", "id");
+    int[] replies = {0};
+    forEachBatch(forumThreads, (from, size) -> {
+      long[] ids = reserveIds(sequence, 1, size);
+      List<Object[]> messageRows = new ArrayList<>(size);
+      List<Object[]> replyRows = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        LocalDateTime postedAt = BASE_DATE.minusMinutes(random.nextInt(365 * 24 * 60));
+        messageRows.add(new Object[] {ids[i], name, name.toLowerCase() + (from + i)
+            + "@example.com", "Has anyone read " + title(random) + "? Looking for books about "
+            + TOPICS[random.nextInt(TOPICS.length)].toLowerCase() + ".", postedAt});
+        int replyCount = random.nextInt(6);
+        for (int j = 0; j < replyCount; j++) {
+          replyRows.add(new Object[] {FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+              "Try " + title(random) + ", I liked it.",
+              postedAt.plusMinutes(1 + random.nextInt(7 * 24 * 60)), ids[i]});
+        }
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO message (id, name, email, message_content, "
+          + "message_at) VALUES (?, ?, ?, ?, ?)", messageRows);
+      jdbcTemplate.batchUpdate("INSERT INTO reply (name, reply_content, replied_at, message_id) "
+          + "VALUES (?, ?, ?, ?)", replyRows);
+      replies[0] += replyRows.size();
+    });
+    logRate("forum threads with " + replies[0] + " replies", forumThreads, start);
+  }
+
+  // Runs the writer for consecutive ranges of at most batchSize rows, each in a transaction
+  private void forEachBatch(int count, BatchWriter writer) {
+    for (int from = 0; from < count; from += batchSize) {
+      int first = from;
+      int size = Math.min(batchSize, count - from);
+      transactionTemplate.executeWithoutResult(status -> writer.write(first, size));
+    }
+  }
+
+  /**
+   * Reserves IDs from a sequence with one query. Sequences with an increment above one are read
+   * like Hibernate's pooled optimizer does: each value is the upper end of a block of IDs.
+   */
+  private long[] reserveIds(String sequence, int increment, int count) {
+    long[] ids = new long[count];
+    int n = 0;
+    while (n < count) {
+      int blocks = (count - n + increment - 1) / increment;
+      List<Long> values = jdbcTemplate.queryForList(
+          "SELECT nextval(CAST(? AS regclass)) FROM generate_series(1, ?)", Long.class,
+          sequence, blocks);
+      for (long high : values) {
+        // The first block of a new sequence is incomplete, Hibernate treats it separately
+        for (long id = high - increment + 1; id >= 1 && id <= high && n < count; id++) {
+          ids[n++] = id;
+        }
+      }
+    }
+    return ids;
+  }
+
+  private String serialSequence(String table, String column) {
+    return jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, ?)", String.class,
+        table, column);
+  }
+
+  // Turns the search vector triggers of the catalog tables off or on, false if not possible
+  private boolean setSearchTriggers(boolean enabled) {
+    Boolean exists = jdbcTemplate.queryForObject(
+        "SELECT to_regproc('book_search_vector') IS NOT NULL", Boolean.class);
+    if (!Boolean.TRUE.equals(exists)) {
+      return false;
+    }
+    String action = enabled ? "ENABLE" : "DISABLE";
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        for (String table : List.of("book_entity", "book_author", "book_category")) {
+          jdbcTemplate.execute("ALTER TABLE " + table + " " + action + " TRIGGER USER");
+        }
+      });
+      return true;
+    } catch (RuntimeException e) {
+      logger.warn("Search vector triggers stay enabled: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  // Index into an array where low indexes are chosen much more often
+  private static int skewed(Random random, int length) {
+    double r = random.nextDouble();
+    return Math.min(length - 1, (int) (length * r * r * r));
+  }
+
+  private static String title(Random random) {
+    return "The " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+        + NOUNS[random.nextInt(NOUNS.length)];
+  }
+
+  // ISBN-13 with the 978 prefix and the book number, so every book has a distinct valid ISBN
+  private static String isbn(int n) {
+    String digits = "978" + String.format("%09d", n);
+    int sum = 0;
+    for (int i = 0; i < 12; i++) {
+      sum += (i % 2 == 0 ? 1 : 3) * (digits.charAt(i) - '0');
+    }
+    return digits + (10 - sum % 10) % 10;
+  }
+
+  // Plain coloured covers with a title band
+  private static List<byte[]> placeholderCovers(Random random) {
+    List<byte[]> covers = new ArrayList<>();
+    for (int i = 0; i < PLACEHOLDER_COVERS; i++) {
+      BufferedImage image = new BufferedImage(200, 300, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = image.createGraphics();
+      Color color = Color.getHSBColor(random.nextFloat(), 0.5f, 0.7f);
+      graphics.setColor(color);
+      graphics.fillRect(0, 0, 200, 300);
+      graphics.setColor(color.brighter());
+      graphics.fillRect(20, 90, 160, 60);
+      graphics.dispose();
+      try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        ImageIO.write(image, "png", out);
+        covers.add(out.toByteArray());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return covers;
+  }
+
+  private void logRate(String what, long count, long start) {
+    long millis = Math.max(1, System.currentTimeMillis() - start);
+    logger.info("Generated {} {} in {} ms ({} rows/s)", count, what, millis,
+        count * 1000 / millis);
+  }
+
+  @FunctionalInterface
+  private interface BatchWriter {
+
+    void write(int from, int size);
+  }
+
+  // IDs and prices of the generated books by book number
+  private record Catalog(long[] ids, BigDecimal[] prices) {
+  }
+}
@@ -0,0 +1,4 @@
+-- The sweep of the filesystem image storage looks up, for batches of files, whether any book or
+-- resized copy still refers to the hash the file is named after.
+CREATE INDEX IF NOT EXISTS book_entity_image_hash_idx ON book_entity (image_hash);
+CREATE INDEX IF NOT EXISTS book_image_entity_image_hash_idx ON book_image_entity (image_hash);
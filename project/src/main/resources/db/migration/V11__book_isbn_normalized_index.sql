@@ -0,0 +1,5 @@
+-- The catalog import compares the normalized ISBNs of a file with those of the catalog, where
+-- books saved before the admin form normalized them may still have hyphens, spaces or a
+-- lower-case x. Same rules as IsbnUtils.normalize.
+CREATE INDEX IF NOT EXISTS book_entity_isbn_normalized_idx
+    ON book_entity (upper(regexp_replace(isbn, '[[:space:]-]', '', 'g')));
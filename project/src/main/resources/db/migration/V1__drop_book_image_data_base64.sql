@@ -0,0 +1,2 @@
+-- The Base64 copy of the cover is no longer stored, images are served from /books/{id}/image
+ALTER TABLE IF EXISTS book_entity DROP COLUMN IF EXISTS image_data_base64;
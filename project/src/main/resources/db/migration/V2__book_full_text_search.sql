@@ -0,0 +1,61 @@
+-- Weighted full-text document of a book: title (A), authors (B), categories (C), description (D)
+ALTER TABLE book_entity ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION book_search_vector(p_book_id bigint, p_title text, p_description text)
+RETURNS tsvector
+LANGUAGE sql STABLE AS $$
+  SELECT setweight(to_tsvector('english', coalesce(p_title, '')), 'A')
+      || setweight(to_tsvector('english', coalesce((SELECT string_agg(author, ' ')
+             FROM book_entity_author WHERE book_entity_book_id = p_book_id), '')), 'B')
+      || setweight(to_tsvector('english', coalesce((SELECT string_agg(category, ' ')
+             FROM book_entity_category WHERE book_entity_book_id = p_book_id), '')), 'C')
+      || setweight(to_tsvector('english', coalesce(p_description, '')), 'D')
+$$;
+
+-- Title and description changes are picked up before the row is written
+CREATE OR REPLACE FUNCTION book_entity_search_vector_trigger()
+RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+  NEW.search_vector := book_search_vector(NEW.book_id, NEW.title, NEW.description);
+  RETURN NEW;
+END
+$$;
+
+DROP TRIGGER IF EXISTS book_entity_search_vector ON book_entity;
+CREATE TRIGGER book_entity_search_vector
+  BEFORE INSERT OR UPDATE OF title, description ON book_entity
+  FOR EACH ROW EXECUTE FUNCTION book_entity_search_vector_trigger();
+
+-- Authors and categories are written after the book row, so their changes refresh the vector
+CREATE OR REPLACE FUNCTION book_collection_search_vector_trigger()
+RETURNS trigger
+LANGUAGE plpgsql AS $$
+DECLARE
+  v_book_id bigint;
+BEGIN
+  IF TG_OP = 'DELETE' THEN
+    v_book_id := OLD.book_entity_book_id;
+  ELSE
+    v_book_id := NEW.book_entity_book_id;
+  END IF;
+  UPDATE book_entity
+     SET search_vector = book_search_vector(book_id, title, description)
+   WHERE book_id = v_book_id;
+  RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS book_entity_author_search_vector ON book_entity_author;
+CREATE TRIGGER book_entity_author_search_vector
+  AFTER INSERT OR UPDATE OR DELETE ON book_entity_author
+  FOR EACH ROW EXECUTE FUNCTION book_collection_search_vector_trigger();
+
+DROP TRIGGER IF EXISTS book_entity_category_search_vector ON book_entity_category;
+CREATE TRIGGER book_entity_category_search_vector
+  AFTER INSERT OR UPDATE OR DELETE ON book_entity_category
+  FOR EACH ROW EXECUTE FUNCTION book_collection_search_vector_trigger();
+
+UPDATE book_entity SET search_vector = book_search_vector(book_id, title, description);
+
+CREATE INDEX IF NOT EXISTS book_entity_search_vector_idx ON book_entity USING gin (search_vector);
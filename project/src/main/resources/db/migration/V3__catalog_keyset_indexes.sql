@@ -0,0 +1,4 @@
+-- Keyset pagination of the catalog seeks to the last (sort key, id) of the previous page,
+-- which these indexes turn into a range scan that reads only one page of rows
+CREATE INDEX IF NOT EXISTS book_entity_price_id_idx ON book_entity (price, book_id);
+CREATE INDEX IF NOT EXISTS book_entity_title_id_idx ON book_entity (title, book_id);
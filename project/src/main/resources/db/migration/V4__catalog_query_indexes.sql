@@ -0,0 +1,27 @@
+-- Indexes for the combined catalog query (BookSpecifications). Sorting by price or title uses
+-- the (key, book_id) indexes of V3; the indexes below serve the filters.
+
+-- Substring matches (LIKE '%text%') on lower-cased columns can use trigram indexes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS book_entity_title_trgm_idx
+    ON book_entity USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS book_entity_description_trgm_idx
+    ON book_entity USING gin (lower(description) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS book_entity_isbn_idx ON book_entity (isbn);
+
+-- Exact category and author filters find their books without reading the book table, the
+-- trigram indexes serve the text search, and the book_id indexes load a page's attributes
+CREATE INDEX IF NOT EXISTS book_entity_category_value_idx
+    ON book_entity_category (lower(category), book_entity_book_id);
+CREATE INDEX IF NOT EXISTS book_entity_category_trgm_idx
+    ON book_entity_category USING gin (lower(category) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS book_entity_category_book_idx
+    ON book_entity_category (book_entity_book_id);
+
+CREATE INDEX IF NOT EXISTS book_entity_author_value_idx
+    ON book_entity_author (lower(author), book_entity_book_id);
+CREATE INDEX IF NOT EXISTS book_entity_author_trgm_idx
+    ON book_entity_author USING gin (lower(author) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS book_entity_author_book_idx
+    ON book_entity_author (book_entity_book_id);
@@ -0,0 +1,137 @@
+-- Categories and authors get their own tables with unique names and slugs, linked to the books
+-- through the book_category and book_author join tables instead of one copy of the name per
+-- book in book_entity_category and book_entity_author
+
+-- URL form of a name, same rules as SlugUtils.slugify
+CREATE OR REPLACE FUNCTION catalog_slug(p_name text)
+RETURNS text
+LANGUAGE sql IMMUTABLE AS $$
+  SELECT coalesce(nullif(trim(BOTH '-' FROM regexp_replace(lower(p_name), '[^a-z0-9]+', '-', 'g')), ''), 'n-a')
+$$;
+
+CREATE SEQUENCE IF NOT EXISTS category_entity_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS author_entity_seq INCREMENT BY 50;
+
+-- category_entity was mapped before but never written, it now holds one row per category
+DELETE FROM category_entity;
+ALTER TABLE category_entity DROP COLUMN IF EXISTS book_id;
+
+-- One row per name ignoring case, slugs shared by several names are numbered
+INSERT INTO category_entity (id, name, slug)
+SELECT nextval('category_entity_seq'), name,
+       catalog_slug(name) || CASE WHEN slug_rank > 1 THEN '-' || slug_rank ELSE '' END
+  FROM (SELECT name, row_number() OVER (PARTITION BY catalog_slug(name) ORDER BY name) AS slug_rank
+          FROM (SELECT DISTINCT ON (lower(trim(category))) trim(category) AS name
+                  FROM book_entity_category
+                 WHERE trim(category) <> ''
+                 ORDER BY lower(trim(category)), trim(category)) names) ranked;
+
+INSERT INTO author_entity (id, name, slug)
+SELECT nextval('author_entity_seq'), name,
+       catalog_slug(name) || CASE WHEN slug_rank > 1 THEN '-' || slug_rank ELSE '' END
+  FROM (SELECT name, row_number() OVER (PARTITION BY catalog_slug(name) ORDER BY name) AS slug_rank
+          FROM (SELECT DISTINCT ON (lower(trim(author))) trim(author) AS name
+                  FROM book_entity_author
+                 WHERE trim(author) <> ''
+                 ORDER BY lower(trim(author)), trim(author)) names) ranked;
+
+INSERT INTO book_category (book_id, category_id)
+SELECT DISTINCT bc.book_entity_book_id, c.id
+  FROM book_entity_category bc
+  JOIN category_entity c ON lower(c.name) = lower(trim(bc.category));
+
+INSERT INTO book_author (book_id, author_id)
+SELECT DISTINCT ba.book_entity_book_id, a.id
+  FROM book_entity_author ba
+  JOIN author_entity a ON lower(a.name) = lower(trim(ba.author));
+
+ALTER TABLE category_entity ALTER COLUMN name SET NOT NULL, ALTER COLUMN slug SET NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS category_entity_name_key ON category_entity (lower(name));
+CREATE UNIQUE INDEX IF NOT EXISTS category_entity_slug_key ON category_entity (slug);
+
+ALTER TABLE author_entity ALTER COLUMN name SET NOT NULL, ALTER COLUMN slug SET NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS author_entity_name_key ON author_entity (lower(name));
+CREATE UNIQUE INDEX IF NOT EXISTS author_entity_slug_key ON author_entity (slug);
+
+-- The primary keys serve the lookups by book, the second indexes the browse pages
+ALTER TABLE book_category ADD CONSTRAINT book_category_pkey PRIMARY KEY (book_id, category_id);
+CREATE INDEX IF NOT EXISTS book_category_category_idx ON book_category (category_id, book_id);
+
+ALTER TABLE book_author ADD CONSTRAINT book_author_pkey PRIMARY KEY (book_id, author_id);
+CREATE INDEX IF NOT EXISTS book_author_author_idx ON book_author (author_id, book_id);
+
+-- Full-text search (V2) reads the names through the join tables
+CREATE OR REPLACE FUNCTION book_search_vector(p_book_id bigint, p_title text, p_description text)
+RETURNS tsvector
+LANGUAGE sql STABLE AS $$
+  SELECT setweight(to_tsvector('english', coalesce(p_title, '')), 'A')
+      || setweight(to_tsvector('english', coalesce((SELECT string_agg(a.name, ' ')
+             FROM book_author ba JOIN author_entity a ON a.id = ba.author_id
+            WHERE ba.book_id = p_book_id), '')), 'B')
+      || setweight(to_tsvector('english', coalesce((SELECT string_agg(c.name, ' ')
+             FROM book_category bc JOIN category_entity c ON c.id = bc.category_id
+            WHERE bc.book_id = p_book_id), '')), 'C')
+      || setweight(to_tsvector('english', coalesce(p_description, '')), 'D')
+$$;
+
+CREATE OR REPLACE FUNCTION book_collection_search_vector_trigger()
+RETURNS trigger
+LANGUAGE plpgsql AS $$
+DECLARE
+  v_book_id bigint;
+BEGIN
+  IF TG_OP = 'DELETE' THEN
+    v_book_id := OLD.book_id;
+  ELSE
+    v_book_id := NEW.book_id;
+  END IF;
+  UPDATE book_entity
+     SET search_vector = book_search_vector(book_id, title, description)
+   WHERE book_id = v_book_id;
+  RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS book_author_search_vector ON book_author;
+CREATE TRIGGER book_author_search_vector
+  AFTER INSERT OR UPDATE OR DELETE ON book_author
+  FOR EACH ROW EXECUTE FUNCTION book_collection_search_vector_trigger();
+
+DROP TRIGGER IF EXISTS book_category_search_vector ON book_category;
+CREATE TRIGGER book_category_search_vector
+  AFTER INSERT OR UPDATE OR DELETE ON book_category
+  FOR EACH ROW EXECUTE FUNCTION book_collection_search_vector_trigger();
+
+-- Renaming a category or author refreshes all its books
+CREATE OR REPLACE FUNCTION catalog_name_search_vector_trigger()
+RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+  IF TG_TABLE_NAME = 'author_entity' THEN
+    UPDATE book_entity
+       SET search_vector = book_search_vector(book_id, title, description)
+     WHERE book_id IN (SELECT book_id FROM book_author WHERE author_id = NEW.id);
+  ELSE
+    UPDATE book_entity
+       SET search_vector = book_search_vector(book_id, title, description)
+     WHERE book_id IN (SELECT book_id FROM book_category WHERE category_id = NEW.id);
+  END IF;
+  RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS author_entity_search_vector ON author_entity;
+CREATE TRIGGER author_entity_search_vector
+  AFTER UPDATE OF name ON author_entity
+  FOR EACH ROW EXECUTE FUNCTION catalog_name_search_vector_trigger();
+
+DROP TRIGGER IF EXISTS category_entity_search_vector ON category_entity;
+CREATE TRIGGER category_entity_search_vector
+  AFTER UPDATE OF name ON category_entity
+  FOR EACH ROW EXECUTE FUNCTION catalog_name_search_vector_trigger();
+
+-- The collection tables go with their triggers and the V4 indexes
+DROP TABLE IF EXISTS book_entity_author;
+DROP TABLE IF EXISTS book_entity_category;
+
+UPDATE book_entity SET search_vector = book_search_vector(book_id, title, description);
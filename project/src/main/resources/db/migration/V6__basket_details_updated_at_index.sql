@@ -0,0 +1,6 @@
+-- The basket expiry sweep deletes the lines not updated within the expiration time, oldest
+-- first; this index lets it read only the expired lines instead of every basket line
+CREATE INDEX IF NOT EXISTS basket_details_updated_at_idx ON basket_details (updated_at);
+
+-- Recomputing the total of a basket, and the per-basket expiry, read the lines of one basket
+CREATE INDEX IF NOT EXISTS basket_details_basket_idx ON basket_details (basket_basket_id);
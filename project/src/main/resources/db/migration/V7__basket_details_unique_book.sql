@@ -0,0 +1,19 @@
+-- A basket holds one line per book, adding a book again raises the quantity of its line. The
+-- add-to-basket upsert relies on this key, which also keeps concurrent clicks from creating two
+-- lines. Duplicate lines are merged into the oldest one first.
+UPDATE basket_details bd
+   SET quantity = d.quantity, updated_at = d.updated_at
+  FROM (SELECT min(id) AS id, sum(quantity) AS quantity, max(updated_at) AS updated_at
+          FROM basket_details
+         GROUP BY basket_basket_id, book_book_id
+        HAVING count(*) > 1) d
+ WHERE bd.id = d.id;
+
+DELETE FROM basket_details bd
+ USING basket_details keep
+ WHERE keep.basket_basket_id = bd.basket_basket_id
+   AND keep.book_book_id = bd.book_book_id
+   AND keep.id < bd.id;
+
+ALTER TABLE basket_details
+  ADD CONSTRAINT basket_details_basket_book_key UNIQUE (basket_basket_id, book_book_id);
@@ -0,0 +1,12 @@
+-- Version columns for optimistic locking of baskets and their lines. Hibernate adds them as
+-- nullable columns; existing rows start at version 0, and rows inserted with JDBC (add to
+-- basket, synthetic data) get 0 by default.
+ALTER TABLE basket ADD COLUMN IF NOT EXISTS version bigint;
+UPDATE basket SET version = 0 WHERE version IS NULL;
+ALTER TABLE basket ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE basket ALTER COLUMN version SET NOT NULL;
+
+ALTER TABLE basket_details ADD COLUMN IF NOT EXISTS version bigint;
+UPDATE basket_details SET version = 0 WHERE version IS NULL;
+ALTER TABLE basket_details ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE basket_details ALTER COLUMN version SET NOT NULL;
@@ -0,0 +1,9 @@
+-- Covers stored before the hash was recorded get it calculated from the large object, so the
+-- templates, which show a cover if the book has a hash, no longer show "No picture" for them.
+-- The hash is the lowercase hex SHA-256 of the image bytes, as calculated by BookImageService.
+UPDATE book_entity b
+   SET image_hash = encode(sha256(lo_get(b.image)), 'hex'),
+       image_updated_at = COALESCE(b.image_updated_at, now())
+ WHERE b.image_hash IS NULL
+   AND b.image IS NOT NULL
+   AND EXISTS (SELECT 1 FROM pg_largeobject_metadata m WHERE m.oid = b.image);
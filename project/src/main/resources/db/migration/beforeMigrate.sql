@@ -0,0 +1,18 @@
+-- Authors and categories used to be collection tables of book_entity, which V2 and V4 refer
+-- to. Hibernate no longer creates them on a new database, so they are provided empty here
+-- until V5 has moved their rows into the author and category tables.
+DO $$
+BEGIN
+  IF to_regclass('flyway_schema_history') IS NULL
+      OR NOT EXISTS (SELECT 1 FROM flyway_schema_history WHERE version = '5' AND success) THEN
+    CREATE TABLE IF NOT EXISTS book_entity_author (
+      book_entity_book_id bigint NOT NULL,
+      author varchar(255)
+    );
+    CREATE TABLE IF NOT EXISTS book_entity_category (
+      book_entity_book_id bigint NOT NULL,
+      category varchar(255)
+    );
+  END IF;
+END
+$$;
@@ -0,0 +1,218 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.entity.Basket;
+import com.project.entity.BookEntity;
+import com.project.repository.BookRepository;
+import com.project.service.BasketService;
+import com.project.service.UserService;
+import com.project.util.OptimisticRetry;
+import com.project.util.Role;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Hammers one basket from many threads through {@link BasketService} against the database. Every
+ * change is a request of its own, with its own request scope and persistence context. The
+ * quantity changes collide on the version of the basket row, which the copies added with the
+ * upsert raise as well, and are retried with {@link OptimisticRetry}.
+ */
+@SpringBootTest(properties = {"bookstore.basket.store=database",
+    "bookstore.basket.retry.max-attempts=200",
+    "bookstore.basket.retry.base-delay-millis=2",
+    "bookstore.basket.retry.max-delay-millis=20"})
+class BasketConcurrencyTest {
+
+  private static final int UPDATING_THREADS = 8;
+  private static final int ADDING_THREADS = 2;
+  private static final int CHANGES_PER_THREAD = 25;
+
+  @Autowired
+  private BasketService basketService;
+  @Autowired
+  private UserService userService;
+  @Autowired
+  private BookRepository bookRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private String username;
+  private Long accountId;
+  private final List<BookEntity> books = new ArrayList<>();
+
+  @BeforeEach
+  public void setUp() {
+    username = "basket-concurrency-" + System.nanoTime();
+    userService.saveUser(username, username + "@example.com", "secret", Role.USER);
+    accountId = userService.findByUsername(username).getAccount().getId();
+    // One book per updating thread, and one that all adding threads add copies of
+    for (int i = 0; i <= UPDATING_THREADS; i++) {
+      BookEntity book = new BookEntity();
+      book.setTitle("Concurrency test " + i);
+      book.setPrice(new BigDecimal("9.99").add(BigDecimal.valueOf(i)));
+      books.add(bookRepository.save(book));
+    }
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    // Connections do not auto-commit
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      jdbcTemplate.update("UPDATE account_entity SET basket_id = NULL WHERE account_id = ?",
+          accountId);
+      jdbcTemplate.update("DELETE FROM basket_details WHERE basket_basket_id IN "
+          + "(SELECT basket_id FROM basket WHERE account_id = ?)", accountId);
+      jdbcTemplate.update("DELETE FROM basket WHERE account_id = ?", accountId);
+      jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN "
+          + "(SELECT id FROM users WHERE account_id = ?)", accountId);
+      jdbcTemplate.update("DELETE FROM users WHERE account_id = ?", accountId);
+      jdbcTemplate.update("DELETE FROM account_entity WHERE account_id = ?", accountId);
+    });
+    bookRepository.deleteAll(books);
+  }
+
+  @Test
+  public void testConcurrentChangesOfOneBasketAreNotLost() throws Exception {
+    Long basketId = inRequest(() -> {
+      Long id = null;
+      for (BookEntity book : books) {
+        id = basketService.addToBasket(book, 1);
+      }
+      return id;
+    });
+    long versionBefore = basketVersion(basketId);
+    BookEntity addedBook = books.get(UPDATING_THREADS);
+
+    ExecutorService executor = Executors.newFixedThreadPool(UPDATING_THREADS + ADDING_THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < UPDATING_THREADS; t++) {
+      Long bookId = books.get(t).getId();
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int quantity = 2; quantity <= CHANGES_PER_THREAD + 1; quantity++) {
+          int newQuantity = quantity;
+          inRequest(() -> {
+            basketService.updateBasketDetails(bookId, newQuantity);
+            return null;
+          });
+        }
+        return null;
+      }));
+    }
+    for (int t = 0; t < ADDING_THREADS; t++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+          inRequest(() -> basketService.addToBasket(addedBook, 1));
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    // An optimistic lock failure that escaped the retries fails here
+    for (Future<?> future : futures) {
+      future.get(120, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    BigDecimal expectedTotal = BigDecimal.ZERO;
+    for (int t = 0; t < UPDATING_THREADS; t++) {
+      BookEntity book = books.get(t);
+      assertEquals(CHANGES_PER_THREAD + 1, quantity(basketId, book.getId()));
+      expectedTotal = expectedTotal.add(
+          book.getPrice().multiply(BigDecimal.valueOf(CHANGES_PER_THREAD + 1)));
+    }
+    int addedCopies = 1 + ADDING_THREADS * CHANGES_PER_THREAD;
+    assertEquals(addedCopies, quantity(basketId, addedBook.getId()));
+    expectedTotal = expectedTotal.add(
+        addedBook.getPrice().multiply(BigDecimal.valueOf(addedCopies)));
+
+    Map<String, Object> basket = jdbcTemplate.queryForMap(
+        "SELECT total_amount, (SELECT SUM(d.quantity * b.price) FROM basket_details d "
+            + "JOIN book_entity b ON b.book_id = d.book_book_id "
+            + "WHERE d.basket_basket_id = ?) AS line_total FROM basket WHERE basket_id = ?",
+        basketId, basketId);
+    assertEquals(0, expectedTotal.compareTo((BigDecimal) basket.get("total_amount")));
+    assertEquals(0, expectedTotal.compareTo((BigDecimal) basket.get("line_total")));
+    // Every change raised the version once
+    int changes = (UPDATING_THREADS + ADDING_THREADS) * CHANGES_PER_THREAD;
+    assertTrue(basketVersion(basketId) - versionBefore >= changes);
+  }
+
+  @Test
+  public void testRetryGivesUpAfterMaxAttempts() {
+    OptimisticRetry retry = new OptimisticRetry(3, 0, 0);
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> retry.run(() -> {
+      attempts.incrementAndGet();
+      throw new ObjectOptimisticLockingFailureException(Basket.class, 1L);
+    }));
+    assertEquals(3, attempts.get());
+  }
+
+  // Runs the action as a request of the test user
+  private <T> T inRequest(Supplier<T> action) {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    SecurityContextHolder.getContext().setAuthentication(
+        new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    TransactionSynchronizationManager.bindResource(entityManagerFactory,
+        new EntityManagerHolder(entityManager));
+    try {
+      return action.get();
+    } finally {
+      TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+      EntityManagerFactoryUtils.closeEntityManager(entityManager);
+      SecurityContextHolder.clearContext();
+      RequestContextHolder.resetRequestAttributes();
+    }
+  }
+
+  private int quantity(Long basketId, Long bookId) {
+    return jdbcTemplate.queryForObject("SELECT quantity FROM basket_details "
+        + "WHERE basket_basket_id = ? AND book_book_id = ?", Integer.class, basketId, bookId);
+  }
+
+  private long basketVersion(Long basketId) {
+    return jdbcTemplate.queryForObject("SELECT version FROM basket WHERE basket_id = ?",
+        Long.class, basketId);
+  }
+}
@@ -0,0 +1,192 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.entity.Basket;
+import com.project.entity.BasketDetails;
+import com.project.entity.BookEntity;
+import com.project.repository.BookRepository;
+import com.project.service.BasketService;
+import com.project.service.BasketWriteBehindStore;
+import com.project.service.UserService;
+import com.project.util.Role;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Runs the write-behind basket store against the database. The periodic flush is effectively
+ * off, so only the flushes of the tests write. Each request gets its own request scope and, as
+ * with open-in-view, one persistence context.
+ */
+@SpringBootTest(properties = {"bookstore.basket.store=memory",
+    "bookstore.basket.flush-interval-millis=3600000"})
+class BasketWriteBehindFlushTest {
+
+  @Autowired
+  private BasketService basketService;
+  @Autowired
+  private BasketWriteBehindStore writeBehindStore;
+  @Autowired
+  private UserService userService;
+  @Autowired
+  private BookRepository bookRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private String username;
+  private Long accountId;
+  private BookEntity first;
+  private BookEntity second;
+
+  @BeforeEach
+  public void setUp() {
+    username = "basket-flush-" + System.nanoTime();
+    userService.saveUser(username, username + "@example.com", "secret", Role.USER);
+    accountId = userService.findByUsername(username).getAccount().getId();
+    first = bookRepository.save(book("Flush test 1", "12.50"));
+    second = bookRepository.save(book("Flush test 2", "8.00"));
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    writeBehindStore.flush(accountId);
+    // Connections do not auto-commit
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      jdbcTemplate.update("UPDATE account_entity SET basket_id = NULL WHERE account_id = ?",
+          accountId);
+      jdbcTemplate.update("DELETE FROM basket_details WHERE basket_basket_id IN "
+          + "(SELECT basket_id FROM basket WHERE account_id = ?)", accountId);
+      jdbcTemplate.update("DELETE FROM basket WHERE account_id = ?", accountId);
+      jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN "
+          + "(SELECT id FROM users WHERE account_id = ?)", accountId);
+      jdbcTemplate.update("DELETE FROM users WHERE account_id = ?", accountId);
+      jdbcTemplate.update("DELETE FROM account_entity WHERE account_id = ?", accountId);
+    });
+    bookRepository.deleteAllById(List.of(first.getId(), second.getId()));
+  }
+
+  @Test
+  public void testFlushWritesCoalescedLinesAndTotal() {
+    inRequest(() -> {
+      basketService.addToBasket(first, 2);
+      basketService.addToBasket(first, 1);
+      basketService.addToBasket(second, 5);
+      basketService.updateBasketDetails(second.getId(), 2);
+      return null;
+    });
+    assertEquals(0, countLines(), "Nothing is written before the flush");
+
+    Basket basket = inRequest(basketService::getBasketFromLoggedInUser);
+
+    assertEquals(Map.of(first.getId(), 3, second.getId(), 2), quantities(basket));
+    assertEquals(0, new BigDecimal("53.50").compareTo(basket.getTotalAmount()));
+    assertEquals(2, countLines());
+    assertEquals(0, writeBehindStore.getStats().get("pendingBaskets"));
+  }
+
+  @Test
+  public void testBasketIsReloadedAfterAFlushThatRemovesLines() {
+    Basket basket = inRequest(() -> {
+      basketService.addToBasket(first, 1);
+      basketService.addToBasket(second, 1);
+      // Loads the basket with both lines into the persistence context of this request
+      assertEquals(2, basketService.getBasketFromLoggedInUser().getBasketDetails().size());
+      basketService.removeFromBasket(first.getId());
+      return basketService.getBasketFromLoggedInUser();
+    });
+
+    assertEquals(Map.of(second.getId(), 1), quantities(basket));
+    assertEquals(0, new BigDecimal("8.00").compareTo(basket.getTotalAmount()));
+    assertEquals(Map.of(second.getId(), 1),
+        quantities(inRequest(basketService::getBasketFromLoggedInUser)));
+  }
+
+  @Test
+  public void testFailedFlushIsQueuedAgainBeforeNewerChanges() {
+    Long basketId = inRequest(() -> basketService.addToBasket(first, 1));
+    long failedBefore = (Long) writeBehindStore.getStats().get("failedFlushes");
+    // No such book, so the whole flush fails on the foreign key
+    writeBehindStore.add(accountId, basketId, -1L, 1);
+
+    assertFalse(writeBehindStore.flush(accountId));
+    assertEquals(failedBefore + 1, writeBehindStore.getStats().get("failedFlushes"));
+    assertEquals(0, countLines());
+    assertEquals(Map.of(first.getId(), 1, -1L, 1),
+        writeBehindStore.applyPending(accountId, Map.of()));
+
+    writeBehindStore.add(accountId, basketId, first.getId(), 2);
+    writeBehindStore.remove(accountId, basketId, -1L);
+    assertTrue(writeBehindStore.flush(accountId));
+
+    Basket basket = inRequest(basketService::getBasketFromLoggedInUser);
+    assertEquals(Map.of(first.getId(), 3), quantities(basket));
+    assertEquals(0, new BigDecimal("37.50").compareTo(basket.getTotalAmount()));
+  }
+
+  // Runs the action as a request of the test user
+  private <T> T inRequest(Supplier<T> action) {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    SecurityContextHolder.getContext().setAuthentication(
+        new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    TransactionSynchronizationManager.bindResource(entityManagerFactory,
+        new EntityManagerHolder(entityManager));
+    try {
+      return action.get();
+    } finally {
+      TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+      EntityManagerFactoryUtils.closeEntityManager(entityManager);
+      SecurityContextHolder.clearContext();
+      RequestContextHolder.resetRequestAttributes();
+    }
+  }
+
+  private int countLines() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM basket_details d "
+        + "JOIN basket b ON b.basket_id = d.basket_basket_id WHERE b.account_id = ?",
+        Integer.class, accountId);
+  }
+
+  private static Map<Long, Integer> quantities(Basket basket) {
+    Map<Long, Integer> result = new HashMap<>();
+    for (BasketDetails detail : basket.getBasketDetails()) {
+      result.put(detail.getBook().getId(), detail.getQuantity());
+    }
+    return result;
+  }
+
+  private static BookEntity book(String title, String price) {
+    BookEntity book = new BookEntity();
+    book.setTitle(title);
+    book.setPrice(new BigDecimal(price));
+    return book;
+  }
+}
@@ -0,0 +1,57 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.project.service.BasketWriteBehindStore;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how pending basket changes are coalesced, without a database: nothing is flushed.
+ */
+class BasketWriteBehindStoreTest {
+
+  private static final Long ACCOUNT = 1L;
+  private static final Long BASKET = 10L;
+
+  private final BasketWriteBehindStore store =
+      new BasketWriteBehindStore(null, null, null, "memory", 2000, 500);
+
+  @Test
+  public void testChangesOfOneBookAreCoalesced() {
+    store.add(ACCOUNT, BASKET, 100L, 2);
+    store.add(ACCOUNT, BASKET, 100L, 3);
+    store.set(ACCOUNT, BASKET, 200L, 4);
+    store.add(ACCOUNT, BASKET, 200L, 1);
+
+    Map<Long, Integer> quantities = store.applyPending(ACCOUNT, Map.of(100L, 1, 200L, 7, 300L, 2));
+
+    assertEquals(Map.of(100L, 6, 200L, 5, 300L, 2), quantities);
+    assertEquals(1, store.getStats().get("pendingBaskets"));
+  }
+
+  @Test
+  public void testRemovalReplacesEarlierChanges() {
+    store.add(ACCOUNT, BASKET, 100L, 2);
+    store.remove(ACCOUNT, BASKET, 100L);
+    store.remove(ACCOUNT, BASKET, 200L);
+    store.add(ACCOUNT, BASKET, 200L, 1);
+
+    Map<Long, Integer> quantities = store.applyPending(ACCOUNT, Map.of(100L, 5, 200L, 3));
+
+    assertEquals(Map.of(200L, 1), quantities);
+  }
+
+  @Test
+  public void testOtherAccountsAndDatabaseModeAreUnaffected() {
+    store.add(ACCOUNT, BASKET, 100L, 2);
+    assertEquals(Map.of(100L, 1), store.applyPending(2L, Map.of(100L, 1)));
+
+    BasketWriteBehindStore database =
+        new BasketWriteBehindStore(null, null, null, "database", 2000, 500);
+    database.add(ACCOUNT, BASKET, 100L, 2);
+    assertFalse(database.flush(ACCOUNT));
+    assertEquals(Map.of(100L, 1), database.applyPending(ACCOUNT, Map.of(100L, 1)));
+  }
+}
@@ -0,0 +1,103 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.entity.AccountEntity;
+import com.project.entity.Basket;
+import com.project.entity.BasketDetails;
+import com.project.entity.BookEntity;
+import com.project.entity.AuthorEntity;
+import com.project.entity.BookImageEntity;
+import com.project.entity.CategoryEntity;
+import com.project.entity.GiftCardEntity;
+import com.project.entity.OrderDetailsEntity;
+import com.project.entity.OrderEntity;
+import com.project.entity.PaymentEntity;
+import com.project.entity.User;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the table mapping Hibernate derives from the entities, without a database connection.
+ */
+class BookEntitySchemaTest {
+
+  private StandardServiceRegistry registry;
+  private Metadata metadata;
+
+  @BeforeEach
+  void buildMetadata() {
+    registry = new StandardServiceRegistryBuilder()
+        .applySetting("hibernate.dialect", PostgreSQLDialect.class.getName())
+        .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+        .build();
+    metadata = new MetadataSources(registry)
+        .addAnnotatedClasses(AccountEntity.class, AuthorEntity.class, Basket.class,
+            BasketDetails.class, BookEntity.class, BookImageEntity.class, CategoryEntity.class,
+            GiftCardEntity.class, OrderDetailsEntity.class, OrderEntity.class, PaymentEntity.class,
+            User.class)
+        .getMetadataBuilder()
+        // Same naming as Spring Boot uses for the application
+        .applyPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy())
+        .build();
+  }
+
+  @AfterEach
+  void closeRegistry() {
+    StandardServiceRegistryBuilder.destroy(registry);
+  }
+
+  @Test
+  public void testBookTableHasNoBase64ImageColumn() {
+    Set<String> columns = bookTableColumns();
+
+    assertFalse(columns.contains("image_data_base64"));
+    assertFalse(columns.contains("imagedatabase64"));
+  }
+
+  @Test
+  public void testBookTableKeepsImageColumns() {
+    Set<String> columns = bookTableColumns();
+
+    assertTrue(columns.contains("image"));
+    assertTrue(columns.contains("image_hash"));
+  }
+
+  @Test
+  public void testAuthorsAndCategoriesUseJoinTables() {
+    Set<String> tables = metadata.collectTableMappings().stream()
+        .map(Table::getName)
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+
+    assertTrue(tables.contains("book_author"));
+    assertTrue(tables.contains("book_category"));
+    assertFalse(tables.contains("book_entity_author"));
+    assertFalse(tables.contains("book_entity_category"));
+  }
+
+  private Set<String> bookTableColumns() {
+    Table table = metadata.collectTableMappings().stream()
+        .filter(candidate -> candidate.getName().equalsIgnoreCase("book_entity"))
+        .findFirst()
+        .orElse(null);
+    assertNotNull(table);
+    return table.getColumns().stream()
+        .map(Column::getName)
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,111 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.project.controller.CoverImageController;
+import com.project.dto.CoverImage;
+import com.project.dto.StoredImage;
+import com.project.entity.BookEntity;
+import com.project.entity.BookImageEntity;
+import com.project.repository.BookRepository;
+import com.project.service.BookImageService;
+import com.project.service.CoverImageCache;
+import com.project.util.ImageVariant;
+import jakarta.persistence.EntityManager;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Replaces the cover of a saved book against the database, where the resized copies have a
+ * unique (book, variant) key.
+ */
+@SpringBootTest
+@Transactional
+class BookImageReplaceTest {
+
+  @Autowired
+  private BookImageService bookImageService;
+  @Autowired
+  private BookRepository bookRepository;
+  @Autowired
+  private CoverImageController coverImageController;
+  @Autowired
+  private CoverImageCache coverImageCache;
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  public void testReplacingACoverUpdatesTheResizedCopies() throws IOException {
+    BookEntity book = new BookEntity();
+    book.setTitle("Cover test");
+    book.setPrice(BigDecimal.TEN);
+    bookImageService.attachImage(book, png(Color.RED));
+    Long id = bookRepository.saveAndFlush(book).getId();
+    entityManager.clear();
+
+    BookEntity saved = bookRepository.findById(id).orElseThrow();
+    byte[] newCover = png(Color.BLUE);
+    bookImageService.attachImage(saved, newCover);
+    bookRepository.saveAndFlush(saved);
+    entityManager.clear();
+
+    List<BookImageEntity> images = bookRepository.findById(id).orElseThrow().getImages();
+    assertEquals(ImageVariant.values().length, images.size());
+    for (BookImageEntity image : images) {
+      assertEquals(BookImageService.hash(bookImageService.getImage(id, image.getVariant())),
+          image.getImageHash());
+    }
+    assertEquals(BookImageService.hash(newCover),
+        bookRepository.findById(id).orElseThrow().getImageHash());
+  }
+
+  @Test
+  public void testCachedOldCoverIsNotServedForTheNewVersion() throws IOException {
+    BookEntity book = new BookEntity();
+    book.setTitle("Cover cache test");
+    book.setPrice(BigDecimal.TEN);
+    byte[] oldCover = png(Color.RED);
+    bookImageService.attachImage(book, oldCover);
+    Long id = bookRepository.saveAndFlush(book).getId();
+    BookEntity saved = bookRepository.findById(id).orElseThrow();
+    byte[] newCover = png(Color.BLUE);
+    bookImageService.attachImage(saved, newCover);
+    bookRepository.saveAndFlush(saved);
+    // A request that read the metadata before the replacement caches the old cover afterwards
+    String oldHash = BookImageService.hash(oldCover);
+    coverImageCache.put(id, null, new CoverImage(StoredImage.ofBytes(oldCover), oldHash,
+        saved.getImageUpdatedAt().minusSeconds(1), oldHash));
+
+    String newHash = BookImageService.hash(newCover);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    coverImageController.getCoverImage(id, newHash, new MockHttpServletRequest(), response);
+    assertEquals("\"" + newHash + "\"", response.getHeader(HttpHeaders.ETAG));
+    assertArrayEquals(newCover, response.getContentAsByteArray());
+    assertEquals(newHash, coverImageCache.get(id, null).version());
+  }
+
+  private static byte[] png(Color color) throws IOException {
+    BufferedImage image = new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(color);
+    graphics.fillRect(0, 0, 400, 600);
+    graphics.dispose();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", out);
+    return out.toByteArray();
+  }
+}
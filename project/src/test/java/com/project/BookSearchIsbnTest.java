@@ -0,0 +1,94 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.dto.BookListing;
+import com.project.dto.CatalogQuery;
+import com.project.entity.BookEntity;
+import com.project.repository.BookRepository;
+import com.project.service.BookListingService;
+import com.project.service.BookService;
+import com.project.service.CatalogQueryService;
+import com.project.util.IsbnUtils;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Looks books up by ISBN through the search queries, against the database.
+ */
+@SpringBootTest
+@Transactional
+class BookSearchIsbnTest {
+
+  private static final String ISBN = "978-0-306-40615-7";
+
+  @Autowired
+  private BookService bookService;
+  @Autowired
+  private BookListingService bookListingService;
+  @Autowired
+  private CatalogQueryService catalogQueryService;
+  @Autowired
+  private BookRepository bookRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private Long bookId;
+
+  @BeforeEach
+  public void setUp() {
+    BookEntity book = new BookEntity();
+    book.setTitle("ISBN search test");
+    book.setIsbn(ISBN);
+    book.setPrice(BigDecimal.TEN);
+    bookService.saveBookToDatabase(book);
+    bookRepository.flush();
+    bookId = book.getId();
+  }
+
+  @Test
+  public void testFullTextSearchFindsTheIsbnWithAndWithoutHyphens() {
+    for (String query : List.of(ISBN, "9780306406157")) {
+      List<BookListing> books =
+          bookListingService.searchFullText(query, PageRequest.of(0, 10)).getContent();
+      assertEquals(List.of(bookId), books.stream().map(BookListing::getId).toList(), query);
+    }
+  }
+
+  @Test
+  public void testSearchFindsTheIsbnWithAndWithoutHyphens() {
+    for (String query : List.of(ISBN, "9780306406157", " 978 0306 40615 7 ")) {
+      List<BookListing> books =
+          bookListingService.search(query, PageRequest.of(0, 10)).getContent();
+      assertEquals(List.of(bookId), books.stream().map(BookListing::getId).toList(), query);
+      assertEquals(List.of(bookId), bookRepository.searchIds(query, IsbnUtils.normalize(query)),
+          query);
+    }
+  }
+
+  @Test
+  public void testCatalogQueryFindsTheIsbnWithAndWithoutHyphens() {
+    for (String query : List.of(ISBN, "9780306406157")) {
+      CatalogQuery catalogQuery = new CatalogQuery(query, null, null, null, null, null);
+      assertEquals(List.of(bookId), catalogQueryService.findIds(catalogQuery), query);
+      assertEquals(1, catalogQueryService.count(catalogQuery), query);
+    }
+  }
+
+  @Test
+  public void testFullTextSearchCanUseTheIndexesOfBothConditions() {
+    jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN SELECT b.book_id "
+        + BookRepository.FULL_TEXT_SEARCH.replace(":query", "'x'").replace(":isbn", "'X'"),
+        String.class));
+    assertTrue(plan.contains("BitmapOr"), plan);
+  }
+}
@@ -0,0 +1,40 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.project.dto.CatalogCursor;
+import com.project.util.CatalogSort;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class CatalogCursorTest {
+
+  @Test
+  public void testEncodedCursorsDecodeToTheSameValue() {
+    CatalogCursor price = new CatalogCursor(CatalogSort.PRICE_ASC, "12.50", 42);
+    CatalogCursor title = new CatalogCursor(CatalogSort.TITLE_DESC, "A\nTitle", 7);
+    CatalogCursor noKey = new CatalogCursor(CatalogSort.PRICE_DESC, null, 3);
+    assertEquals(price, CatalogCursor.decode(price.encode()));
+    assertEquals(title, CatalogCursor.decode(title.encode()));
+    assertEquals(noKey, CatalogCursor.decode(noKey.encode()));
+  }
+
+  @Test
+  public void testTamperedCursorsDecodeToNull() {
+    assertNull(CatalogCursor.decode(raw("PRICE_ASC\n42\nvabc")));
+    assertNull(CatalogCursor.decode(raw("PRICE_DESC\n42\nv1e9999")));
+    assertNull(CatalogCursor.decode(raw("PRICE_ASC\nabc\nv12.50")));
+    assertNull(CatalogCursor.decode(raw("UNKNOWN\n42\nv12.50")));
+    assertNull(CatalogCursor.decode(raw("PRICE_ASC\n42")));
+    assertNull(CatalogCursor.decode("not base64!"));
+    assertEquals(new CatalogCursor(CatalogSort.TITLE_ASC, "abc", 42),
+        CatalogCursor.decode(raw("TITLE_ASC\n42\nvabc")));
+  }
+
+  private static String raw(String value) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
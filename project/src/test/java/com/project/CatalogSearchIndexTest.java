@@ -0,0 +1,157 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import com.project.dto.BookListing;
+import com.project.service.CatalogSearchIndex;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Searches the in-memory index without the database, and compares the results with a brute force
+ * search over the indexed books.
+ */
+class CatalogSearchIndexTest {
+
+  private static final String[] WORDS = {"harry", "potter", "hobbit", "history", "house",
+      "ocean", "old", "man", "sea", "sand", "stone", "star", "st"};
+
+  private final CatalogSearchIndex index = new CatalogSearchIndex(null);
+
+  @Test
+  public void testAllFullTermsAndAPrefixOfTheLastMustMatchRankedByWeight() {
+    // Weights: title 8, author 4, category 2, description 1
+    index.index(book(1L, "Old man", List.of("Sea"), List.of("Classics"), "stories"));
+    index.index(book(2L, "The sea", List.of("Old"), List.of("Stone"), "man"));
+    index.index(book(3L, "Old star", List.of("Man"), List.of(), null));
+    index.index(book(4L, "Sand", List.of("Old man"), List.of("Stars"), "stones"));
+
+    // old + man + the heaviest term starting with "st": 8 + 4 + 8, 8 + 8 + 1, 4 + 4 + 2, 4 + 1 + 2
+    assertArrayEquals(new int[] {3, 1, 4, 2}, index.search("old man st"));
+    // "st" alone is also a full term of no book
+    assertArrayEquals(new int[0], index.search("st old"));
+    assertArrayEquals(new int[] {1, 2}, index.search("sea MAN"));
+    assertArrayEquals(new int[] {1, 2, 3, 4}, index.search("  "));
+
+    index.remove(3L);
+    assertArrayEquals(new int[] {1, 4, 2}, index.search("old man st"));
+    assertArrayEquals(new int[] {1, 2, 4}, index.search(""));
+  }
+
+  @Test
+  public void testSearchMatchesBruteForceAfterUpdatesAndRemovals() {
+    Random random = new Random(5);
+    Map<Long, BookListing> books = new HashMap<>();
+    for (long id = 1; id <= 300; id++) {
+      BookListing book = randomBook(id, random);
+      index.index(book);
+      books.put(id, book);
+    }
+    for (long id = 1; id <= 300; id += 4) {
+      BookListing book = randomBook(id, random);
+      index.index(book);
+      books.put(id, book);
+    }
+    for (long id = 2; id <= 300; id += 9) {
+      index.remove(id);
+      books.remove(id);
+    }
+
+    for (int i = 0; i < 300; i++) {
+      List<String> words = new ArrayList<>();
+      for (int j = random.nextInt(3); j >= 0; j--) {
+        words.add(WORDS[random.nextInt(WORDS.length)]);
+      }
+      String last = words.remove(words.size() - 1);
+      words.add(last.substring(0, 1 + random.nextInt(last.length())));
+      String query = String.join(" ", words);
+      assertArrayEquals(bruteForce(books.values(), words), index.search(query), query);
+    }
+  }
+
+  @Test
+  public void testIsbnIsFoundWithAndWithoutHyphens() {
+    index.index(book(1L, "Signal processing", "9780306406157"));
+    index.index(book(2L, "Processing 978", "0306406152"));
+
+    for (String query : List.of("978-0-306-40615-7", "978 0306 40615 7", "9780306406157")) {
+      assertArrayEquals(new int[] {1}, index.search(query), query);
+    }
+    assertArrayEquals(new int[] {2}, index.search("0-306-40615-2"));
+    // Words that only look like parts of an ISBN are still searched word by word
+    assertArrayEquals(new int[] {2}, index.search("978 processing"));
+  }
+
+  // Books with all words, the last as a prefix, by summed weight and then by ID
+  private static int[] bruteForce(Collection<BookListing> books, List<String> words) {
+    List<long[]> matches = new ArrayList<>();
+    for (BookListing book : books) {
+      Map<String, Integer> weights = weights(book);
+      int score = 0;
+      for (String word : words.subList(0, words.size() - 1)) {
+        Integer weight = weights.get(word);
+        score = weight == null || score < 0 ? -1 : score + weight;
+      }
+      String prefix = words.get(words.size() - 1);
+      int prefixWeight = weights.entrySet().stream()
+          .filter(entry -> entry.getKey().startsWith(prefix))
+          .mapToInt(Map.Entry::getValue).max().orElse(-1);
+      if (score >= 0 && prefixWeight >= 0) {
+        matches.add(new long[] {book.getId(), score + prefixWeight});
+      }
+    }
+    return matches.stream()
+        .sorted(Comparator.<long[]>comparingLong(match -> -match[1])
+            .thenComparingLong(match -> match[0]))
+        .mapToInt(match -> (int) match[0])
+        .toArray();
+  }
+
+  // Highest weight of every word of the book
+  private static Map<String, Integer> weights(BookListing book) {
+    Map<String, Integer> weights = new HashMap<>();
+    addWords(weights, book.getTitle(), 8);
+    book.getAuthor().forEach(author -> addWords(weights, author, 4));
+    book.getCategory().forEach(category -> addWords(weights, category, 2));
+    addWords(weights, book.getDescription(), 1);
+    return weights;
+  }
+
+  private static void addWords(Map<String, Integer> weights, String text, int weight) {
+    if (text != null) {
+      for (String word : text.toLowerCase().split(" ")) {
+        weights.merge(word, weight, Math::max);
+      }
+    }
+  }
+
+  private static BookListing randomBook(long id, Random random) {
+    return book(id, words(random, 1 + random.nextInt(3)), List.of(words(random, 2)),
+        List.of(words(random, 1)), words(random, random.nextInt(4) + 1));
+  }
+
+  private static String words(Random random, int count) {
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      words.add(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return String.join(" ", words);
+  }
+
+  private static BookListing book(Long id, String title, List<String> authors,
+      List<String> categories, String description) {
+    return new BookListing(id, title, BigDecimal.TEN, null, description, null, authors,
+        categories);
+  }
+
+  private static BookListing book(Long id, String title, String isbn) {
+    return new BookListing(id, title, BigDecimal.TEN, isbn, null, null, List.of(), List.of());
+  }
+}
@@ -0,0 +1,71 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.dto.CoverImage;
+import com.project.dto.StoredImage;
+import com.project.service.CoverImageCache;
+import com.project.util.ImageVariant;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class CoverImageCacheTest {
+
+  private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+  @Test
+  public void testOffHeapHitIsAReadOnlyViewOfTheDirectBuffer() throws IOException {
+    CoverImageCache cache = new CoverImageCache(1 << 20, true);
+    cache.put(1L, ImageVariant.LIST, cover(StoredImage.ofBytes(IMAGE.clone())));
+
+    StoredImage hit = cache.get(1L, ImageVariant.LIST).image();
+    assertTrue(hit.isBuffer());
+    ByteBuffer buffer = hit.getBuffer();
+    assertTrue(buffer.isDirect());
+    assertTrue(buffer.isReadOnly());
+    assertArrayEquals(IMAGE, hit.readAllBytes());
+    // Reading does not move the cached buffer for the next hit
+    assertArrayEquals(IMAGE, cache.get(1L, ImageVariant.LIST).image().readAllBytes());
+  }
+
+  @Test
+  public void testHeapHitReturnsTheCachedBytes() {
+    CoverImageCache cache = new CoverImageCache(1 << 20, false);
+    byte[] bytes = IMAGE.clone();
+    cache.put(1L, null, cover(StoredImage.ofBytes(bytes)));
+
+    StoredImage hit = cache.get(1L, null).image();
+    assertFalse(hit.isBuffer());
+    assertSame(bytes, hit.getData());
+    assertNull(cache.get(1L, ImageVariant.LIST));
+  }
+
+  @Test
+  public void testLoadFinishingAfterANewerCoverWasCachedDoesNotReplaceIt() {
+    CoverImageCache cache = new CoverImageCache(1 << 20, false);
+    Instant replaced = Instant.now();
+    CoverImage newer = new CoverImage(StoredImage.ofBytes(IMAGE.clone()), "new", replaced, "new");
+    CoverImage older = new CoverImage(StoredImage.ofBytes(IMAGE.clone()), "old",
+        replaced.minusSeconds(60), "old");
+
+    cache.put(1L, null, newer);
+    cache.put(1L, null, older);
+    assertEquals("new", cache.get(1L, null).version());
+
+    cache.invalidate(1L);
+    cache.put(1L, null, older);
+    cache.put(1L, null, newer);
+    assertEquals("new", cache.get(1L, null).version());
+  }
+
+  private static CoverImage cover(StoredImage image) {
+    return new CoverImage(image, "hash", Instant.now(), "hash");
+  }
+}
@@ -0,0 +1,42 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.project.util.CsvReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CsvReaderTest {
+
+  @Test
+  public void testReadsPlainAndQuotedFields() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader(
+        "title,isbn,price\r\n"
+            + "\"Dune, Part 1\",0441013597,9.99\n"
+            + "\"The \"\"Hobbit\"\"\",,\"12.50\"\n"
+            + "\"Two\nlines\",\"\",last"));
+    assertEquals(List.of("title", "isbn", "price"), reader.next());
+    assertEquals(List.of("Dune, Part 1", "0441013597", "9.99"), reader.next());
+    assertEquals(List.of("The \"Hobbit\"", "", "12.50"), reader.next());
+    assertEquals(List.of("Two\nlines", "", "last"), reader.next());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testSkipsEmptyLines() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader("\n\r\na,b\n\n\nc\r\n\r\n"));
+    assertEquals(List.of("a", "b"), reader.next());
+    assertEquals(List.of("c"), reader.next());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testUnclosedQuoteFails() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader("a,\"b\nc"));
+    assertThrows(IOException.class, reader::next);
+  }
+}
@@ -0,0 +1,109 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.project.dto.BookListing;
+import com.project.dto.FacetCounts;
+import com.project.dto.FacetCounts.FacetValue;
+import com.project.service.FacetIndex;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the facet counts with counts over the indexed books, and checks that the cached
+ * counts of the whole catalog follow the changes of the index.
+ */
+class FacetIndexTest {
+
+  private final FacetIndex index = new FacetIndex(null);
+
+  @Test
+  public void testCountAllIsCachedUntilTheIndexChanges() {
+    index.index(book(1L, "12.50", "Fantasy"));
+    index.index(book(2L, "8.00", "Fantasy"));
+    FacetCounts counts = index.countAll();
+    assertEquals(index.count(index.all()), counts);
+    assertSame(counts, index.countAll());
+
+    index.index(book(3L, "60.00", "History"));
+    assertEquals(3, index.countAll().total());
+    assertEquals(List.of(new FacetValue("Fantasy", 2), new FacetValue("History", 1)),
+        index.countAll().categories());
+
+    index.remove(1L);
+    assertEquals(index.count(index.all()), index.countAll());
+    assertEquals(2, index.countAll().total());
+  }
+
+  @Test
+  public void testCountsMatchBruteForceAfterUpdatesAndRemovals() {
+    Random random = new Random(3);
+    Map<Long, BookListing> books = new HashMap<>();
+    for (long id = 1; id <= 400; id++) {
+      BookListing book = randomBook(id, random);
+      index.index(book);
+      books.put(id, book);
+    }
+    for (long id = 1; id <= 400; id += 5) {
+      BookListing book = randomBook(id, random);
+      index.index(book);
+      books.put(id, book);
+    }
+    for (long id = 3; id <= 400; id += 7) {
+      index.remove(id);
+      books.remove(id);
+    }
+
+    BitSet matches = new BitSet();
+    for (int id = 0; id <= 450; id += 1 + random.nextInt(3)) {
+      matches.set(id);
+    }
+    FacetCounts counts = index.count(matches);
+    List<BookListing> matched = books.values().stream()
+        .filter(book -> matches.get(Math.toIntExact(book.getId()))).toList();
+    assertEquals(matched.size(), counts.total());
+    assertEquals(top(matched, BookListing::getCategory), counts.categories());
+    assertEquals(top(matched, BookListing::getAuthor), counts.authors());
+    assertEquals(matched.stream().filter(book -> book.getPrice().doubleValue() < 10).count(),
+        counts.priceBands().get(0).count());
+  }
+
+  // Counts per value, ignoring case and repeats within a book, the ten largest first
+  private static List<FacetValue> top(List<BookListing> books,
+      Function<BookListing, List<String>> values) {
+    Map<String, Integer> counts = new HashMap<>();
+    for (BookListing book : books) {
+      new HashSet<>(values.apply(book)).forEach(value -> counts.merge(value, 1, Integer::sum));
+    }
+    return counts.entrySet().stream()
+        .map(entry -> new FacetValue(entry.getKey(), entry.getValue()))
+        .sorted(Comparator.comparingInt(FacetValue::count).reversed()
+            .thenComparing(FacetValue::value))
+        .limit(10)
+        .toList();
+  }
+
+  private static BookListing randomBook(long id, Random random) {
+    List<String> authors = new ArrayList<>();
+    for (int i = random.nextInt(3); i >= 0; i--) {
+      authors.add("Author " + random.nextInt(40));
+    }
+    return new BookListing(id, "Book " + id, BigDecimal.valueOf(random.nextInt(3000), 2), null,
+        null, null, authors, List.of("Category " + random.nextInt(15)));
+  }
+
+  private static BookListing book(Long id, String price, String category) {
+    return new BookListing(id, "Book " + id, new BigDecimal(price), null, null, null,
+        List.of("Author " + id), List.of(category));
+  }
+}
@@ -0,0 +1,116 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.entity.BookEntity;
+import com.project.repository.BookRepository;
+import com.project.service.BookImageService;
+import com.project.service.DatabaseImageStorage;
+import com.project.service.FileSystemImageStorage;
+import com.project.service.ImageStorage;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Runs the filesystem image storage against the database and a temporary directory.
+ */
+@SpringBootTest
+class FileSystemImageStorageTest {
+
+  @TempDir
+  static Path imageRoot;
+
+  @Autowired
+  private ImageStorage imageStorage;
+  @Autowired
+  private FileSystemImageStorage fileSystemStorage;
+  @Autowired
+  private DatabaseImageStorage databaseStorage;
+  @Autowired
+  private BookRepository bookRepository;
+
+  private Long bookId;
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("bookstore.images.storage", () -> "filesystem");
+    registry.add("bookstore.images.storage-path", imageRoot::toString);
+  }
+
+  @AfterEach
+  public void cleanUp() throws IOException {
+    if (bookId != null) {
+      bookRepository.deleteById(bookId);
+    }
+    try (Stream<Path> files = Files.walk(imageRoot)) {
+      for (Path file : files.filter(Files::isRegularFile).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  public void testFallbackIsTheTransactionalBean() {
+    assertEquals(fileSystemStorage, imageStorage);
+    assertTrue(AopUtils.isAopProxy(databaseStorage));
+  }
+
+  @Test
+  public void testSweepDeletesOnlyOldUnreferencedFiles() throws IOException {
+    byte[] referenced = {1, 2, 3};
+    byte[] orphan = {4, 5, 6};
+    byte[] recentOrphan = {7, 8, 9};
+    BookEntity book = new BookEntity();
+    book.setTitle("Sweep test");
+    book.setPrice(BigDecimal.ONE);
+    book.setImageHash(BookImageService.hash(referenced));
+    bookId = bookRepository.save(book).getId();
+
+    Path referencedFile = write(referenced, true);
+    Path orphanFile = write(orphan, true);
+    Path recentOrphanFile = write(recentOrphan, false);
+
+    assertEquals(1, fileSystemStorage.sweepOrphans());
+    assertTrue(Files.exists(referencedFile));
+    assertFalse(Files.exists(orphanFile));
+    assertTrue(Files.exists(recentOrphanFile));
+  }
+
+  @Test
+  public void testWritingAnExistingFileRestartsItsGracePeriod() throws IOException {
+    byte[] image = {10, 11, 12};
+    Path file = write(image, true);
+
+    fileSystemStorage.write(BookImageService.hash(image), image);
+
+    assertEquals(0, fileSystemStorage.sweepOrphans());
+    assertTrue(Files.exists(file));
+  }
+
+  private Path write(byte[] data, boolean old) throws IOException {
+    String hash = BookImageService.hash(data);
+    fileSystemStorage.write(hash, data);
+    Path file = imageRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+        .resolve(hash);
+    if (old) {
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+    }
+    return file;
+  }
+}
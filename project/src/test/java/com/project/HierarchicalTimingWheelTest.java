@@ -0,0 +1,156 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.util.HierarchicalTimingWheel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a small wheel tick by tick and checks that every id fires exactly once, at its deadline.
+ * With 4 slots on 3 levels and 1 ms ticks, the wheel covers 64 ticks.
+ */
+class HierarchicalTimingWheelTest {
+
+  private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 3, 0);
+  // Expired id -> time it was handed out
+  private final Map<Long, Long> fired = new LinkedHashMap<>();
+  private long now;
+
+  @Test
+  public void testDeadlinesOnEveryLevelFireOnTime() {
+    for (long deadline = 1; deadline < 64; deadline++) {
+      wheel.schedule(deadline, deadline);
+    }
+    advanceTo(70);
+    assertEquals(63, fired.size());
+    fired.forEach((id, time) -> assertEquals(id, time));
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testDeadlinesBeyondTheTopLevelFireOnTime() {
+    wheel.schedule(1, 200);
+    wheel.schedule(2, 1000);
+    advanceTo(199);
+    assertTrue(fired.isEmpty());
+    advanceTo(1000);
+    assertEquals(Map.of(1L, 200L, 2L, 1000L), fired);
+  }
+
+  @Test
+  public void testPastDeadlinesFireWithTheNextTick() {
+    advanceTo(10);
+    wheel.schedule(1, 3);
+    advanceTo(11);
+    assertEquals(Map.of(1L, 11L), fired);
+  }
+
+  @Test
+  public void testDeadlineMovedCloserFiresOnceAtTheNewDeadline() {
+    wheel.schedule(1, 50);
+    wheel.schedule(1, 10);
+    advanceTo(100);
+    assertEquals(Map.of(1L, 10L), fired);
+  }
+
+  @Test
+  public void testDeadlineMovedFurtherAwayFiresOnceAtTheNewDeadline() {
+    wheel.schedule(1, 10);
+    wheel.schedule(2, 20);
+    advanceTo(5);
+    wheel.schedule(1, 50);
+    wheel.schedule(2, 300);
+    advanceTo(400);
+    assertEquals(Map.of(1L, 50L, 2L, 300L), fired);
+  }
+
+  @Test
+  public void testScheduleNoLaterThanKeepsTheEarlierDeadline() {
+    wheel.scheduleNoLaterThan(1, 10);
+    wheel.scheduleNoLaterThan(1, 40);
+    wheel.scheduleNoLaterThan(2, 40);
+    wheel.scheduleNoLaterThan(2, 20);
+    advanceTo(100);
+    assertEquals(Map.of(1L, 10L, 2L, 20L), fired);
+  }
+
+  @Test
+  public void testCancelledIdsDoNotFire() {
+    wheel.schedule(1, 5);
+    wheel.schedule(2, 30);
+    wheel.schedule(3, 500);
+    wheel.cancel(1);
+    wheel.cancel(3);
+    wheel.cancel(4);
+    assertEquals(1, wheel.size());
+    advanceTo(1000);
+    assertEquals(Map.of(2L, 30L), fired);
+  }
+
+  @Test
+  public void testManyIdsMatchAModel() {
+    // Enough ids to make the deadline map probe, shift back on removal and grow, including the
+    // key it uses as free marker
+    Random random = new Random(7);
+    Map<Long, Long> expected = new HashMap<>();
+    long[] ids = new long[5000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i < 4 ? Long.MIN_VALUE + i : random.nextLong();
+    }
+    for (int round = 0; round < 3; round++) {
+      for (long id : ids) {
+        long deadline = now + 1 + random.nextInt(300);
+        wheel.schedule(id, deadline);
+        expected.put(id, deadline);
+      }
+      for (int i = round; i < ids.length; i += 3) {
+        wheel.cancel(ids[i]);
+        expected.remove(ids[i]);
+      }
+      assertEquals(expected.size(), wheel.size());
+      fired.clear();
+      advanceTo(now + 150);
+      fired.forEach((id, time) -> assertEquals(expected.remove(id), time));
+      expected.values().forEach(deadline -> assertTrue(deadline > now));
+      assertEquals(expected.size(), wheel.size());
+    }
+    fired.clear();
+    advanceTo(now + 300);
+    assertEquals(expected, fired);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testManyIdsFireAtTheirLastDeadline() {
+    Random random = new Random(11);
+    Map<Long, Long> expected = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      long id = random.nextInt(500) * 1_000_003L;
+      long deadline = 1 + random.nextInt(400);
+      wheel.schedule(id, deadline);
+      expected.put(id, deadline);
+      if (random.nextInt(10) == 0) {
+        wheel.cancel(id);
+        expected.remove(id);
+      }
+    }
+    advanceTo(500);
+    assertEquals(expected, fired);
+  }
+
+  private void advanceTo(long time) {
+    while (now < time) {
+      now++;
+      wheel.advance(now, id -> {
+        Long previous = fired.put(id, now);
+        assertNull(previous, "Fired twice: " + id);
+      });
+    }
+  }
+}
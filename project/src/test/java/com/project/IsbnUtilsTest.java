@@ -0,0 +1,34 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.project.util.IsbnUtils;
+import org.junit.jupiter.api.Test;
+
+class IsbnUtilsTest {
+
+  @Test
+  public void testNormalizeRemovesHyphensAndSpaces() {
+    assertEquals("030640615X", IsbnUtils.normalize(" 0-306-40615-x "));
+    assertEquals("9780306406157", IsbnUtils.normalize("978 0 306 40615 7"));
+    assertNull(IsbnUtils.normalize(null));
+  }
+
+  @Test
+  public void testValidateAcceptsValidCheckDigits() {
+    assertEquals("0306406152", IsbnUtils.validate("0-306-40615-2"));
+    assertEquals("080442957X", IsbnUtils.validate("0-8044-2957-x"));
+    assertEquals("9780306406157", IsbnUtils.validate("978-0-306-40615-7"));
+  }
+
+  @Test
+  public void testValidateRejectsInvalidIsbns() {
+    assertThrows(IllegalArgumentException.class, () -> IsbnUtils.validate(null));
+    assertThrows(IllegalArgumentException.class, () -> IsbnUtils.validate("0306406153"));
+    assertThrows(IllegalArgumentException.class, () -> IsbnUtils.validate("9780306406158"));
+    assertThrows(IllegalArgumentException.class, () -> IsbnUtils.validate("97803064061"));
+    assertThrows(IllegalArgumentException.class, () -> IsbnUtils.validate("97803064061X7"));
+  }
+}
@@ -3,12 +3,12 @@ package com.project;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
-import com.project.entities.AccountEntity;
-import com.project.entities.OrderEntity;
-import com.project.entities.User;
-import com.project.repositories.AccountRepository;
-import com.project.repositories.OrderRepository;
-import com.project.services.UserService;
+import com.project.entity.AccountEntity;
+import com.project.entity.OrderEntity;
+import com.project.entity.User;
+import com.project.repository.AccountRepository;
+import com.project.repository.OrderRepository;
+import com.project.service.UserService;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import org.junit.jupiter.api.Test;
@@ -0,0 +1,123 @@
+package com.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.project.dto.BookListing;
+import com.project.dto.Suggestion;
+import com.project.service.SuggestionIndex;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the completions of the trie with a brute force search over the indexed books.
+ */
+class SuggestionIndexTest {
+
+  private static final String[] WORDS = {"harry", "potter", "hobbit", "history", "house",
+      "ocean", "old", "man", "sea", "sand", "stone", "star"};
+
+  private final Random random = new Random(42);
+  private final SuggestionIndex index = new SuggestionIndex(null, null);
+  private final Map<Long, BookListing> books = new HashMap<>();
+
+  @Test
+  public void testCompletionsMatchBruteForceAfterBatchesUpdatesAndRemovals() {
+    List<BookListing> batch = new ArrayList<>();
+    for (long id = 1; id <= 300; id++) {
+      batch.add(randomBook(id));
+    }
+    index.indexAll(batch);
+    batch.forEach(book -> books.put(book.getId(), book));
+    assertMatchesBruteForce();
+
+    for (long id = 1; id <= 300; id += 7) {
+      BookListing book = randomBook(id);
+      index.index(book);
+      books.put(id, book);
+    }
+    for (long id = 2; id <= 300; id += 11) {
+      index.remove(id);
+      books.remove(id);
+    }
+    assertMatchesBruteForce();
+  }
+
+  @Test
+  public void testLimitIsBounded() {
+    index.index(new BookListing(1L, "Harry Potter", BigDecimal.ONE, null, null, null,
+        List.of("J K Rowling"), List.of("Fantasy")));
+    assertTrue(index.suggest("har", -5).isEmpty());
+    assertEquals(1, index.suggest("har", 100).size());
+    assertEquals(List.of(new Suggestion("Harry Potter", Suggestion.Type.TITLE)),
+        index.suggest("pot", 1));
+  }
+
+  private void assertMatchesBruteForce() {
+    Set<String> prefixes = new LinkedHashSet<>(List.of("h", "ha", "ho", "s", "st", "o", "old m",
+        "potter", "x"));
+    for (String word : WORDS) {
+      prefixes.add(word.substring(0, 2));
+      prefixes.add(word);
+    }
+    for (String prefix : prefixes) {
+      assertEquals(bruteForce(prefix), index.suggest(prefix, SuggestionIndex.MAX_SUGGESTIONS),
+          "Completions of \"" + prefix + "\"");
+    }
+  }
+
+  private List<Suggestion> bruteForce(String prefix) {
+    Map<Suggestion, Long> scores = new HashMap<>();
+    for (BookListing book : books.values()) {
+      Set<Suggestion> phrases = new LinkedHashSet<>();
+      phrases.add(new Suggestion(book.getTitle(), Suggestion.Type.TITLE));
+      book.getAuthor().forEach(a -> phrases.add(new Suggestion(a, Suggestion.Type.AUTHOR)));
+      book.getCategory().forEach(c -> phrases.add(new Suggestion(c, Suggestion.Type.CATEGORY)));
+      for (Suggestion phrase : phrases) {
+        if (matches(phrase.text(), prefix)) {
+          scores.merge(phrase, 1L, Long::sum);
+        }
+      }
+    }
+    return scores.entrySet().stream()
+        .sorted(Map.Entry.<Suggestion, Long>comparingByValue().reversed()
+            .thenComparing(entry -> entry.getKey().text(), Comparator.naturalOrder())
+            .thenComparing(entry -> entry.getKey().type()))
+        .limit(SuggestionIndex.MAX_SUGGESTIONS)
+        .map(Map.Entry::getKey)
+        .toList();
+  }
+
+  // A phrase completes a prefix from the start of any of its words
+  private static boolean matches(String text, String prefix) {
+    String[] words = text.split(" ");
+    for (int i = 0; i < words.length; i++) {
+      if (String.join(" ", List.of(words).subList(i, words.length)).startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Lowercase phrases of known words, so the displayed text equals the normalized one
+  private BookListing randomBook(long id) {
+    return new BookListing(id, phrase(1 + random.nextInt(4)), BigDecimal.ONE, null, null, null,
+        List.of(phrase(2)), List.of(phrase(1)));
+  }
+
+  private String phrase(int words) {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < words; i++) {
+      result.add(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return String.join(" ", result);
+  }
+}